@@ -0,0 +1,115 @@
+package org.blackbox.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and compares them against a recorded baseline. With
+ * --record the results are written as the new baseline; otherwise the gate exits with status 1 if
+ * any benchmark is slower than its baseline by more than the tolerance, or allocates more per
+ * operation than its baseline plus the same tolerance.
+ *
+ * <p>Usage: BenchmarkGate [--record] [--baseline=FILE] [--tolerance=PERCENT] [include regex]
+ */
+public final class BenchmarkGate {
+  private static final String TIME = ".time";
+  private static final String ALLOCATION = ".alloc";
+
+  private BenchmarkGate() {}
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    boolean record = false;
+    Path baselineFile = Path.of("baseline.properties");
+    double tolerance = 10;
+    String include = ".*";
+    for (String arg : args) {
+      if (arg.equals("--record")) {
+        record = true;
+      } else if (arg.startsWith("--baseline=")) {
+        baselineFile = Path.of(arg.substring("--baseline=".length()));
+      } else if (arg.startsWith("--tolerance=")) {
+        tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+      } else {
+        include = arg;
+      }
+    }
+
+    Options options =
+        new OptionsBuilder()
+            .include(include)
+            .exclude(BenchmarkGate.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    Map<String, Double> current = summarize(new Runner(options).run());
+
+    if (record) {
+      Properties baseline = new Properties();
+      current.forEach((key, value) -> baseline.setProperty(key, Double.toString(value)));
+      try (Writer writer = Files.newBufferedWriter(baselineFile)) {
+        baseline.store(writer, "BlackBox benchmark baseline");
+      }
+      System.err.println("Recorded " + current.size() + " values to " + baselineFile);
+      return;
+    }
+
+    Properties baseline = new Properties();
+    try (Reader reader = Files.newBufferedReader(baselineFile)) {
+      baseline.load(reader);
+    }
+    int regressions = 0;
+    for (Map.Entry<String, Double> entry : current.entrySet()) {
+      String expected = baseline.getProperty(entry.getKey());
+      if (expected == null) {
+        System.err.println("NEW   " + entry.getKey() + " = " + entry.getValue());
+        continue;
+      }
+      double limit = Double.parseDouble(expected) * (1 + tolerance / 100);
+      // Allow a few bytes of noise for benchmarks that allocate nothing
+      if (entry.getKey().endsWith(ALLOCATION)) {
+        limit = Math.max(limit, 16);
+      }
+      boolean regressed = entry.getValue() > limit;
+      System.err.printf(
+          "%s %s = %.3f (baseline %s)%n",
+          regressed ? "FAIL " : "OK   ", entry.getKey(), entry.getValue(), expected);
+      if (regressed) {
+        regressions++;
+      }
+    }
+    if (regressions > 0) {
+      System.err.println(regressions + " benchmark(s) regressed by more than " + tolerance + "%");
+      System.exit(1);
+    }
+  }
+
+  // Reduces each run to its primary score and its normalized allocation rate in bytes per op.
+  private static Map<String, Double> summarize(Collection<RunResult> results) {
+    Map<String, Double> summary = new TreeMap<>();
+    for (RunResult result : results) {
+      String key = result.getParams().getBenchmark();
+      for (String param : result.getParams().getParamsKeys()) {
+        key += "." + param + "=" + result.getParams().getParam(param);
+      }
+      summary.put(key + TIME, result.getPrimaryResult().getScore());
+      Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+      if (allocation != null) {
+        summary.put(key + ALLOCATION, allocation.getScore());
+      }
+    }
+    return summary;
+  }
+}
@@ -0,0 +1,83 @@
+package org.blackbox.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+import org.blackbox.AtomField;
+import org.blackbox.Board;
+import org.blackbox.GUI;
+import org.blackbox.Game;
+import org.blackbox.HexagonManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shared benchmark state: a fully populated board of the requested radius, its entry points and a
+ * fixed set of random atom layouts. Layouts are generated from a fixed seed so every run measures
+ * the same boards.
+ */
+@State(Scope.Benchmark)
+public class BoardState {
+  static final int LAYOUTS = 64;
+
+  @Param({"4", "10", "50"})
+  public int radius;
+
+  // Number of atoms, or "proportional" to keep the standard density of six atoms in 61 cells
+  @Param({"6", "proportional"})
+  public String atoms;
+
+  Board board;
+  HexagonManager hexManager;
+  int atomCount;
+  int[] entryCells;
+  int[] entryDirections;
+  AtomField[] layouts;
+  String[] cellKeys;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // Game and HexagonManager still report progress on stdout, which would swamp the results
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+    board = Board.of(radius);
+    atomCount =
+        "proportional".equals(atoms) ? Game.proportionalAtomCount(radius) : Integer.parseInt(atoms);
+    hexManager = new HexagonManager(board);
+    cellKeys = new String[board.getCellCount()];
+    for (int cell = 0; cell < board.getCellCount(); cell++) {
+      hexManager.addHexagon(board.x(cell), board.y(cell), board.z(cell), new GUI.Hexagon());
+      cellKeys[cell] = board.key(cell);
+    }
+
+    int entries = 0;
+    int[] cells = new int[board.getCellCount() * Board.DIRECTIONS];
+    int[] directions = new int[cells.length];
+    for (int cell = 0; cell < board.getCellCount(); cell++) {
+      for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+        if (board.neighbor(cell, Board.reverse(direction)) == Board.NO_CELL) {
+          cells[entries] = cell;
+          directions[entries++] = direction;
+        }
+      }
+    }
+    entryCells = Arrays.copyOf(cells, entries);
+    entryDirections = Arrays.copyOf(directions, entries);
+
+    Random random = new Random(20050);
+    layouts = new AtomField[LAYOUTS];
+    for (int i = 0; i < LAYOUTS; i++) {
+      int[] atomCells =
+          random.ints(0, board.getCellCount()).distinct().limit(atomCount).toArray();
+      layouts[i] = new AtomField(board, atomCells);
+    }
+  }
+
+  Game newGame() {
+    return new Game(hexManager, null, radius, atomCount);
+  }
+}
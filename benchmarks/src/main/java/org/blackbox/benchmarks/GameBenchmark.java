@@ -0,0 +1,84 @@
+package org.blackbox.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.blackbox.GUI;
+import org.blackbox.Game;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks the per-game setup and scoring steps of Game. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+  private Game game;
+  private Game scoredGame;
+  private int nextKey;
+
+  @Setup(Level.Trial)
+  public void setUp(BoardState state) {
+    game = state.newGame();
+    game.atomSelection();
+
+    // Guess every atom but one, and one empty cell, so both branches of the scoring run
+    Map<String, Integer> guesses = new HashMap<>();
+    GUI gui =
+        new GUI() {
+          @Override
+          public Map<String, Integer> getOrangeHexButtons() {
+            return guesses;
+          }
+        };
+    scoredGame = new Game(state.hexManager, gui, state.radius, state.atomCount);
+    scoredGame.atomSelection();
+    List<String> atoms = scoredGame.getAtomLocations();
+    for (int i = 1; i < atoms.size(); i++) {
+      guesses.put(atoms.get(i), i);
+    }
+    for (String key : state.cellKeys) {
+      if (!atoms.contains(key)) {
+        guesses.put(key, 0);
+        break;
+      }
+    }
+  }
+
+  @Benchmark
+  public Object atomSelection() {
+    game.atomSelection();
+    return game.getAtomField();
+  }
+
+  @Benchmark
+  public Object storeEntryPoints() {
+    game.storeEntryPoints();
+    return game.getEntryPointsMap();
+  }
+
+  @Benchmark
+  public boolean isInMultipleNeighbors(BoardState state) {
+    String key = state.cellKeys[nextKey++ % state.cellKeys.length];
+    return game.isInMultipleNeighbors(key);
+  }
+
+  @Benchmark
+  public int scoreTracker() {
+    scoredGame.scoreTracker();
+    return scoredGame.getScore();
+  }
+}
@@ -0,0 +1,58 @@
+package org.blackbox.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.blackbox.RaySignature;
+import org.blackbox.RayTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fires a ray from every entry point of the board, cycling through the random layouts held by
+ * BoardState. The score is the time for one full sweep; divide by the entry count for per-ray cost.
+ * The signature benchmark computes the same outcomes, tracing each reversible pair of rays once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RaySweepBenchmark {
+  private RayTracer[] tracers;
+  private int[] signature;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp(BoardState state) {
+    tracers = new RayTracer[state.layouts.length];
+    for (int i = 0; i < tracers.length; i++) {
+      tracers[i] = new RayTracer(state.layouts[i]);
+    }
+    signature = new int[state.entryCells.length];
+  }
+
+  @Benchmark
+  public long fullSweep(BoardState state) {
+    RayTracer tracer = tracers[next++ & (tracers.length - 1)];
+    long checksum = 0;
+    for (int i = 0; i < state.entryCells.length; i++) {
+      checksum += tracer.trace(state.entryCells[i], state.entryDirections[i]);
+    }
+    return checksum;
+  }
+
+  @Benchmark
+  public int[] signature() {
+    RaySignature.compute(tracers[next++ & (tracers.length - 1)], signature);
+    return signature;
+  }
+}
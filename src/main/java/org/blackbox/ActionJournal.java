@@ -0,0 +1,291 @@
+package org.blackbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * The ActionJournal class is an append-only log of the actions of any number of games, kept in a
+ * memory-mapped file. Appending a record is a copy into the mapping under a short lock, with no
+ * system call; a background thread forces the mapping to disk every commit interval, so the
+ * records of all the games appended in that interval share one flush. A caller that must not lose
+ * an action waits for it with awaitDurable, which returns after the next group commit.
+ *
+ * <p>The file is a sequence of fixed-size big-endian records: the long session id, the byte
+ * Action, three bytes of padding, the action's int a, int b and long c, then the int CRC32C of the
+ * bytes before it. The first record is the header, holding MAGIC and VERSION. Records are 32
+ * bytes, so none straddles a page or disk sector, but a crash can still leave a record partly
+ * written; its checksum then fails, and reading stops at the first record that fails it. The file
+ * grows a segment at a time and the unused tail is zero, which fails the checksum too.
+ */
+public final class ActionJournal implements Closeable {
+  public static final int MAGIC = 0x42424a4c; // "BBJL"
+  public static final int VERSION = 2;
+  static final int RECORD_BYTES = 32;
+  // Bytes of a record covered by its checksum, which follows them
+  static final int CHECKED_BYTES = RECORD_BYTES - 4;
+  // Bytes mapped at a time, a whole number of records
+  private static final long SEGMENT = RECORD_BYTES * (1L << 18);
+  private static final Action[] ACTIONS = Action.values();
+
+  /** The actions recorded, with the meaning of their a, b and c fields. */
+  public enum Action {
+    NONE, // Never written: marks the unused tail of the file
+    START, // A new layout: a is the board radius, b the number of atoms, c the layout seed
+    ATOM, // One atom of the layout, following START: a is its cell
+    FIRE, // A ray: a is the entry of the EntryCatalog, b the path length, c the packed outcome
+    GUESS, // A guess toggled: a is the cell, b is 1 if it is now marked and 0 if not
+    END, // The game was scored: a is the rays shot, b the number of guesses, c the score
+    REMOVE // The game was deleted from the server
+  }
+
+  /**
+   * A record of the journal.
+   *
+   * @param session the id of the game the action belongs to
+   * @param action the action
+   * @param a the first field of the action
+   * @param b the second field of the action
+   * @param c the third field of the action
+   */
+  public record Entry(long session, Action action, int a, int b, long c) {}
+
+  private final FileChannel channel;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  private final Thread committer;
+  // A record is built here and copied into the mapping whole. Guarded by this, like the CRC
+  private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_BYTES);
+  private final CRC32C crc = new CRC32C();
+  private long appended; // Records appended, including the header
+  private long durable; // Records forced to disk
+  private boolean closed;
+
+  private ActionJournal(FileChannel channel, Duration commitInterval) throws IOException {
+    this.channel = channel;
+    long size = channel.size();
+    for (long position = 0; position < size; position += SEGMENT) {
+      segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT));
+    }
+    if (size == 0) {
+      segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT));
+      segment(0).putInt(0, MAGIC).putInt(4, VERSION);
+      appended = 1;
+    } else {
+      if (segment(0).getInt(0) != MAGIC || segment(0).getInt(4) != VERSION) {
+        throw new IOException("Not an action journal");
+      }
+      appended = 1;
+      while (appended < (long) segments.size() * (SEGMENT / RECORD_BYTES)
+          && isValid(segment(segmentOf(appended)), offsetOf(appended), crc)) {
+        appended++;
+      }
+    }
+    durable = appended;
+    long intervalNanos = commitInterval.toNanos();
+    committer = new Thread(() -> commitEvery(intervalNanos), "journal-commit");
+    committer.setDaemon(true);
+    committer.start();
+  }
+
+  /**
+   * Opens a journal for appending, creating the file if it does not exist and continuing after its
+   * last record if it does.
+   *
+   * @param file the file
+   * @param commitInterval the time between group commits
+   * @return the journal
+   * @throws IOException if the file can not be opened or is not a journal
+   */
+  public static ActionJournal open(Path file, Duration commitInterval) throws IOException {
+    if (commitInterval.isNegative() || commitInterval.isZero()) {
+      throw new IllegalArgumentException("Invalid commit interval: " + commitInterval);
+    }
+    FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      return new ActionJournal(channel, commitInterval);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends a record. It is in the file once this returns and on disk after the next group commit.
+   *
+   * @param session the id of the game the action belongs to
+   * @param action the action
+   * @param a the first field of the action
+   * @param b the second field of the action
+   * @param c the third field of the action
+   * @return the sequence number of the record, for awaitDurable
+   */
+  public synchronized long append(long session, Action action, int a, int b, long c) {
+    if (closed) {
+      throw new IllegalStateException("The journal is closed");
+    }
+    if (action == Action.NONE) {
+      throw new IllegalArgumentException("NONE can not be appended");
+    }
+    int segment = segmentOf(appended);
+    if (segment == segments.size()) {
+      try {
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segment * SEGMENT, SEGMENT));
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not grow the journal", e);
+      }
+    }
+    scratch.putLong(0, session).put(8, (byte) action.ordinal());
+    scratch.putInt(12, a).putInt(16, b).putLong(20, c);
+    crc.reset();
+    crc.update(scratch.array(), 0, CHECKED_BYTES);
+    scratch.putInt(CHECKED_BYTES, (int) crc.getValue());
+    segment(segment).put(offsetOf(appended), scratch.array());
+    return ++appended;
+  }
+
+  /**
+   * Waits until a record has been forced to disk by a group commit.
+   *
+   * @param sequence the sequence number returned by append
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized void awaitDurable(long sequence) throws InterruptedException {
+    while (durable < sequence && !closed) {
+      wait();
+    }
+  }
+
+  // Forces the records appended so far to disk now.
+  public void sync() {
+    long from;
+    long target;
+    MappedByteBuffer[] mapped;
+    synchronized (this) {
+      from = durable;
+      target = appended;
+      if (from >= target) {
+        return;
+      }
+      mapped = segments.toArray(new MappedByteBuffer[0]);
+    }
+    // Only the segments written since the last commit have dirty pages
+    for (int s = (int) (from * RECORD_BYTES / SEGMENT); s < mapped.length; s++) {
+      mapped[s].force();
+    }
+    synchronized (this) {
+      durable = Math.max(durable, target);
+      notifyAll();
+    }
+  }
+
+  private void commitEvery(long intervalNanos) {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Thread.sleep(intervalNanos / 1_000_000, (int) (intervalNanos % 1_000_000));
+      } catch (InterruptedException e) {
+        return;
+      }
+      sync();
+    }
+  }
+
+  // Returns the number of records appended, not counting the header.
+  public synchronized long size() {
+    return appended - 1;
+  }
+
+  /** Stops the committer, forces every record to disk and closes the file. */
+  @Override
+  public void close() throws IOException {
+    committer.interrupt();
+    try {
+      committer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    sync();
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    channel.close();
+  }
+
+  private ByteBuffer segment(int index) {
+    return segments.get(index);
+  }
+
+  private static int segmentOf(long record) {
+    return (int) (record * RECORD_BYTES / SEGMENT);
+  }
+
+  private static int offsetOf(long record) {
+    return (int) (record * RECORD_BYTES % SEGMENT);
+  }
+
+  // Returns whether the record at an offset holds an action and matches its checksum.
+  private static boolean isValid(ByteBuffer segment, int at, CRC32C crc) {
+    int ordinal = segment.get(at + 8);
+    if (ordinal <= 0 || ordinal >= ACTIONS.length) {
+      return false;
+    }
+    crc.reset();
+    crc.update(segment.slice(at, CHECKED_BYTES));
+    return segment.getInt(at + CHECKED_BYTES) == (int) crc.getValue();
+  }
+
+  /**
+   * Reads every record of a journal in order, memory-mapping it a segment at a time. Reading
+   * stops at the first record that fails its checksum, which is where a crash tore the journal.
+   *
+   * @param file the file
+   * @param action the action to run on each record
+   * @return the number of records read
+   * @throws IOException if the file can not be read or is not a journal
+   */
+  public static long forEach(Path file, Consumer<Entry> action) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long count = 0;
+      CRC32C crc = new CRC32C();
+      for (long position = 0; position < size; position += SEGMENT) {
+        long length = Math.min(SEGMENT, size - position);
+        ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        int at = 0;
+        if (position == 0) {
+          if (length < RECORD_BYTES
+              || segment.getInt(0) != MAGIC
+              || segment.getInt(4) != VERSION) {
+            throw new IOException("Not an action journal: " + file);
+          }
+          at = RECORD_BYTES;
+        }
+        for (; at + RECORD_BYTES <= segment.limit(); at += RECORD_BYTES) {
+          if (!isValid(segment, at, crc)) {
+            return count;
+          }
+          action.accept(
+              new Entry(
+                  segment.getLong(at),
+                  ACTIONS[segment.get(at + 8)],
+                  segment.getInt(at + 12),
+                  segment.getInt(at + 16),
+                  segment.getLong(at + 20)));
+          count++;
+        }
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package org.blackbox;
+
+import java.util.Arrays;
+
+/**
+ * The AtomField class holds the area of effect of an atom layout. Atom cells are kept as a bitboard
+ * with one bit per Board cell, and every cell records how many atoms are next to it and in which of
+ * its six directions they sit, so that the ray traversal answers each of its questions with a
+ * single array read. The masks and counts are kept up to date as atoms come and go rather than
+ * recomputed.
+ *
+ * <p>A field is mutable: it can be given a new layout with place, which only touches the cells
+ * around the old and new atoms, and single atoms can be added or removed. Whoever changes a field
+ * owns it. Simulations and searches own one field per thread, a RayTracer reads the field it was
+ * built on, and a GameSession re-places the field of the pooled tracer it borrows before every ray.
+ * The field returned by Game.getAtomField belongs to the game and must only be read. A field is
+ * not thread-safe and must not be changed while another thread is reading it.
+ */
+public final class AtomField {
+  private final Board board;
+  private final long[] atoms; // Bit per cell, set when the cell holds an atom
+  private final byte[] neighborMasks; // Bit d set when the neighbour in direction d is an atom
+  private final byte[] adjacentCounts; // Number of atoms next to each cell
+  private int[] atomCells;
+  private int atomCount;
+
+  /**
+   * Computes the field for the given atom cells.
+   *
+   * @param board the board the atoms are placed on
+   * @param atomCells the cells holding atoms
+   */
+  public AtomField(Board board, int[] atomCells) {
+    this.board = board;
+    int cellCount = board.getCellCount();
+    atoms = new long[(cellCount + 63) >>> 6];
+    neighborMasks = new byte[cellCount];
+    adjacentCounts = new byte[cellCount];
+    this.atomCells = new int[atomCells.length];
+    place(atomCells, atomCells.length);
+  }
+
+  /**
+   * Replaces the layout with the first count cells of the given array. Duplicate cells are ignored.
+   *
+   * @param cells the cells holding atoms
+   * @param count the number of cells to use
+   */
+  public void place(int[] cells, int count) {
+    for (int i = 0; i < count; i++) {
+      checkCell(cells[i]);
+    }
+    for (int i = 0; i < atomCount; i++) {
+      update(atomCells[i], -1);
+    }
+    atomCount = 0;
+    if (atomCells.length < count) {
+      atomCells = new int[count];
+    }
+    for (int i = 0; i < count; i++) {
+      if (!isAtom(cells[i])) {
+        atomCells[atomCount++] = cells[i];
+        update(cells[i], 1);
+      }
+    }
+  }
+
+  /**
+   * Replaces the layout with the cells whose bits are set in a bitboard laid out like this field's,
+   * one bit per cell starting at the given word.
+   *
+   * @param bits the words holding the bitboard
+   * @param from the index of the bitboard's first word
+   */
+  public void place(long[] bits, int from) {
+    for (int i = 0; i < atomCount; i++) {
+      update(atomCells[i], -1);
+    }
+    atomCount = 0;
+    for (int word = 0; word < atoms.length; word++) {
+      for (long rest = bits[from + word]; rest != 0; rest &= rest - 1) {
+        add((word << 6) + Long.numberOfTrailingZeros(rest));
+      }
+    }
+  }
+
+  /**
+   * Adds an atom to the layout. Does nothing if the cell already holds one.
+   *
+   * @param cell the cell to place the atom in
+   */
+  public void add(int cell) {
+    checkCell(cell);
+    if (isAtom(cell)) {
+      return;
+    }
+    if (atomCount == atomCells.length) {
+      atomCells = Arrays.copyOf(atomCells, Math.max(8, atomCount * 2));
+    }
+    atomCells[atomCount++] = cell;
+    update(cell, 1);
+  }
+
+  /**
+   * Removes an atom from the layout. Does nothing if the cell holds no atom.
+   *
+   * @param cell the cell to clear
+   */
+  public void remove(int cell) {
+    if (!isAtom(cell)) {
+      return;
+    }
+    for (int i = 0; i < atomCount; i++) {
+      if (atomCells[i] == cell) {
+        atomCells[i] = atomCells[--atomCount];
+        break;
+      }
+    }
+    update(cell, -1);
+  }
+
+  private void checkCell(int cell) {
+    if (cell < 0 || cell >= neighborMasks.length) {
+      throw new IllegalArgumentException("Invalid atom cell: " + cell);
+    }
+  }
+
+  // Sets or clears an atom and adjusts the masks and counts of its neighbours.
+  private void update(int atom, int change) {
+    atoms[atom >>> 6] ^= 1L << atom;
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      int neighbor = board.neighbor(atom, direction);
+      if (neighbor != Board.NO_CELL) {
+        // The atom lies in the opposite direction when seen from its neighbour
+        neighborMasks[neighbor] ^= (byte) (1 << Board.reverse(direction));
+        adjacentCounts[neighbor] += (byte) change;
+      }
+    }
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  public int getAtomCount() {
+    return atomCount;
+  }
+
+  // Returns the cell of the atom at the given position of the layout.
+  public int atomCell(int index) {
+    return atomCells[index];
+  }
+
+  public boolean isAtom(int cell) {
+    return (atoms[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // Returns the six bit mask of the directions around a cell that hold atoms.
+  public int neighborMask(int cell) {
+    return neighborMasks[cell];
+  }
+
+  // Returns the number of atoms next to a cell, i.e. how many areas of effect it lies in.
+  public int adjacentAtoms(int cell) {
+    return adjacentCounts[cell];
+  }
+
+  // Returns true if the cell lies in the area of effect of at least one atom.
+  public boolean isInfluenced(int cell) {
+    return neighborMasks[cell] != 0;
+  }
+}
@@ -1,10 +1,102 @@
 package org.blackbox;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
 public class BlackBox {
-  public static void main(String[] args) {
+  // Puzzles kept ready in the background when --unique is given
+  private static final int PUZZLE_POOL_SIZE = 1000;
+  // Most recent rays kept when --capture is given
+  private static final int CAPTURED_RAYS = 4096;
+  // Time between metric snapshots when --metrics is given
+  private static final Duration METRICS_PERIOD = Duration.ofSeconds(30);
+  // Time between group commits of the journal given with --journal
+  private static final Duration JOURNAL_COMMIT_INTERVAL = Duration.ofMillis(100);
+
+  // Usage: BlackBox [--radius=N] [--atoms=K] [--unique] [--seed=N] [--journal=FILE] [--log=LEVEL]
+  //                 [--capture=FILE] [--save=FILE] [--metrics] [--canvas]
+  public static void main(String[] args) throws IOException {
+    int radius = GUI.HIGHEST_COORDINATE;
+    int atoms = -1;
+    boolean unique = false;
+    boolean canvas = false;
+    for (String arg : args) {
+      if (arg.startsWith("--radius=")) {
+        radius = Integer.parseInt(arg.substring("--radius=".length()));
+      } else if (arg.startsWith("--atoms=")) {
+        atoms = Integer.parseInt(arg.substring("--atoms=".length()));
+      } else if (arg.equals("--unique")) {
+        unique = true;
+      } else if (arg.equals("--canvas")) {
+        canvas = true;
+      } else if (arg.startsWith("--seed=")) {
+        GUI.setSeed(Long.parseLong(arg.substring("--seed=".length())));
+      } else if (arg.startsWith("--journal=")) {
+        journal(Path.of(arg.substring("--journal=".length())));
+      } else if (arg.startsWith("--log=")) {
+        EventLog.setLevel(arg.substring("--log=".length()));
+      } else if (arg.startsWith("--save=")) {
+        GUI.setSaveFile(Path.of(arg.substring("--save=".length())));
+      } else if (arg.startsWith("--capture=")) {
+        captureRays(Path.of(arg.substring("--capture=".length())));
+      } else if (arg.equals("--metrics")) {
+        EngineMetrics.enable();
+        EngineMetrics.global().startReporting(METRICS_PERIOD);
+      }
+    }
+    GUI.setBoardSize(radius, atoms > 0 ? atoms : Game.proportionalAtomCount(radius));
+    if (unique) {
+      // Every layout in the pool can be deduced from its rays
+      GUI.setPuzzlePool(
+          new PuzzlePool(
+              Board.of(radius),
+              GUI.getAtomCount(),
+              PUZZLE_POOL_SIZE,
+              Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+    }
 
+    if (canvas) {
+      // Draws the board onto a single canvas, for boards too large for a node per hexagon
+      javafx.application.Application.launch(CanvasGUI.class, args);
+      return;
+    }
     HexagonManager hexManager = new HexagonManager();
     GUI.setHexagonManager(hexManager);
     javafx.application.Application.launch(GUI.class, args);
   }
+
+  // Records the game's actions in the journal, committing the last of them when the game exits.
+  private static void journal(Path file) throws IOException {
+    ActionJournal journal = ActionJournal.open(file, JOURNAL_COMMIT_INTERVAL);
+    GUI.setJournal(journal);
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  try {
+                    journal.close();
+                  } catch (IOException e) {
+                    EventLog.log(
+                        EventLog.Level.WARN, "Could not close the journal: " + e.getMessage());
+                  }
+                }));
+  }
+
+  // Captures the rays fired and dumps them to the file when the game exits.
+  private static void captureRays(Path file) {
+    EventLog.captureRays(CAPTURED_RAYS);
+    RayCapture capture = EventLog.rayCapture();
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  try {
+                    capture.dump(file);
+                  } catch (IOException e) {
+                    EventLog.log(
+                        EventLog.Level.WARN, "Could not write ray capture: " + e.getMessage());
+                  }
+                }));
+  }
 }
@@ -0,0 +1,174 @@
+package org.blackbox;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Board class is a dense, array-backed index of every cell on a hexagonal board of a given
+ * radius. Cells are numbered from 0 in the same x-then-y order that GUI.generateGrid walks the
+ * grid, and the neighbours of every cell are precomputed so that ray traversal never has to build
+ * or parse "x,y,z" strings. A Board holds no JavaFX types and is immutable once constructed.
+ */
+public final class Board {
+  // Returned by lookups that fall outside the board
+  public static final int NO_CELL = -1;
+  public static final int DIRECTIONS = 6;
+
+  // Cube direction vectors indexed by direction (entry degree / 60), matching the traversal rules
+  // the GUI buttons fire along: 0 -> (-1, 0, +1), 60 -> (0, -1, +1), ... 300 -> (-1, +1, 0)
+  private static final int[] DX = {-1, 0, +1, +1, 0, -1};
+  private static final int[] DY = {0, -1, -1, 0, +1, +1};
+  private static final int[] DZ = {+1, +1, 0, -1, -1, 0};
+  // Boards are immutable, so a single instance per radius is shared by every game
+  private static final Map<Integer, Board> BOARDS = new ConcurrentHashMap<>();
+
+  private final int radius;
+  private final int span;
+  private final int[] cellX;
+  private final int[] cellY;
+  private final int[] lookup; // (x + radius) * span + (y + radius) -> cell
+  private final int[] neighbors; // cell * 6 + direction -> neighbouring cell or NO_CELL
+
+  /**
+   * Constructs the board of the given radius.
+   *
+   * @param radius the highest absolute coordinate value on the board
+   */
+  public Board(int radius) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative: " + radius);
+    }
+    this.radius = radius;
+    this.span = 2 * radius + 1;
+    int cellCount = 3 * radius * (radius + 1) + 1;
+    cellX = new int[cellCount];
+    cellY = new int[cellCount];
+    lookup = new int[span * span];
+    Arrays.fill(lookup, NO_CELL);
+
+    int cell = 0;
+    for (int x = -radius; x <= radius; x++) {
+      for (int y = Math.max(-radius, -x - radius); y <= Math.min(radius, -x + radius); y++) {
+        cellX[cell] = x;
+        cellY[cell] = y;
+        lookup[(x + radius) * span + (y + radius)] = cell;
+        cell++;
+      }
+    }
+
+    neighbors = new int[cellCount * DIRECTIONS];
+    for (int c = 0; c < cellCount; c++) {
+      for (int d = 0; d < DIRECTIONS; d++) {
+        neighbors[c * DIRECTIONS + d] = indexOf(cellX[c] + DX[d], cellY[c] + DY[d]);
+      }
+    }
+  }
+
+  /**
+   * Returns the shared board of the given radius, building it on first use.
+   *
+   * @param radius the highest absolute coordinate value on the board
+   * @return the board
+   */
+  public static Board of(int radius) {
+    return BOARDS.computeIfAbsent(radius, Board::new);
+  }
+
+  // Returns the direction pointing the opposite way to the given one.
+  public static int reverse(int direction) {
+    return (direction + 3) % DIRECTIONS;
+  }
+
+  // Rotates a direction by the given number of 60 degree steps.
+  public static int rotate(int direction, int steps) {
+    return Math.floorMod(direction + steps, DIRECTIONS);
+  }
+
+  public static int dx(int direction) {
+    return DX[direction];
+  }
+
+  public static int dy(int direction) {
+    return DY[direction];
+  }
+
+  public static int dz(int direction) {
+    return DZ[direction];
+  }
+
+  public int getRadius() {
+    return radius;
+  }
+
+  public int getCellCount() {
+    return cellX.length;
+  }
+
+  // Returns the cell at the given axial coordinates, or NO_CELL if it is not on the board.
+  public int indexOf(int x, int y) {
+    int z = -x - y;
+    if (x < -radius || x > radius || y < -radius || y > radius || z < -radius || z > radius) {
+      return NO_CELL;
+    }
+    return lookup[(x + radius) * span + (y + radius)];
+  }
+
+  // Returns the cell at the given cube coordinates, or NO_CELL if it is not on the board.
+  public int indexOf(int x, int y, int z) {
+    return x + y + z == 0 ? indexOf(x, y) : NO_CELL;
+  }
+
+  /**
+   * Returns the cell for an "x,y,z" key as used by HexagonManager and ButtonData, or NO_CELL if the
+   * key is malformed or not on the board. This is the String adapter; hot paths should keep cells.
+   *
+   * @param key the coordinate key
+   * @return the cell index or NO_CELL
+   */
+  public int indexOf(String key) {
+    try {
+      return indexOfCoord(HexCoord.parse(key));
+    } catch (IllegalArgumentException e) {
+      return NO_CELL;
+    }
+  }
+
+  // Returns the cell at a packed HexCoord, or NO_CELL if it is not on the board.
+  public int indexOfCoord(int coord) {
+    return indexOf(HexCoord.x(coord), HexCoord.y(coord), HexCoord.z(coord));
+  }
+
+  // Returns the packed HexCoord of a cell.
+  public int coordOf(int cell) {
+    return HexCoord.pack(cellX[cell], cellY[cell], z(cell));
+  }
+
+  public int x(int cell) {
+    return cellX[cell];
+  }
+
+  public int y(int cell) {
+    return cellY[cell];
+  }
+
+  public int z(int cell) {
+    return -cellX[cell] - cellY[cell];
+  }
+
+  // Returns the "x,y,z" key of a cell, matching the keys used by HexagonManager.
+  public String key(int cell) {
+    return cellX[cell] + "," + cellY[cell] + "," + z(cell);
+  }
+
+  // Returns the neighbour of a cell in the given direction, or NO_CELL at the edge of the board.
+  public int neighbor(int cell, int direction) {
+    return neighbors[cell * DIRECTIONS + direction];
+  }
+
+  // Returns true if the cell lies on the outer ring of the board.
+  public boolean isBoundary(int cell) {
+    return Math.max(Math.abs(cellX[cell]), Math.max(Math.abs(cellY[cell]), Math.abs(z(cell))))
+        == radius;
+  }
+}
@@ -0,0 +1,312 @@
+package org.blackbox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.stage.Stage;
+
+/**
+ * The CanvasGUI class is a renderer for large boards. Instead of a polygon, a button and a label
+ * per hexagon it draws the whole board, the entry points, the atoms and the ray paths onto one
+ * Canvas, and finds the hexagon or entry point under the mouse with the cube coordinate arithmetic
+ * of HexLayout. The scene holds the canvas and the control buttons whatever the size of the board,
+ * and every change is drawn in one pass once the click that caused it has been handled.
+ */
+public class CanvasGUI extends Application implements GameView {
+  // Entry point states, in the colours of the GUI's entry point buttons
+  private static final byte UNUSED = 0;
+  private static final byte FIRED = 1;
+  private static final byte EXITED = 2;
+
+  private final Board board = Board.of(GUI.getRadius());
+  private final EntryCatalog entries = EntryCatalog.of(board);
+  private final HexLayout layout =
+      new HexLayout(board, GUI.getHexSize(), GUI.GUI_SIZE / 2, GUI.GUI_SIZE / 2);
+  final Game myGame = new Game(HexGrid.of(board), this, board.getRadius(), GUI.getAtomCount());
+  private final Canvas canvas = new Canvas(GUI.GUI_SIZE, GUI.GUI_SIZE);
+  private final Font labelFont =
+      Font.font("Verdana", FontWeight.BOLD, 20 * layout.getSize() / GUI.MAX_HEX_SIZE);
+  // Mark shown on each cell, or null
+  private final CellMark[] marks = new CellMark[board.getCellCount()];
+  private final boolean[] guessed = new boolean[board.getCellCount()];
+  private final boolean[] atoms = new boolean[board.getCellCount()];
+  private final byte[] entryStates = new byte[entries.size()];
+  // Cells of every ray fired, drawn in cheat mode
+  private final List<int[]> paths = new ArrayList<>();
+  private final Map<String, Integer> guesses = new HashMap<>();
+  private final Button endGameButton = new Button("End Game");
+  private int hintedEntry = -1;
+  private boolean started;
+  private boolean ended;
+  private boolean cheatMode;
+
+  @Override
+  public void start(Stage primaryStage) {
+    GUI.configure(myGame);
+    canvas.setOnMouseClicked(e -> click(e.getX(), e.getY()));
+
+    Button startGameButton = controlButton("Start Game", 10);
+    endGameButton.setLayoutX(10);
+    endGameButton.setLayoutY(40);
+    endGameButton.setDisable(true);
+    Button cheatModeButton = controlButton("Enable Cheat Mode", 110);
+    cheatModeButton.setDisable(true);
+    Button revealButton = controlButton("Reveal Atoms", 140);
+    revealButton.setDisable(true);
+    Button exitButton = controlButton("Exit", 210);
+    Button hintButton = controlButton("Hint", 240);
+    hintButton.setDisable(true);
+
+    startGameButton.setOnAction(
+        e -> {
+          myGame.atomSelection();
+          myGame.storeEntryPoints();
+          started = true;
+          startGameButton.setDisable(true);
+          startGameButton.setText("Game Started");
+          cheatModeButton.setDisable(false);
+          hintButton.setDisable(false);
+          draw();
+        });
+    endGameButton.setOnAction(
+        e -> {
+          myGame.scoreTracker();
+          ended = true;
+          hintedEntry = -1;
+          endGameButton.setDisable(true);
+          endGameButton.setText("Game Ended");
+          cheatModeButton.setDisable(true);
+          hintButton.setDisable(true);
+          revealButton.setDisable(false);
+          draw();
+          GUI.showScore(myGame);
+        });
+    cheatModeButton.setOnAction(
+        e -> {
+          cheatMode = true;
+          myGame.atomReveal();
+          cheatModeButton.setDisable(true);
+          cheatModeButton.setText("Cheat Mode Enabled");
+          draw();
+        });
+    revealButton.setOnAction(
+        e -> {
+          myGame.atomReveal();
+          revealButton.setDisable(true);
+          revealButton.setText("Atoms Revealed");
+          draw();
+        });
+    exitButton.setOnAction(e -> System.exit(0));
+    hintButton.setOnAction(e -> showHint(hintButton));
+
+    Pane root = new Pane(canvas);
+    root.setStyle("-fx-background-color: black;");
+    root.getChildren()
+        .addAll(
+            startGameButton, endGameButton, cheatModeButton, revealButton, exitButton, hintButton);
+    draw();
+    primaryStage.setTitle("BlackBox Game");
+    primaryStage.setScene(new Scene(root, GUI.GUI_SIZE, GUI.GUI_SIZE));
+    primaryStage.show();
+  }
+
+  private static Button controlButton(String text, double y) {
+    Button button = new Button(text);
+    button.setLayoutX(10); // Set the x position of the button
+    button.setLayoutY(y); // Set the y position of the button
+    return button;
+  }
+
+  // Ranks the entry points on a background thread, like the GUI, and marks the best once known.
+  private void showHint(Button hintButton) {
+    Supplier<HintAdvisor.Advice> hint = myGame.hintLater();
+    hintButton.setDisable(true);
+    Task<Void> task =
+        new Task<>() {
+          @Override
+          protected Void call() {
+            int best = hint.get().bestEntry();
+            Platform.runLater(
+                () -> {
+                  if (!ended) {
+                    // A ray fired while the hint was computed may have used the entry up
+                    hintedEntry = best >= 0 && entryStates[best] == UNUSED ? best : -1;
+                    draw();
+                  }
+                  hintButton.setDisable(ended);
+                });
+            return null;
+          }
+        };
+    task.setOnFailed(
+        e -> {
+          EventLog.log(EventLog.Level.WARN, "Hint failed: " + task.getException());
+          hintButton.setDisable(ended);
+        });
+    Thread thread = new Thread(task, "hint");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  // Fires the entry point or toggles the guess under the mouse, then redraws once.
+  private void click(double x, double y) {
+    if (!started || ended) {
+      return;
+    }
+    int cell = layout.cellAt(x, y);
+    if (cell != Board.NO_CELL) {
+      toggleGuess(cell);
+    } else {
+      int entry = layout.entryAt(x, y);
+      if (entry < 0 || entryStates[entry] != UNUSED) {
+        return;
+      }
+      entryStates[entry] = FIRED; // The ray may leave through its own entry, marking it EXITED
+      if (entry == hintedEntry) {
+        hintedEntry = -1;
+      }
+      myGame.handleButtonClick(myGame.entryButton(entry));
+      myGame.raysShot++;
+      if (EventLog.isEnabled(EventLog.Level.DEBUG)) {
+        EventLog.log(EventLog.Level.DEBUG, "Rays shot: " + myGame.raysShot);
+      }
+    }
+    draw();
+  }
+
+  private void toggleGuess(int cell) {
+    String hex = board.key(cell);
+    if (guessed[cell]) {
+      guessed[cell] = false;
+      guesses.remove(hex);
+      myGame.guessToggled(hex, false);
+    } else if (guesses.size() < myGame.getAtomCount()) {
+      guessed[cell] = true;
+      guesses.put(hex, cell);
+      myGame.guessToggled(hex, true);
+    }
+    endGameButton.setDisable(guesses.size() < myGame.getAtomCount());
+  }
+
+  // Draws the whole scene onto the canvas.
+  private void draw() {
+    GraphicsContext g = canvas.getGraphicsContext2D();
+    g.setFill(Color.BLACK);
+    g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    double size = layout.getSize();
+    double[] xs = new double[6];
+    double[] ys = new double[6];
+    g.setFont(labelFont);
+    g.setLineWidth(1);
+    g.setLineDashes();
+    for (int cell = 0; cell < marks.length; cell++) {
+      layout.corners(cell, xs, ys);
+      if (marks[cell] != null) {
+        Color color = GUI.colorOf(marks[cell]);
+        g.setFill(Color.color(color.getRed(), color.getGreen(), color.getBlue(), 0.7));
+        g.fillPolygon(xs, ys, 6);
+      }
+      if (guessed[cell]) {
+        g.setFill(Color.color(1, 0.65, 0, 0.9));
+        g.fillPolygon(xs, ys, 6);
+      }
+      g.setStroke(Color.ORANGE);
+      g.strokePolygon(xs, ys, 6);
+      g.setFill(Color.WHITE);
+      g.fillText(String.valueOf(cell), layout.cellX(cell) - size / 2, layout.cellY(cell));
+    }
+    double markerRadius = size / 4;
+    for (int entry = 0; started && entry < entryStates.length; entry++) {
+      g.setFill(entryColor(entry));
+      g.fillOval(
+          layout.entryX(entry) - markerRadius,
+          layout.entryY(entry) - markerRadius,
+          2 * markerRadius,
+          2 * markerRadius);
+    }
+    if (cheatMode) {
+      g.setStroke(Color.CYAN);
+      g.setLineWidth(3);
+      for (int[] path : paths) {
+        double[] px = new double[path.length];
+        double[] py = new double[path.length];
+        for (int i = 0; i < path.length; i++) {
+          px[i] = layout.cellX(path[i]);
+          py[i] = layout.cellY(path[i]);
+        }
+        g.strokePolyline(px, py, path.length);
+      }
+    }
+    g.setStroke(Color.WHITE);
+    g.setLineWidth(2);
+    g.setLineDashes(5, 10);
+    double circleRadius = Math.sqrt(3) * size;
+    for (int cell = 0; cell < atoms.length; cell++) {
+      if (atoms[cell]) {
+        g.strokeOval(
+            layout.cellX(cell) - circleRadius + 1,
+            layout.cellY(cell) - circleRadius + 1,
+            2 * circleRadius - 2,
+            2 * circleRadius - 2);
+      }
+    }
+  }
+
+  private Color entryColor(int entry) {
+    if (entry == hintedEntry) {
+      return Color.LIME;
+    }
+    return switch (entryStates[entry]) {
+      case FIRED -> Color.YELLOW;
+      case EXITED -> Color.PURPLE;
+      default -> Color.ORANGE;
+    };
+  }
+
+  @Override
+  public void rayFired(RayResult result) {
+    int[] path = new int[result.pathLength()];
+    for (int i = 0; i < path.length; i++) {
+      path[i] = result.pathCell(i);
+    }
+    paths.add(path);
+  }
+
+  @Override
+  public void cellMarked(int cell, CellMark mark) {
+    marks[cell] = mark;
+  }
+
+  @Override
+  public void disableButtonAt(String hex, int degree) {
+    int entry = entries.indexOf(board.indexOf(hex), degree / 60);
+    entryStates[entry] = EXITED;
+    if (entry == hintedEntry) {
+      hintedEntry = -1;
+    }
+  }
+
+  @Override
+  public void atomRevealed(int cell) {
+    marks[cell] = CellMark.ATOM;
+    atoms[cell] = true;
+  }
+
+  @Override
+  public Map<String, Integer> getOrangeHexButtons() {
+    return guesses;
+  }
+}
@@ -0,0 +1,13 @@
+package org.blackbox;
+
+/** How a cell is marked on the board after a ray is fired or the atoms are revealed. */
+public enum CellMark {
+  ABSORBED, // Entry of a ray that hit an atom
+  REFLECTED_AT_ENTRY, // Entry of a ray sent straight back by atoms beside it
+  REFLECTED, // Entry of a ray sent back to it further in
+  DEFLECTED, // Entry and exit of a ray deflected once
+  DEFLECTED_REPEATEDLY, // Entry and exit of a ray deflected more than once
+  DOUBLE_HIT, // Entry and exit of a ray turned 120 degrees by two atoms at once
+  PASSED_THROUGH, // Entry and exit of a ray that touched no atom
+  ATOM // A revealed atom
+}
@@ -0,0 +1,74 @@
+package org.blackbox;
+
+/**
+ * The DeflectionRules class precomputes what a ray does in a cell for every heading and every
+ * combination of atoms around the cell. The neighbour mask holds bit d when the neighbour in
+ * direction d is an atom, as given by AtomField.neighborMask, so a ray step is a single array read.
+ *
+ * <p>An atom straight ahead absorbs the ray; a single atom ahead-left or ahead-right deflects it 60
+ * degrees away, unless the atom beside it on the same side is also there; any other combination of
+ * atoms touching the cell reflects it back the way it came.
+ */
+public final class DeflectionRules {
+  // Returned by step when the ray is absorbed
+  public static final int ABSORBED = -1;
+  // Set in a step when the ray changed heading
+  private static final int DEFLECTED = 8;
+
+  private static final byte[] STEPS = new byte[Board.DIRECTIONS << 6];
+
+  static {
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      for (int mask = 0; mask < 64; mask++) {
+        STEPS[(direction << 6) | mask] = (byte) compute(direction, mask);
+      }
+    }
+  }
+
+  private DeflectionRules() {}
+
+  /**
+   * Looks up what a ray does in a cell.
+   *
+   * @param direction the heading the ray entered the cell with
+   * @param mask the atoms around the cell, bit d set for an atom in direction d
+   * @return ABSORBED, or the new heading with the deflected flag
+   */
+  public static int step(int direction, int mask) {
+    return STEPS[(direction << 6) | mask];
+  }
+
+  // Returns the heading a non-absorbed step leaves the cell with.
+  public static int direction(int step) {
+    return step & 7;
+  }
+
+  // Returns true if a non-absorbed step changed the ray's heading.
+  public static boolean isDeflected(int step) {
+    return (step & DEFLECTED) != 0;
+  }
+
+  private static int compute(int direction, int mask) {
+    if (isSet(mask, direction)) {
+      return ABSORBED;
+    }
+    boolean left = isSet(mask, Board.rotate(direction, 1));
+    boolean right = isSet(mask, Board.rotate(direction, -1));
+    boolean sideLeft = isSet(mask, Board.rotate(direction, 2));
+    boolean sideRight = isSet(mask, Board.rotate(direction, -2));
+    if (left && !right && !sideLeft) {
+      return Board.rotate(direction, -1) | DEFLECTED;
+    }
+    if (right && !left && !sideRight) {
+      return Board.rotate(direction, 1) | DEFLECTED;
+    }
+    if (left || right || sideLeft || sideRight) {
+      return Board.reverse(direction) | DEFLECTED;
+    }
+    return direction;
+  }
+
+  private static boolean isSet(int mask, int direction) {
+    return (mask & (1 << direction)) != 0;
+  }
+}
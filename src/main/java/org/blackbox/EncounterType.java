@@ -0,0 +1,10 @@
+package org.blackbox;
+
+/** The outcome of a single ray fired into the board. */
+public enum EncounterType {
+  NO_ENCOUNTER, // Passed straight through without touching an atom's area of effect
+  DIRECT_HIT, // Absorbed by an atom
+  DEFLECTION, // Deflected one or more times before leaving the board
+  DOUBLE_HIT, // Deflected twice in the same direction, leaving at a 120 degree angle
+  REFLECTION // Sent back out of the entry point it was fired from
+}
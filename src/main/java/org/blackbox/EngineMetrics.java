@@ -0,0 +1,475 @@
+package org.blackbox;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The EngineMetrics class counts what the game engine does: rays by EncounterType, the
+ * distribution of ray path lengths, and latency and allocation per operation. Counts are kept in
+ * Recorders of plain arrays. Threads record into one of a fixed set of striped recorders, picked by
+ * thread id and locked while recording, so a server starting a virtual thread per request does not
+ * leave a recorder behind for each one. A single-threaded owner like a SelfPlaySession keeps its
+ * own recorder and records without locking; once the owner is garbage collected, its counts are
+ * folded into a shared total and the recorder dropped. Readers sum the recorders, which gives
+ * approximate totals while owners are still recording.
+ *
+ * <p>Recording is off until enable is called, and callers check isEnabled first, so a disabled
+ * engine pays one volatile read per operation. Latencies go into log-linear buckets in the style of
+ * HdrHistogram, eight per power of two, so percentiles are accurate to within 1/16 of their value.
+ * Only one traced ray in 64 is timed, which keeps the clock out of the Monte Carlo hot loop.
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+  /** The operations that are timed. */
+  public enum Operation {
+    TRACE, // One ray traced by a RayTracer, sampled
+    FIRE, // Game.handleButtonClick, including drawing the ray
+    ATOM_SELECTION, // Game.atomSelection
+    SCORE, // Game.scoreTracker
+    REQUEST // One GameServer request, from parsing it to sending the reply
+  }
+
+  public static final String OBJECT_NAME = "org.blackbox:type=EngineMetrics";
+  // One traced ray in SAMPLE_MASK + 1 is timed
+  private static final int SAMPLE_MASK = 63;
+  // Paths longer than this are counted in the last bucket
+  private static final int MAX_PATH = 127;
+  // Latencies below LINEAR nanoseconds get a bucket each, above it SUB_BUCKETS per power of two
+  private static final int LINEAR = 16;
+  private static final int SUB_BUCKETS = 8;
+  private static final int BUCKETS = LINEAR + (Long.SIZE - 4) * SUB_BUCKETS;
+  private static final EncounterType[] TYPES = EncounterType.values();
+  private static final Operation[] OPERATIONS = Operation.values();
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  // A power of two, so a thread id picks its stripe with a mask
+  private static final int STRIPES =
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) * 2;
+  private static final EngineMetrics GLOBAL = new EngineMetrics();
+
+  private static volatile boolean enabled;
+  private static boolean registered; // Guarded by the class
+
+  private final Recorder[] stripes = new Recorder[STRIPES]; // Each guarded by itself
+  private final Queue<Recorder> owned = new ConcurrentLinkedQueue<>(); // Of live owners
+  private final Recorder retired = new Recorder(); // Counts of collected owners, guarded by owned
+  private volatile Recorder baseline = new Recorder(); // Totals at the last reset
+  private volatile long baselineNanos = System.nanoTime();
+  private ScheduledExecutorService reporter; // Guarded by this
+
+  EngineMetrics() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Recorder();
+    }
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  // Returns the metrics the game and the simulators record into.
+  public static EngineMetrics global() {
+    return GLOBAL;
+  }
+
+  // Starts recording into the global metrics and registers them with the platform MBean server.
+  public static synchronized void enable() {
+    if (!registered) {
+      try {
+        ManagementFactory.getPlatformMBeanServer()
+            .registerMBean(GLOBAL, new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+        throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+      }
+      registered = true;
+    }
+    enabled = true;
+  }
+
+  public static void disable() {
+    enabled = false;
+  }
+
+  /**
+   * Returns the bytes allocated by the current thread so far, to pass to record later.
+   *
+   * @return the allocated bytes, or -1 if the JVM can not measure them
+   */
+  public static long allocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean threads
+        && threads.isThreadAllocatedMemoryEnabled()) {
+      return threads.getCurrentThreadAllocatedBytes();
+    }
+    return -1;
+  }
+
+  /**
+   * Traces a ray and records its outcome into the calling thread's stripe.
+   *
+   * @param tracer the tracer to trace with
+   * @param entryCell the cell the ray enters the board through
+   * @param entryDirection the direction the ray is travelling in
+   * @return the outcome packed as described by RayResult
+   */
+  public long trace(RayTracer tracer, int entryCell, int entryDirection) {
+    Recorder stripe = stripe();
+    synchronized (stripe) {
+      return stripe.trace(tracer, entryCell, entryDirection);
+    }
+  }
+
+  // Records a ray traced elsewhere.
+  public void recordRay(EncounterType type, int pathLength) {
+    Recorder stripe = stripe();
+    synchronized (stripe) {
+      stripe.record(type, pathLength);
+    }
+  }
+
+  /**
+   * Returns a new recorder for a single-threaded owner such as a SelfPlaySession to keep, saving
+   * the stripe lock on every ray. Only one thread may use it at a time, and its counts are kept
+   * after the owner is garbage collected.
+   *
+   * @param owner the object keeping the recorder
+   * @return a recorder whose counts are included in these metrics
+   */
+  public Recorder newRecorder(Object owner) {
+    Recorder recorder = new Recorder(owner);
+    synchronized (owned) {
+      retireCollected();
+      owned.add(recorder);
+    }
+    return recorder;
+  }
+
+  /**
+   * Records one call of an operation that started at the given time and allocation.
+   *
+   * @param operation the operation
+   * @param startedNanos the System.nanoTime the operation started at
+   * @param startedBytes allocatedBytes when the operation started, or -1 to skip allocation
+   */
+  public void record(Operation operation, long startedNanos, long startedBytes) {
+    long nanos = System.nanoTime() - startedNanos;
+    long bytes = startedBytes >= 0 ? allocatedBytes() - startedBytes : -1;
+    Recorder stripe = stripe();
+    int op = operation.ordinal();
+    synchronized (stripe) {
+      stripe.latencies[op][bucket(nanos)]++;
+      if (bytes >= 0) {
+        stripe.allocated[op] += bytes;
+        stripe.allocationSamples[op]++;
+      }
+    }
+  }
+
+  public long encounters(EncounterType type) {
+    return totals().encounters[type.ordinal()];
+  }
+
+  // Returns the number of recorded calls of an operation; traced rays count only when timed.
+  public long count(Operation operation) {
+    long count = 0;
+    for (long bucketCount : totals().latencies[operation.ordinal()]) {
+      count += bucketCount;
+    }
+    return count;
+  }
+
+  /**
+   * Returns a latency percentile of an operation.
+   *
+   * @param operation the operation
+   * @param percentile the percentile, from 0 to 100
+   * @return the latency in nanoseconds, or 0 if nothing was recorded
+   */
+  public long percentile(Operation operation, double percentile) {
+    return percentile(totals().latencies[operation.ordinal()], percentile);
+  }
+
+  // Returns the mean bytes allocated per call of an operation, or -1 if it was not measured.
+  public long allocatedPerCall(Operation operation) {
+    Recorder totals = totals();
+    long samples = totals.allocationSamples[operation.ordinal()];
+    return samples == 0 ? -1 : totals.allocated[operation.ordinal()] / samples;
+  }
+
+  @Override
+  public long getRays() {
+    return totals().rays();
+  }
+
+  @Override
+  public double getRaysPerSecond() {
+    double seconds = (System.nanoTime() - baselineNanos) / 1e9;
+    return seconds > 0 ? getRays() / seconds : 0;
+  }
+
+  @Override
+  public Map<String, Long> getEncounters() {
+    Recorder totals = totals();
+    Map<String, Long> encounters = new LinkedHashMap<>();
+    for (EncounterType type : TYPES) {
+      encounters.put(type.name(), totals.encounters[type.ordinal()]);
+    }
+    return encounters;
+  }
+
+  @Override
+  public double getMeanPathLength() {
+    Recorder totals = totals();
+    long rays = 0;
+    long cells = 0;
+    for (int length = 0; length <= MAX_PATH; length++) {
+      rays += totals.pathLengths[length];
+      cells += length * totals.pathLengths[length];
+    }
+    return rays == 0 ? 0 : (double) cells / rays;
+  }
+
+  @Override
+  public Map<String, String> getLatencyPercentiles() {
+    Recorder totals = totals();
+    Map<String, String> percentiles = new LinkedHashMap<>();
+    for (Operation operation : OPERATIONS) {
+      long[] latencies = totals.latencies[operation.ordinal()];
+      percentiles.put(
+          operation.name(),
+          String.format(
+              "p50=%d p90=%d p99=%d p99.9=%d",
+              percentile(latencies, 50),
+              percentile(latencies, 90),
+              percentile(latencies, 99),
+              percentile(latencies, 99.9)));
+    }
+    return percentiles;
+  }
+
+  @Override
+  public Map<String, Long> getAllocatedBytesPerOperation() {
+    Map<String, Long> allocated = new LinkedHashMap<>();
+    for (Operation operation : OPERATIONS) {
+      allocated.put(operation.name(), allocatedPerCall(operation));
+    }
+    return allocated;
+  }
+
+  @Override
+  public String getSnapshot() {
+    StringBuilder snapshot = new StringBuilder();
+    snapshot.append(String.format("rays=%d (%.0f/s) ", getRays(), getRaysPerSecond()));
+    snapshot.append(String.format("meanPath=%.2f ", getMeanPathLength()));
+    snapshot.append(getEncounters());
+    Map<String, Long> allocated = getAllocatedBytesPerOperation();
+    getLatencyPercentiles()
+        .forEach(
+            (operation, latency) ->
+                snapshot
+                    .append(String.format("%n  %-14s ", operation))
+                    .append(latency)
+                    .append(" ns, ")
+                    .append(allocated.get(operation))
+                    .append(" B/call"));
+    return snapshot.toString();
+  }
+
+  // Starts counting again from zero; recorders keep their totals and the difference is reported.
+  @Override
+  public void reset() {
+    baseline = sum();
+    baselineNanos = System.nanoTime();
+  }
+
+  /**
+   * Logs a snapshot at INFO level periodically on a daemon thread, replacing any earlier schedule.
+   *
+   * @param period the time between snapshots
+   */
+  public synchronized void startReporting(Duration period) {
+    stopReporting();
+    reporter =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "engine-metrics");
+              thread.setDaemon(true);
+              return thread;
+            });
+    reporter.scheduleAtFixedRate(
+        () -> EventLog.log(EventLog.Level.INFO, getSnapshot()),
+        period.toNanos(),
+        period.toNanos(),
+        TimeUnit.NANOSECONDS);
+  }
+
+  public synchronized void stopReporting() {
+    if (reporter != null) {
+      reporter.shutdownNow();
+      reporter = null;
+    }
+  }
+
+  // Returns the number of recorders held for owners, live ones and any not yet found collected.
+  int ownedRecorders() {
+    return owned.size();
+  }
+
+  private Recorder stripe() {
+    long id = Thread.currentThread().getId();
+    // Virtual thread ids are handed out in sequence, so spread them over the stripes
+    return stripes[(int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & (STRIPES - 1)];
+  }
+
+  // Folds the counts of recorders whose owners were collected into retired. Called holding owned.
+  private void retireCollected() {
+    for (Iterator<Recorder> it = owned.iterator(); it.hasNext(); ) {
+      Recorder recorder = it.next();
+      if (recorder.owner.get() == null) {
+        retired.add(recorder, 1);
+        it.remove();
+      }
+    }
+  }
+
+  private Recorder sum() {
+    Recorder sum = new Recorder();
+    for (Recorder stripe : stripes) {
+      synchronized (stripe) {
+        sum.add(stripe, 1);
+      }
+    }
+    synchronized (owned) {
+      retireCollected();
+      sum.add(retired, 1);
+      for (Recorder recorder : owned) {
+        sum.add(recorder, 1);
+      }
+    }
+    return sum;
+  }
+
+  private Recorder totals() {
+    Recorder totals = sum();
+    totals.add(baseline, -1);
+    return totals;
+  }
+
+  // Returns the bucket of a latency: exact below LINEAR, then SUB_BUCKETS per power of two.
+  static int bucket(long nanos) {
+    if (nanos < LINEAR) {
+      return (int) Math.max(nanos, 0);
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    int sub = (int) (nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+    return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+  }
+
+  // Returns the middle of the latencies falling into a bucket.
+  static long bucketValue(int bucket) {
+    if (bucket < LINEAR) {
+      return bucket;
+    }
+    int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+    int sub = (bucket - LINEAR) % SUB_BUCKETS;
+    long width = 1L << (exponent - 3);
+    return (SUB_BUCKETS + sub) * width + width / 2;
+  }
+
+  private static long percentile(long[] latencies, double percentile) {
+    long count = 0;
+    for (long bucketCount : latencies) {
+      count += bucketCount;
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < latencies.length; bucket++) {
+      seen += latencies[bucket];
+      if (seen >= rank) {
+        return bucketValue(bucket);
+      }
+    }
+    return bucketValue(latencies.length - 1);
+  }
+
+  /** The counters of a stripe of threads or of a single-threaded owner. */
+  public static final class Recorder {
+    private final WeakReference<Object> owner; // Cleared once the owner is collected
+    private final long[] encounters = new long[TYPES.length];
+    private final long[] pathLengths = new long[MAX_PATH + 1];
+    private final long[][] latencies = new long[OPERATIONS.length][BUCKETS];
+    private final long[] allocated = new long[OPERATIONS.length];
+    private final long[] allocationSamples = new long[OPERATIONS.length];
+    private int clock; // Rays traced, for sampling
+
+    private Recorder() {
+      this(null);
+    }
+
+    private Recorder(Object owner) {
+      this.owner = new WeakReference<>(owner);
+    }
+
+    /**
+     * Traces a ray and records its outcome, timing one ray in 64.
+     *
+     * @param tracer the tracer to trace with
+     * @param entryCell the cell the ray enters the board through
+     * @param entryDirection the direction the ray is travelling in
+     * @return the outcome packed as described by RayResult
+     */
+    public long trace(RayTracer tracer, int entryCell, int entryDirection) {
+      long packed;
+      if ((++clock & SAMPLE_MASK) == 0) {
+        long started = System.nanoTime();
+        packed = tracer.trace(entryCell, entryDirection);
+        latencies[Operation.TRACE.ordinal()][bucket(System.nanoTime() - started)]++;
+      } else {
+        packed = tracer.trace(entryCell, entryDirection);
+      }
+      record(RayResult.type(packed), tracer.pathLength());
+      return packed;
+    }
+
+    private void record(EncounterType type, int pathLength) {
+      encounters[type.ordinal()]++;
+      pathLengths[Math.min(pathLength, MAX_PATH)]++;
+    }
+
+    private long rays() {
+      long rays = 0;
+      for (long count : encounters) {
+        rays += count;
+      }
+      return rays;
+    }
+
+    private void add(Recorder other, int sign) {
+      addTo(encounters, other.encounters, sign);
+      addTo(pathLengths, other.pathLengths, sign);
+      for (int op = 0; op < latencies.length; op++) {
+        addTo(latencies[op], other.latencies[op], sign);
+      }
+      addTo(allocated, other.allocated, sign);
+      addTo(allocationSamples, other.allocationSamples, sign);
+    }
+
+    private static void addTo(long[] target, long[] source, int sign) {
+      for (int i = 0; i < target.length; i++) {
+        target[i] += sign * source[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package org.blackbox;
+
+import java.util.Map;
+
+/** The management interface of EngineMetrics, registered as org.blackbox:type=EngineMetrics. */
+public interface EngineMetricsMXBean {
+
+  long getRays();
+
+  double getRaysPerSecond();
+
+  // Returns the number of rays of each EncounterType, keyed by its name.
+  Map<String, Long> getEncounters();
+
+  double getMeanPathLength();
+
+  // Returns the 50th, 90th, 99th and 99.9th percentile latency in nanoseconds, keyed by operation.
+  Map<String, String> getLatencyPercentiles();
+
+  // Returns the mean bytes allocated per call, keyed by operation, or -1 where not measured.
+  Map<String, Long> getAllocatedBytesPerOperation();
+
+  String getSnapshot();
+
+  void reset();
+}
@@ -0,0 +1,165 @@
+package org.blackbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The EntryCatalog class numbers every entry point of a Board densely from 0. An entry point is a
+ * cell on the edge of the board together with a direction that fires into the board from outside
+ * it. Entry points depend only on the board radius, so one immutable catalog per radius is shared
+ * by everything that needs them: every Game, the GUI's entry point buttons, the solver and the
+ * server. The catalog also holds the ButtonData of each entry, so the GUI's buttons map to entries
+ * with a hash lookup, and the order in which the entries go round the board.
+ */
+public final class EntryCatalog {
+  private static final Map<Integer, EntryCatalog> CATALOGS = new ConcurrentHashMap<>();
+
+  private final Board board;
+  private final int[] cells;
+  private final int[] directions;
+  private final int[] index; // cell * 6 + direction -> entry, or -1
+  private final ButtonData[] buttons;
+  private final Map<ButtonData, Integer> buttonIndex;
+  private final int[] perimeter; // Entries in order round the board
+  // Degrees of the entry point buttons of each edge cell, by "x,y,z" key
+  private final Map<String, List<Integer>> degreesByHex;
+
+  private EntryCatalog(Board board) {
+    this.board = board;
+    index = new int[board.getCellCount() * Board.DIRECTIONS];
+    Arrays.fill(index, -1);
+    int[] entryCells = new int[index.length];
+    int[] entryDirections = new int[index.length];
+    int count = 0;
+    for (int cell = 0; cell < board.getCellCount(); cell++) {
+      for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+        // A ray can enter here if the cell it would have come from is off the board
+        if (board.neighbor(cell, Board.reverse(direction)) == Board.NO_CELL) {
+          index[cell * Board.DIRECTIONS + direction] = count;
+          entryCells[count] = cell;
+          entryDirections[count] = direction;
+          count++;
+        }
+      }
+    }
+    cells = Arrays.copyOf(entryCells, count);
+    directions = Arrays.copyOf(entryDirections, count);
+    buttons = new ButtonData[count];
+    buttonIndex = new HashMap<>();
+    Map<String, List<Integer>> degrees = new LinkedHashMap<>();
+    for (int entry = 0; entry < count; entry++) {
+      String hex = board.key(cells[entry]);
+      buttons[entry] = new ButtonData(hex, degree(entry));
+      buttonIndex.put(buttons[entry], entry);
+      degrees.computeIfAbsent(hex, key -> new ArrayList<>()).add(degree(entry));
+    }
+    degrees.replaceAll((hex, list) -> List.copyOf(list));
+    degreesByHex = Collections.unmodifiableMap(degrees);
+    perimeter = walkPerimeter(board, count);
+  }
+
+  // Lists the entries in order round the board: the edge cells are walked side by side from a
+  // corner, and the entries of each cell are taken in the same rotational order.
+  private int[] walkPerimeter(Board board, int count) {
+    int radius = board.getRadius();
+    if (radius == 0) {
+      int[] order = new int[count];
+      Arrays.setAll(order, entry -> entry);
+      return order;
+    }
+    int[] order = new int[count];
+    int next = 0;
+    int cell = board.indexOf(radius * Board.dx(4), radius * Board.dy(4));
+    for (int side = 0; side < Board.DIRECTIONS; side++) {
+      for (int step = 0; step < radius; step++) {
+        // The cells of a side face outwards in the side's direction plus four and five, and the
+        // corner it starts from in its direction plus three as well
+        for (int turn = 3; turn < 6; turn++) {
+          int outwards = Board.rotate(side, turn);
+          int entry = indexOf(cell, Board.reverse(outwards));
+          if (entry >= 0) {
+            order[next++] = entry;
+          }
+        }
+        cell = board.neighbor(cell, side);
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Returns the shared catalog for the given board, building it on first use.
+   *
+   * @param board the board
+   * @return the entry catalog of the board
+   */
+  public static EntryCatalog of(Board board) {
+    return CATALOGS.computeIfAbsent(board.getRadius(), radius -> new EntryCatalog(board));
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  // Returns the number of entry points on the board.
+  public int size() {
+    return cells.length;
+  }
+
+  public int cell(int entry) {
+    return cells[entry];
+  }
+
+  public int direction(int entry) {
+    return directions[entry];
+  }
+
+  // Returns the degree of the entry point button that fires the entry.
+  public int degree(int entry) {
+    return directions[entry] * 60;
+  }
+
+  // Returns the entry firing from the cell in the direction, or -1 if that is not an entry point.
+  public int indexOf(int cell, int direction) {
+    return index[cell * Board.DIRECTIONS + direction];
+  }
+
+  // Returns the entry of an entry point button, or -1 if the button is not an entry point.
+  public int indexOf(ButtonData button) {
+    Integer entry = buttonIndex.get(button);
+    return entry != null ? entry : -1;
+  }
+
+  // Returns the entry point button that fires the entry, shared by every game on the board.
+  public ButtonData button(int entry) {
+    return buttons[entry];
+  }
+
+  // Returns the entry at a position in order round the board, starting from a corner.
+  public int perimeterEntry(int position) {
+    return perimeter[position];
+  }
+
+  // Returns the degrees of the entry point buttons of every edge cell, by "x,y,z" key.
+  public Map<String, List<Integer>> getDegreesByHex() {
+    return degreesByHex;
+  }
+
+  /**
+   * Returns the entry point a ray leaves the board through, i.e. the entry that fires back along
+   * the ray's exit path.
+   *
+   * @param exitCell the last cell of the ray on the board
+   * @param exitDirection the direction the ray was travelling when it left
+   * @return the entry at the exit
+   */
+  public int exitEntry(int exitCell, int exitDirection) {
+    return indexOf(exitCell, Board.reverse(exitDirection));
+  }
+}
@@ -0,0 +1,90 @@
+package org.blackbox;
+
+import java.io.PrintStream;
+
+/**
+ * The EventLog class gates diagnostic output by level. Callers check isEnabled before building a
+ * message, so a disabled level costs a single field read and no string building:
+ *
+ * <pre>
+ *   if (EventLog.isEnabled(EventLog.Level.DEBUG)) {
+ *     EventLog.log(EventLog.Level.DEBUG, "Ray from " + buttonData + ": " + type);
+ *   }
+ * </pre>
+ *
+ * <p>Rays fired in the game can also be captured into a RayCapture ring buffer for debugging,
+ * independently of the level.
+ */
+public final class EventLog {
+  /** How much is logged, from nothing to every button built. */
+  public enum Level {
+    OFF,
+    WARN, // Failures the program recovers from
+    INFO, // Hints and servers starting
+    DEBUG, // Every ray fired, every atom placed and every game scored
+    TRACE // Every entry point and button built
+  }
+
+  // Read on every check, so a plain int keeps the disabled path to one comparison
+  private static volatile int threshold = Level.INFO.ordinal();
+  private static volatile PrintStream out = System.out;
+  private static volatile RayCapture capture;
+
+  private EventLog() {}
+
+  public static boolean isEnabled(Level level) {
+    return level.ordinal() <= threshold;
+  }
+
+  /**
+   * Prints a message if its level is enabled. Callers should check isEnabled first when building
+   * the message costs anything.
+   *
+   * @param level the level of the message
+   * @param message the message
+   */
+  public static void log(Level level, String message) {
+    if (level != Level.OFF && isEnabled(level)) {
+      out.println(message);
+    }
+  }
+
+  public static void setLevel(Level level) {
+    threshold = level.ordinal();
+  }
+
+  /**
+   * Sets the level from its name, ignoring case.
+   *
+   * @param name the name of a Level
+   */
+  public static void setLevel(String name) {
+    try {
+      setLevel(Level.valueOf(name.toUpperCase()));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown log level: " + name, e);
+    }
+  }
+
+  public static Level getLevel() {
+    return Level.values()[threshold];
+  }
+
+  public static void setOutput(PrintStream stream) {
+    out = stream;
+  }
+
+  /**
+   * Starts capturing the rays fired in the game into a ring buffer, replacing any earlier capture.
+   *
+   * @param capacity the number of most recent rays to keep, or 0 to stop capturing
+   */
+  public static void captureRays(int capacity) {
+    capture = capacity > 0 ? new RayCapture(capacity) : null;
+  }
+
+  // Returns the ray capture, or null when rays are not being captured.
+  public static RayCapture rayCapture() {
+    return capture;
+  }
+}
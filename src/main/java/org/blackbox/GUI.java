@@ -1,11 +1,17 @@
 package org.blackbox;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -14,6 +20,8 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.StrokeType;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
@@ -23,35 +31,152 @@ import javafx.stage.Stage;
  * GUI class that extends the Application class from JavaFX. This class is responsible for creating
  * and managing the graphical user interface of the application.
  */
-public class GUI extends Application {
+public class GUI extends Application implements GameView {
   // Constants for the GUI
-  public static final int HIGHEST_COORDINATE =
-      4; // Highest coordinate value which also sets the over-all size of the grid
+  // Default highest coordinate value which also sets the over-all size of the grid
+  public static final int HIGHEST_COORDINATE = Game.DEFAULT_RADIUS;
   public static final float GUI_SIZE = 1000;
-  private static final double HEX_SIZE = 55; // Size of the individual hexagon
-  private static final double HEX_HEIGHT =
-      Math.sqrt(3) * HEX_SIZE; // Height of the individual hexagon
+  static final double MAX_HEX_SIZE = 55; // Size of the hexagons on the standard board
+  // Board size, set before the GUI is launched
+  private static int radius = HIGHEST_COORDINATE;
+  private static int atomCount = Game.DEFAULT_ATOM_COUNT;
+  private static PuzzlePool puzzlePool; // Unique-solution layouts, or null for random ones
+  private static Long seed; // Seed of the layouts, or null for unseeded ones
+  private static ActionJournal journal; // Records the game's actions, or null
+  private static Path saveFile; // The game is resumed from and saved to it, or null
+  private static double hexSize = MAX_HEX_SIZE; // Size of the individual hexagon
+  private static double hexHeight = Math.sqrt(3) * hexSize; // Height of the individual hexagon
+  private static Geometry geometry; // Built on first use for the board size, as it needs JavaFX
   // Instance variables for the GUI
   static final Pane root = new Pane(); // Pane to hold the hexagons
   static Pane polylinePane;
+  // Position in root below every button, where circles and the cheat mode pane are inserted
+  private static int overlayIndex = 0;
   private static int counter = 0;
   private static HexagonManager hexManager;
   // Method to generate the hexagonal grid
   public final Map<String, Integer> gridLocationMap = new HashMap<>();
-  final Game myGame = new Game(hexManager, this);
+  final Game myGame = new Game(hexManager, this, radius, atomCount);
+  // Hexes guessed to hold atoms, with their hexagon number, kept as the guesses are toggled
   final Map<String, Integer> orangeHexButtons = new HashMap<>();
+  // Entry point buttons by hex and degree, and hexagon buttons by board cell
+  private final Map<ButtonData, Button> entryButtons = new HashMap<>();
+  private final Button[] hexButtons = new Button[myGame.getBoard().getCellCount()];
+  private Button endGameButton;
   public boolean cheatMode = false;
   public boolean atomsRevealed = false;
   private Button tutorialButton;
   private int guessedAtoms = 0;
+  private Button hintedButton; // Entry point button highlighted by the last hint
+  private boolean gameStarted;
+  private boolean gameEnded; // Hints computed after this are dropped
 
   // Getter methods for the GUI
   public static double getHexHeight() { // Used for drawing onto individual hexes
-    return HEX_HEIGHT;
+    return hexHeight;
   }
 
   public static double getHexSize() { // Used for drawing onto individual hexes
-    return HEX_SIZE;
+    return hexSize;
+  }
+
+  public static int getRadius() {
+    return radius;
+  }
+
+  public static int getAtomCount() {
+    return atomCount;
+  }
+
+  /**
+   * Sets the board radius and number of atoms used by the next GUI to be launched. Hexagons are
+   * shrunk from their standard size when needed so that the whole board fits in the window.
+   *
+   * @param radius the highest coordinate value on the board
+   * @param atomCount the number of atoms hidden on the board
+   */
+  public static void setBoardSize(int radius, int atomCount) {
+    if (radius < 1) {
+      throw new IllegalArgumentException("Radius must be positive: " + radius);
+    }
+    if (atomCount < 1 || atomCount > Board.of(radius).getCellCount()) {
+      throw new IllegalArgumentException("Invalid number of atoms: " + atomCount);
+    }
+    GUI.radius = radius;
+    GUI.atomCount = atomCount;
+    hexSize = Math.min(MAX_HEX_SIZE, GUI_SIZE * 0.86 / (Math.sqrt(3) * (2 * radius + 1)));
+    hexHeight = Math.sqrt(3) * hexSize;
+    geometry = null;
+  }
+
+  /**
+   * The shapes, fonts and positions shared by the nodes of a board, so that building the grid and
+   * drawing rays do no trigonometry and create no duplicate shapes or fonts.
+   */
+  private static final class Geometry {
+    final HexLayout layout; // Cell centres and hexagon corners
+    final Polygon buttonShape = new Polygon(); // Shape of every hexagon button
+    final Font labelFont; // Font of every hexagon number
+    // Position of each entry point button, by entry of the board's EntryCatalog
+    final double[] entryButtonX;
+    final double[] entryButtonY;
+
+    Geometry(Board board) {
+      layout = new HexLayout(board, hexSize, GUI_SIZE / 2, GUI_SIZE / 2);
+      for (int i = 0; i < 6; i++) {
+        double angle = 2.0 * Math.PI / 6 * i;
+        buttonShape.getPoints().addAll(hexSize * Math.cos(angle), hexSize * Math.sin(angle));
+      }
+      labelFont = Font.font("Verdana", FontWeight.BOLD, 20 * hexSize / MAX_HEX_SIZE);
+      EntryCatalog entries = EntryCatalog.of(board);
+      entryButtonX = new double[entries.size()];
+      entryButtonY = new double[entries.size()];
+      for (int entry = 0; entry < entries.size(); entry++) {
+        int cell = entries.cell(entry);
+        double[] position =
+            calculateButtonPosition(entries.degree(entry), board.x(cell), board.y(cell));
+        entryButtonX[entry] = position[0];
+        entryButtonY[entry] = position[1];
+      }
+    }
+  }
+
+  private static Geometry geometry() {
+    if (geometry == null) {
+      geometry = new Geometry(Board.of(radius));
+    }
+    return geometry;
+  }
+
+  // Makes the next GUI to be launched take its atom layouts from the given pool.
+  public static void setPuzzlePool(PuzzlePool puzzlePool) {
+    GUI.puzzlePool = puzzlePool;
+  }
+
+  // Makes the next GUI to be launched deal the same layouts for the same seed.
+  public static void setSeed(long seed) {
+    GUI.seed = seed;
+  }
+
+  // Makes the next GUI to be launched record its actions in the journal.
+  public static void setJournal(ActionJournal journal) {
+    GUI.journal = journal;
+  }
+
+  // Makes the next GUI to be launched resume the game saved in the file, and save its game there.
+  public static void setSaveFile(Path saveFile) {
+    GUI.saveFile = saveFile;
+  }
+
+  // Applies the puzzle pool, seed and journal set before launch to a new game.
+  static void configure(Game game) {
+    game.usePuzzles(puzzlePool);
+    if (seed != null) {
+      game.setSeed(seed);
+    }
+    if (journal != null) {
+      game.setJournal(journal, System.currentTimeMillis()); // Tells runs apart in one journal
+    }
   }
 
   // Method to add a circle to the root pane
@@ -59,7 +184,12 @@ public class GUI extends Application {
     if (circle == null) {
       throw new NullPointerException("Circle cannot be null");
     }
-    root.getChildren().add(circle);
+    addOverlay(circle);
+  }
+
+  // Inserts a node above the hexagons but below the buttons, so the buttons stay clickable.
+  private static void addOverlay(Node node) {
+    root.getChildren().add(Math.min(overlayIndex++, root.getChildren().size()), node);
   }
 
   // Main method to launch the application
@@ -87,33 +217,16 @@ public class GUI extends Application {
         .collect(Collectors.toList());
   }
 
-  public static void updateButtons() {
-    List<Button> buttonsToModify = new ArrayList<>();
-
-    for (Node node : root.getChildren()) {
-      if (node instanceof Button button) {
-        buttonsToModify.add(button);
-      }
-    }
-
-    for (Button button : buttonsToModify) {
-      button.toFront();
-      if (button.getShape() instanceof Polygon) {
-        button.setDisable(false);
-      }
-    }
-  }
-
   // Method to create a hexagon at a given position
   Hexagon createHexagon(int x, int y, int z, double posX, double posY) {
     Hexagon hexagon = new Hexagon();
+    HexLayout layout = geometry().layout;
+    Double[] corners = new Double[12];
     for (int i = 0; i < 6; i++) {
-      hexagon
-          .getPoints()
-          .addAll(
-              posX + HEX_SIZE * Math.cos((i * Math.PI / 3) + Math.PI / 6),
-              posY + HEX_SIZE * Math.sin((i * Math.PI / 3) + Math.PI / 6));
+      corners[2 * i] = posX + layout.cornerX(i);
+      corners[2 * i + 1] = posY + layout.cornerY(i);
     }
+    hexagon.getPoints().addAll(corners);
     hexagon.setFill(Color.TRANSPARENT);
     hexagon.setStroke(Color.ORANGE);
     hexManager.addHexagon(x, y, z, hexagon);
@@ -121,71 +234,75 @@ public class GUI extends Application {
   }
 
   private void generateGrid() {
-    double centerX = GUI.root.getWidth() / 2;
-    double centerY = GUI.root.getHeight() / 2;
+    HexLayout layout = geometry().layout;
+    // The grid goes into the scene in two batches, the buttons above everything else
+    List<Node> gridNodes = new ArrayList<>();
+    List<Button> buttons = new ArrayList<>();
 
-    for (int x = -HIGHEST_COORDINATE; x <= HIGHEST_COORDINATE; x++) {
-      for (int y = Math.max(-HIGHEST_COORDINATE, -x - HIGHEST_COORDINATE);
-          y <= Math.min(HIGHEST_COORDINATE, -x + HIGHEST_COORDINATE);
-          y++) {
+    for (int x = -radius; x <= radius; x++) {
+      for (int y = Math.max(-radius, -x - radius); y <= Math.min(radius, -x + radius); y++) {
         int z = -x - y;
-        double posX = HEX_HEIGHT * (x + y / 2.0) + centerX;
-        double posY = 1.5 * HEX_SIZE * y + centerY;
+        double posX = layout.x(x, y);
+        double posY = layout.y(x, y);
         Hexagon hex = createHexagon(x, y, z, posX, posY);
-        GUI.root.getChildren().add(hex);
+        gridNodes.add(hex);
 
         Button hexButton = createHexButton(posX, posY, x, y, z);
         hexButton.setVisible(false); // Hide the button initially
-        GUI.root.getChildren().add(hexButton);
+        buttons.add(hexButton);
 
         // Used to print out the grid locations on the hexagons
         // Create a new Text object for the grid location
         Text gridLocation = new Text(posX, posY, String.valueOf(counter++));
-        gridLocation.setFont(
-            Font.font("Verdana", FontWeight.BOLD, 20)); // Set the font name, style, and size
+        gridLocation.setFont(geometry().labelFont); // Shared by every label
         gridLocation.setStyle("-fx-fill: white;");
-        gridLocation.setX(posX - HEX_SIZE / 2); // Adjust the x position
+        gridLocation.setX(posX - hexSize / 2); // Adjust the x position
         gridLocation.setY(posY); // Adjust the y position
 
-        GUI.root.getChildren().add(gridLocation);
+        gridNodes.add(gridLocation);
         String coordinateKey = x + "," + y + "," + z;
         gridLocationMap.put(coordinateKey, counter);
       }
     }
+    root.getChildren().addAll(gridNodes);
+    overlayIndex = root.getChildren().size();
+    root.getChildren().addAll(buttons);
   }
 
   Button createHexButton(double posX, double posY, int x, int y, int z) {
-    Polygon hexagon = new Polygon();
-    for (int i = 0; i < 6; i++) {
-      double angle = 2.0 * Math.PI / 6 * i;
-      double hexX = HEX_SIZE * Math.cos(angle);
-      double hexY = HEX_SIZE * Math.sin(angle);
-      hexagon.getPoints().addAll(hexX, hexY);
-    }
     String hex = x + "," + y + "," + z;
     Button hexButton = new Button();
-    hexButton.setUserData(new HexagonButtonData(hex, counter));
+    HexagonButtonData data = new HexagonButtonData(hex, counter);
+    hexButton.setUserData(data);
     hexButton.setLayoutX(posX); // Set the x position of the button
     hexButton.setLayoutY(posY); // Set the y position of the button
-    hexButton.setShape(hexagon); // Set the shape of the button to a hexagon
+    hexButton.setShape(geometry().buttonShape); // Set the shape of the button to a hexagon
     hexButton.setOpacity(0.9); // Make the button transparent
     hexButton.setOnAction(
         e -> {
           if (hexButton.getStyle().equals("-fx-background-color: orange;")) {
             guessedAtoms--;
             hexButton.setStyle(""); // Reset the style to default when the button is not clicked
-          } else if (guessedAtoms < 6) {
+            orangeHexButtons.remove(hex);
+            myGame.guessToggled(hex, false);
+          } else if (guessedAtoms < atomCount) {
             guessedAtoms++;
             hexButton.setStyle(
                 "-fx-background-color: orange;"); // Set the style to red when the button is clicked
+            orangeHexButtons.put(hex, data.number());
+            myGame.guessToggled(hex, true);
           }
           updateGuessedAtoms(guessedAtoms);
         });
+    int cell = myGame.getBoard().indexOf(hex);
+    if (cell != Board.NO_CELL) {
+      hexButtons[cell] = hexButton;
+    }
     return hexButton;
   }
 
   // Position Calculator - could be reformatted later with better logic
-  private double[] positionCalculator(int degree, int x, int y) {
+  private static double[] positionCalculator(int degree, int x, int y) {
     double posX = GUI.getHexHeight() * (x + y / 2.0) + (GUI.GUI_SIZE / 2);
     double posY = 1.5 * GUI.getHexSize() * y + (GUI.GUI_SIZE / 2);
     double offset;
@@ -229,13 +346,12 @@ public class GUI extends Application {
   void isAtomRevealed() {
     if (!atomsRevealed) {
       myGame.atomReveal();
-      updateButtons();
     }
     atomsRevealed = true;
   }
 
   // Calculates Button Positions using the calculated values from the positionCalculator
-  private double[] calculateButtonPosition(int degree, int x, int y) {
+  private static double[] calculateButtonPosition(int degree, int x, int y) {
     double[] calculatedValues = positionCalculator(degree, x, y);
     double offset = calculatedValues[0];
     double posX = calculatedValues[1];
@@ -249,22 +365,18 @@ public class GUI extends Application {
   }
 
   private void createAllEntryPointButtons(Game myGame) {
-    // Create a button for each entry point
-    for (Map.Entry<String, List<Integer>> entry : myGame.getEntryPointsMap().entrySet()) {
-      String hex = entry.getKey();
-      String[] coordinates = entry.getKey().split(",");
-      int x = Integer.parseInt(coordinates[0]);
-      int y = Integer.parseInt(coordinates[1]);
-
-      for (Integer degree : entry.getValue()) {
-        // Calculate the position of the button
-        double[] position = calculateButtonPosition(degree, x, y);
-        Button entryPointButton = createButtonWithAction(degree, position[0], position[1], hex);
-
-        // Add the button to the root pane
-        root.getChildren().add(entryPointButton);
-      }
+    // Create a button for each entry point round the board, adding them to the scene at once
+    List<Button> buttons = new ArrayList<>();
+    Geometry geometry = geometry();
+    EntryCatalog entries = EntryCatalog.of(myGame.getBoard());
+    for (int position = 0; position < entries.size(); position++) {
+      int entry = entries.perimeterEntry(position);
+      ButtonData data = entries.button(entry);
+      double posX = geometry.entryButtonX[entry];
+      double posY = geometry.entryButtonY[entry];
+      buttons.add(createButtonWithAction(data.degree(), posX, posY, data.hex()));
     }
+    root.getChildren().addAll(buttons);
   }
 
   Button createButtonWithAction(Integer degree, double posX, double posY, String hex) {
@@ -274,8 +386,12 @@ public class GUI extends Application {
     entryPointButton.setMinWidth(1); // Set the width of the button
     entryPointButton.setMinHeight(30); // Set the height of the button
     entryPointButton.setRotate(degree); // Rotate the button
-    System.out.println("HEX = " + hex);
-    entryPointButton.setUserData(new ButtonData(hex, degree));
+    if (EventLog.isEnabled(EventLog.Level.TRACE)) {
+      EventLog.log(EventLog.Level.TRACE, "HEX = " + hex);
+    }
+    ButtonData data = new ButtonData(hex, degree);
+    entryPointButton.setUserData(data);
+    entryButtons.put(data, entryPointButton);
 
     entryPointButton.setStyle("-fx-background-color: orange;");
     entryPointButton.setOnAction(
@@ -284,28 +400,134 @@ public class GUI extends Application {
           entryPointButton.setStyle("-fx-background-color: yellow;");
           myGame.handleButtonClick(buttonData);
           myGame.raysShot++;
-          System.out.println("Rays shot: " + myGame.raysShot);
+          if (EventLog.isEnabled(EventLog.Level.DEBUG)) {
+            EventLog.log(EventLog.Level.DEBUG, "Rays shot: " + myGame.raysShot);
+          }
           entryPointButton.setDisable(true);
         });
 
     return entryPointButton;
   }
 
-  public void disableButtonAt(String hex, int degree) {
-    for (Node node : root.getChildren()) {
-      if (node instanceof Button button) {
-        Object userData = button.getUserData();
-        if (userData instanceof ButtonData buttonData) {
-          if (buttonData.hex().equals(hex) && buttonData.degree() == degree) {
-            button.setDisable(true);
-            button.setStyle("-fx-background-color: purple;");
-          }
-        } else if (userData instanceof HexagonButtonData hexButtonData) {
-          if (hexButtonData.hex().equals(hex)) {
-            button.setDisable(true);
+  // Ranks the entry points on a background thread, so the window keeps responding, and highlights
+  // the best once it is known. The hint button stays disabled until then, and is given back
+  // whether the hint succeeds or fails, unless the game has ended meanwhile.
+  private void showHint(Button hintButton) {
+    Supplier<HintAdvisor.Advice> hint = myGame.hintLater();
+    hintButton.setDisable(true);
+    Task<Void> task =
+        new Task<>() {
+          @Override
+          protected Void call() {
+            HintAdvisor.Advice advice = hint.get();
+            Platform.runLater(
+                () -> {
+                  if (!gameEnded) {
+                    showHint(advice);
+                  }
+                  hintButton.setDisable(gameEnded);
+                });
+            return null;
           }
-        }
-      }
+        };
+    task.setOnFailed(
+        e -> {
+          EventLog.log(EventLog.Level.WARN, "Hint failed: " + task.getException());
+          hintButton.setDisable(gameEnded);
+        });
+    Thread thread = new Thread(task, "hint");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  // Highlights the entry point the hint advisor expects to reveal the most.
+  private void showHint(HintAdvisor.Advice advice) {
+    if (hintedButton != null && !hintedButton.isDisabled()) {
+      hintedButton.setStyle("-fx-background-color: orange;");
+    }
+    hintedButton = null;
+    if (advice.bestEntry() < 0) {
+      return;
+    }
+    ButtonData best = myGame.entryButton(advice.bestEntry());
+    hintedButton = entryButtons.get(best);
+    // A ray fired while the hint was computed may have used the entry up
+    if (hintedButton != null && !hintedButton.isDisabled()) {
+      hintedButton.setStyle("-fx-background-color: lime;");
+    }
+    if (EventLog.isEnabled(EventLog.Level.INFO)) {
+      EventLog.log(
+          EventLog.Level.INFO,
+          String.format(
+              "Hint: fire from %s at %d degrees (%.2f bits, %s%d layouts left)",
+              best.hex(),
+              best.degree(),
+              advice.ranking().get(0).expectedGain(),
+              advice.exact() ? "" : "about ",
+              advice.layouts()));
+    }
+  }
+
+  // Draws the path of a ray onto the cheat mode pane.
+  @Override
+  public void rayFired(RayResult result) {
+    HexLayout layout = geometry().layout;
+    Polyline polyline = new Polyline();
+    polyline.setStrokeWidth(3);
+    polyline.setStroke(Color.CYAN);
+    for (int i = 0; i < result.pathLength(); i++) {
+      int cell = result.pathCell(i);
+      // Add the hexagon's center to the Polyline
+      polyline.getPoints().addAll(layout.cellX(cell), layout.cellY(cell));
+    }
+    polylinePane.getChildren().add(polyline);
+  }
+
+  @Override
+  public void cellMarked(int cell, CellMark mark) {
+    hexManager.alterHexagon(cell, colorOf(mark));
+  }
+
+  // Colours an atom's hexagon red and circles its area of effect with a dotted line.
+  @Override
+  public void atomRevealed(int cell) {
+    hexManager.alterHexagon(cell, colorOf(CellMark.ATOM));
+
+    // Look up the position of the hexagon
+    double posX = geometry().layout.cellX(cell);
+    double posY = geometry().layout.cellY(cell);
+
+    // Create a new Circle for the atom
+    Circle atomCircle = new Circle(posX, posY, hexHeight);
+    atomCircle.setStroke(Color.WHITE);
+    atomCircle.setStrokeWidth(2);
+    atomCircle.setStrokeType(StrokeType.INSIDE);
+    atomCircle.getStrokeDashArray().addAll(5d, 10d); // Set the stroke to a dotted pattern
+    atomCircle.setFill(Color.TRANSPARENT); // Set the fill to transparent
+    addCircle(atomCircle);
+  }
+
+  // Returns the colour a mark is shown in, as listed in the tutorial's legend.
+  static Color colorOf(CellMark mark) {
+    return switch (mark) {
+      case ABSORBED -> Color.GREEN;
+      case REFLECTED_AT_ENTRY -> Color.WHITE;
+      case REFLECTED -> Color.YELLOW;
+      case DEFLECTED -> Color.BLUE;
+      case DEFLECTED_REPEATEDLY -> Color.DEEPPINK;
+      case DOUBLE_HIT -> Color.BROWN;
+      case PASSED_THROUGH -> Color.PURPLE;
+      case ATOM -> Color.RED;
+    };
+  }
+
+  // Marks the entry point button a ray left through. The hexagon button at the exit stays enabled.
+  @Override
+  public void disableButtonAt(String hex, int degree) {
+    Button button = entryButtons.get(new ButtonData(hex, degree));
+    if (button != null) {
+      button.setDisable(true);
+      button.setStyle("-fx-background-color: purple;");
     }
   }
 
@@ -313,12 +535,13 @@ public class GUI extends Application {
   @Override
   public void start(Stage primaryStage) {
     polylinePane = new Pane();
+    configure(myGame);
     Scene scene = new Scene(root, GUI_SIZE, GUI_SIZE);
     root.setStyle("-fx-background-color: black;");
     Button startGameButton = new Button("Start Game");
     startGameButton.setLayoutX(10); // Set the x position of the button
     startGameButton.setLayoutY(10); // Set the y position of the button
-    Button endGameButton = new Button("End Game");
+    endGameButton = new Button("End Game");
     endGameButton.setLayoutX(10); // Set the x position of the button
     endGameButton.setLayoutY(40); // Set the y position of the button
     endGameButton.setDisable(true); // Initially disable the end game button
@@ -331,8 +554,17 @@ public class GUI extends Application {
     Button exitButton = new Button("Exit");
     exitButton.setLayoutX(10);
     exitButton.setLayoutY(210);
-    exitButton.setOnAction(e -> System.exit(0));
-    root.getChildren().add(exitButton);//JAKUB
+    exitButton.setOnAction(
+        e -> {
+          saveGame();
+          System.exit(0);
+        }); //JAKUB
+
+    Button hintButton = new Button("Hint");
+    hintButton.setLayoutX(10); // Set the x position of the button
+    hintButton.setLayoutY(240); // Set the y position of the button
+    hintButton.setDisable(true); // Enabled once the game has started
+    hintButton.setOnAction(e -> showHint(hintButton));
 
     Button fullDetailsButton = new Button("Full Details");
     fullDetailsButton.setLayoutX(10); // Set the x position of the button
@@ -357,7 +589,7 @@ public class GUI extends Application {
     fullDetailsButton.setOnAction(
         e -> {
           if (!cheatMode) {
-            root.getChildren().add(polylinePane);
+            addOverlay(polylinePane);
             cheatMode = true;
           }
           isAtomRevealed();
@@ -369,7 +601,7 @@ public class GUI extends Application {
     cheatModeButton.setOnAction(
         e -> {
           if (!cheatMode) {
-            root.getChildren().add(polylinePane);
+            addOverlay(polylinePane);
             cheatMode = true;
           }
           isAtomRevealed();
@@ -377,13 +609,16 @@ public class GUI extends Application {
           cheatModeButton.setStyle("-fx-text-fill: grey; -fx-font-weight: bold;");
         });
 
+    GameSnapshot saved = loadSavedGame();
     startGameButton.setOnAction(
         e -> {
           // Enable the reveal button when the start game button is clicked
-          myGame.atomSelection();
-          myGame.atomsEffectiveRange();
+          if (saved == null) {
+            myGame.atomSelection();
+          }
           myGame.storeEntryPoints();
           cheatModeButton.setDisable(false);
+          hintButton.setDisable(false);
           startGameButton.setDisable(true); // Disable the button after it's clicked
           startGameButton.setText("Game Started"); // Change the text of the button
           startGameButton.setStyle("-fx-text-fill: grey; -fx-font-weight: bold;");
@@ -391,31 +626,37 @@ public class GUI extends Application {
           createAllEntryPointButtons(myGame);
 
           // make hex buttons visible
-          for (Node node : root.getChildren()) {
-            if (node instanceof Button button && button.getShape() instanceof Polygon) {
+          for (Button button : hexButtons) {
+            if (button != null) {
               button.setVisible(true);
             }
           }
+          gameStarted = true;
+          if (saved != null) {
+            resume(saved);
+          }
         });
     endGameButton.setOnAction(
         e -> {
           endGameButton.setDisable(true); // Disable the button after it's clicked
           endGameButton.setText("Game Ended"); // Change the text of the button
+          gameEnded = true;
           endGameButton.setStyle("-fx-text-fill: grey; -fx-font-weight: bold;");
           if (!atomsRevealed) {
             revealButton.setDisable(false);
           }
           cheatModeButton.setDisable(true);
+          hintButton.setDisable(true);
           fullDetailsButton.setDisable(false);
           myGame.scoreTracker();
-          for (Node node : root.getChildren()) {
-            if (node instanceof Button button) {
-              if (button.getShape() instanceof Polygon
-                  || button.getUserData() instanceof ButtonData) {
-                button.setDisable(true);
-              }
+          for (Button button : hexButtons) {
+            if (button != null) {
+              button.setDisable(true);
             }
           }
+          for (Button button : entryButtons.values()) {
+            button.setDisable(true);
+          }
           showScore();
         });
     revealButton.setOnAction(
@@ -433,14 +674,74 @@ public class GUI extends Application {
             endGameButton,
             cheatModeButton,
             fullDetailsButton,
-            tutorialButton); // adds the buttons to the root pane
+            tutorialButton,
+            hintButton,
+            exitButton); // adds the buttons to the root pane
 
     primaryStage.setTitle("BlackBox Game");
     primaryStage.setScene(scene);
     primaryStage.show();
+    if (saved != null) {
+      startGameButton.fire(); // Carry on with the saved game straight away
+    }
+  }
+
+  // Saves the game when the window is closed.
+  @Override
+  public void stop() {
+    saveGame();
+  }
+
+  // Returns the game in the save file, or null if there is none for this board.
+  private static GameSnapshot loadSavedGame() {
+    if (saveFile == null || !Files.exists(saveFile)) {
+      return null;
+    }
+    try {
+      GameSnapshot saved = GameSnapshot.load(saveFile);
+      if (saved.radius() == radius && saved.atoms().length == atomCount) {
+        return saved;
+      }
+      EventLog.log(EventLog.Level.WARN, "Not resuming " + saveFile + ": it is for another board");
+    } catch (IOException e) {
+      EventLog.log(EventLog.Level.WARN, "Could not resume " + saveFile + ": " + e.getMessage());
+    }
+    return null;
+  }
+
+  // Marks the rays and guesses of a saved game, after the entry point buttons are made.
+  private void resume(GameSnapshot saved) {
+    myGame.restore(saved);
+    for (int cell : saved.guesses()) {
+      if (hexButtons[cell] != null) {
+        hexButtons[cell].fire();
+      }
+    }
+  }
+
+  // Saves a game in progress to the save file, or deletes the file once the game has ended.
+  private void saveGame() {
+    if (saveFile == null || !gameStarted) {
+      return;
+    }
+    try {
+      if (gameEnded) {
+        Files.deleteIfExists(saveFile);
+      } else {
+        myGame.snapshot().save(saveFile);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      EventLog.log(
+          EventLog.Level.WARN, "Could not save the game to " + saveFile + ": " + e.getMessage());
+    }
   }
 
   public void showScore() {
+    showScore(myGame);
+  }
+
+  // Shows the score of a game and how it was counted in a window of its own.
+  static void showScore(Game myGame) {
     Stage scoreStage = new Stage();
 
     Label scoreLabel =
@@ -514,57 +815,22 @@ public class GUI extends Application {
     tutorialStage.setOnCloseRequest(e -> tutorialButton.setDisable(false));
   }
 
-  void hexButtonAccuracy() {
-    // Clear the existing entries in the map
-    orangeHexButtons.clear();
-
-    // Iterate over all nodes in the root pane
-    for (Node node : root.getChildren()) {
-      if (node instanceof Button button) {
-        // Check if the button has a Polygon shape and is styled with an orange background
-        if (button.getShape() instanceof Polygon
-            && button.getStyle().contains("background-color: orange;")) {
-          // Cast the user data of the button to HexagonButtonData and get the data
-          HexagonButtonData hexButtonData = (HexagonButtonData) button.getUserData();
-          String hex = hexButtonData.hex();
-          int number = hexButtonData.number();
-
-          // Add the button to the map with its data as the key
-          orangeHexButtons.put(hex, number);
-        }
-      }
-    }
-  }
-
+  @Override
   public Map<String, Integer> getOrangeHexButtons() {
-    hexButtonAccuracy();
     return orangeHexButtons;
   }
 
   public void updateGuessedAtoms(int newGuessedAtoms) {
     // Update the guessedAtoms value
     this.guessedAtoms = newGuessedAtoms;
-    setEndGameButtonDisabled(this.guessedAtoms < 6);
+    setEndGameButtonDisabled(this.guessedAtoms < atomCount);
   }
 
   public Button getEndGameButton() {
-    // Iterate over all nodes in the root pane
-    for (Node node : root.getChildren()) {
-      if (node instanceof Button button) {
-        // Check if the button's text is "End Game"
-        if ("End Game".equals(button.getText())) {
-          return button; // Return the "End Game" button
-        }
-      }
-    }
-    return null; // Return null if the "End Game" button is not found
+    return endGameButton;
   }
 
   public void setEndGameButtonDisabled(boolean disabled) {
-    // Get the end game button
-    Button endGameButton = getEndGameButton();
-
-    // Enable or disable the button
     endGameButton.setDisable(disabled);
   }
 
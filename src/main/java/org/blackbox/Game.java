@@ -1,112 +1,261 @@
 package org.blackbox;
 
 import java.util.*;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.*;
-import javafx.util.Pair;
+import java.util.function.Supplier;
 
 /**
  * The Game class represents a single game session. It manages the game state, including the
- * locations of atoms and entry points.
+ * locations of atoms and entry points. It holds no JavaFX types: the hexagons come from a HexGrid
+ * and everything the player sees goes through a GameView, which the GUI implements.
  */
 public class Game {
   private final Map<String, List<Integer>> entryPoints;
   private final List<String> atomLocations;
-  private final HexagonManager hexManager;
-  private final GUI gui;
-  private final List<String> ignoredAtoms;
+  private final HexGrid hexManager;
+  private final GameView gui;
+  public static final int DEFAULT_RADIUS = 4;
+  public static final int DEFAULT_ATOM_COUNT = 6;
+  private final Board board;
+  private final EntryCatalog entries; // Shared by every game on the board
+  private final int atomCount;
+  private AtomField atomField;
+  private RayTracer tracer;
+  // Rays fired during the current game, for the solver and for snapshots
+  private final List<RaySolver.Observation> observations = new ArrayList<>();
+  private final List<GameSnapshot.Ray> firedRays = new ArrayList<>();
+  private HintAdvisor hintAdvisor; // Created on the first hint, keeping its cache between hints
+  // Source of unique-solution layouts, or null to shuffle the hexagons
+  private PuzzlePool puzzles;
+  private Random layoutSeeds = new Random(); // Draws the seed of each random layout
+  private LayoutSampler sampler; // Draws layouts over the grid's hexagons, built on first use
+  private int samplerHexes; // The number of hexagons the sampler was built over
+  private long layoutSeed;
+  private ActionJournal journal; // Records every action when set
+  private long journalSession;
   public int raysShot = 0, atomsGuesses = 0, atomsHit = 0, atomsMissed;
   public EncounterType lastEncounterType = EncounterType.NO_ENCOUNTER;
   private int score;
-  private int deflectionCounter = 0;
-  private String storedOriginHex;
 
   /**
-   * Constructs a new Game with the given HexagonManager.
+   * Constructs a new Game with the given hexagons and view on the standard board.
    *
-   * @param hexManager the HexagonManager for the game
+   * @param hexManager the hexagons of the game, such as the GUI's HexagonManager
+   * @param gui the view showing the game
    */
-  public Game(HexagonManager hexManager, GUI gui) {
+  public Game(HexGrid hexManager, GameView gui) {
+    this(hexManager, gui, DEFAULT_RADIUS, DEFAULT_ATOM_COUNT);
+  }
+
+  /**
+   * Constructs a game without a display, on every cell of the board.
+   *
+   * @param radius the highest coordinate value on the board
+   * @param atomCount the number of atoms hidden on the board
+   */
+  public Game(int radius, int atomCount) {
+    this(HexGrid.of(Board.of(radius)), GameView.HEADLESS, radius, atomCount);
+  }
+
+  /**
+   * Constructs a new Game with the given hexagons, view, board radius and number of atoms.
+   *
+   * @param hexManager the hexagons of the game, such as the GUI's HexagonManager
+   * @param gui the view showing the game
+   * @param radius the highest coordinate value on the board
+   * @param atomCount the number of atoms hidden on the board
+   */
+  public Game(HexGrid hexManager, GameView gui, int radius, int atomCount) {
+    if (atomCount < 1 || atomCount > Board.of(radius).getCellCount()) {
+      throw new IllegalArgumentException("Invalid number of atoms: " + atomCount);
+    }
+    this.board = Board.of(radius);
+    this.entries = EntryCatalog.of(board);
+    this.atomCount = atomCount;
     this.gui = gui;
     this.entryPoints = new HashMap<>();
     atomLocations = new ArrayList<>();
     this.hexManager = hexManager;
-    this.ignoredAtoms = new ArrayList<>();
   }
 
-  private static int getDegree(String direction) {
-    int degree;
+  /**
+   * Returns the number of atoms that keeps the density of the standard board, six atoms in 61
+   * cells, for a board of the given radius.
+   *
+   * @param radius the highest coordinate value on the board
+   * @return the proportional number of atoms, at least one
+   */
+  public static int proportionalAtomCount(int radius) {
+    int cells = Board.of(radius).getCellCount();
+    int standardCells = Board.of(DEFAULT_RADIUS).getCellCount();
+    return Math.max(1, Math.round((float) cells * DEFAULT_ATOM_COUNT / standardCells));
+  }
+
+  public Board getBoard() {
+    return board;
+  }
 
-    degree =
-        switch (direction) {
-          case "+1, 0, -1" -> 0; // Reverse traversal rules for degree 0
-          case "0, +1, -1" -> 60; // Reverse traversal rules for degree 60
-          case "-1, +1, 0" -> 120; // Reverse traversal rules for degree 120
-          case "-1, 0, +1" -> 180; // Reverse traversal rules for degree 180
-          case "0, -1, +1" -> 240; // Reverse traversal rules for degree 240
-          case "+1, -1, 0" -> 300; // Reverse traversal rules for degree 300
-          default -> throw new IllegalArgumentException("Invalid direction: " + direction);
-        };
-    return degree;
+  public int getAtomCount() {
+    return atomCount;
   }
 
   /**
-   * Selects the locations of the atoms using the hashmap of the hexagons which is then randomized
-   * and the first six locations are added to the atomLocations list.
+   * Selects the locations of the atoms at random among the hexagons of the grid, drawing just the
+   * atoms with a LayoutSampler rather than shuffling every hexagon. The area of effect of the new
+   * layout is computed once here and shared by every ray fired during the game. Each layout is
+   * drawn with a seed drawn from the game's seed, so a seeded game deals the same layouts every
+   * time.
    */
   public void atomSelection() {
-    List<String> validHexes = new ArrayList<>(hexManager.getAllHexagonLocations());
-    if (validHexes.isEmpty()) {
+    if (!EngineMetrics.isEnabled()) {
+      selectAtoms();
+      return;
+    }
+    long started = System.nanoTime();
+    long allocated = EngineMetrics.allocatedBytes();
+    selectAtoms();
+    EngineMetrics.global().record(EngineMetrics.Operation.ATOM_SELECTION, started, allocated);
+  }
+
+  private void selectAtoms() {
+    if (puzzles != null) {
+      atomLocations.clear();
+      for (int cell : puzzles.take().atoms()) {
+        atomLocations.add(board.key(cell));
+      }
+      layoutSeed = 0;
+      atomField = buildAtomField();
+      tracer = new RayTracer(atomField);
+      observations.clear();
+      firedRays.clear();
+      journalLayout();
+      return;
+    }
+    Set<String> hexes = hexManager.getAllHexagonLocations();
+    // A grid only ever gains hexagons, so the sampler is rebuilt when their number changes
+    if (sampler == null || hexes.size() != samplerHexes) {
+      sampler = samplerOver(hexes);
+      samplerHexes = hexes.size();
+    }
+    layoutSeed = layoutSeeds.nextLong();
+    // The sampler keeps no state between draws, so the seed alone decides the layout
+    int[] layout = sampler.draw(new SplittableRandom(layoutSeed));
+    atomLocations.clear(); // Replace any previous layout
+    for (int cell : layout) {
+      atomLocations.add(board.key(cell));
+    }
+    atomField = buildAtomField();
+    tracer = new RayTracer(atomField);
+    observations.clear();
+    firedRays.clear();
+    journalLayout();
+  }
+
+  // Builds a sampler that places atoms only on the board cells of the given hexagons.
+  private LayoutSampler samplerOver(Set<String> hexes) {
+    if (hexes.isEmpty()) {
       throw new IllegalStateException("Hexagons can not be found.");
     }
-    List<String> shuffledHexes = new ArrayList<>(validHexes); // Create a new list to shuffle
-    Collections.shuffle(shuffledHexes); // Shuffle the list to get random locations
-    for (int i = 0; i < 6; i++) {
-      atomLocations.add(shuffledHexes.get(i)); // Add the first six locations to atomLocations
+    boolean[] onGrid = new boolean[board.getCellCount()];
+    int cells = 0;
+    for (String hex : hexes) {
+      int cell = board.indexOf(hex);
+      if (cell != Board.NO_CELL && !onGrid[cell]) {
+        onGrid[cell] = true;
+        cells++;
+      }
+    }
+    if (cells < atomCount) {
+      throw new IllegalStateException("Not enough hexagons for " + atomCount + " atoms.");
     }
+    int[] forbidden = new int[onGrid.length - cells];
+    for (int cell = 0, next = 0; cell < onGrid.length; cell++) {
+      if (!onGrid[cell]) {
+        forbidden[next++] = cell;
+      }
+    }
+    return new LayoutSampler(board, atomCount, 1, forbidden);
   }
 
-  public List<String> getAtomLocations() {
-    return atomLocations;
+  /**
+   * Makes the layouts dealt by atomSelection reproducible: games with the same seed, board and
+   * hexagons deal the same sequence of layouts.
+   *
+   * @param seed the seed
+   */
+  public void setSeed(long seed) {
+    layoutSeeds = new Random(seed);
+  }
+
+  // Returns the seed the current layout was shuffled with, or 0 if it came from a puzzle pool.
+  public long getLayoutSeed() {
+    return layoutSeed;
   }
 
   /**
-   * Reveals the atoms by changing the color of the hexagons and adding a dotted circle to the GUI.
-   * This method iterates over the atom locations, splits the location string into coordinates, and
-   * uses these coordinates to alter the corresponding hexagon in the HexagonManager. It then
-   * calculates the position of the hexagon and creates a new Circle at that position. The Circle is
-   * styled and added to the GUI.
+   * Records every layout, ray, guess and score of this game in a journal, from which
+   * JournalReplayer can rebuild it.
+   *
+   * @param journal the journal, or null to stop recording
+   * @param session the id the game's records are tagged with
    */
-  public void atomReveal() {
+  public void setJournal(ActionJournal journal, long session) {
+    this.journal = journal;
+    this.journalSession = session;
+  }
+
+  private void journalLayout() {
+    if (journal != null) {
+      journal.append(
+          journalSession, ActionJournal.Action.START, board.getRadius(), atomCount, layoutSeed);
       for (String location : atomLocations) {
-      String[] coordinates = location.split(",");
-      int x = Integer.parseInt(coordinates[0]);
-      int y = Integer.parseInt(coordinates[1]);
-      int z = Integer.parseInt(coordinates[2]);
+        journal.append(journalSession, ActionJournal.Action.ATOM, board.indexOf(location), 0, 0);
+      }
+    }
+  }
 
-      // Use the coordinates to alter the corresponding hexagon in the HexagonManager
-      hexManager.alterHexagon(x, y, z, Color.RED);
+  /**
+   * Records that the player marked or unmarked a hexagon as holding an atom. The view keeps the
+   * guesses; this only journals them.
+   *
+   * @param hex the "x,y,z" key of the hexagon
+   * @param marked true if the hexagon is now marked
+   */
+  public void guessToggled(String hex, boolean marked) {
+    if (journal != null) {
+      journal.append(
+          journalSession, ActionJournal.Action.GUESS, board.indexOf(hex), marked ? 1 : 0, 0);
+    }
+  }
 
-      // Calculate the position of the hexagon
-      double posX = GUI.getHexHeight() * (x + y / 2.0) + (GUI.GUI_SIZE / 2);
-      double posY = 1.5 * GUI.getHexSize() * y + (GUI.GUI_SIZE / 2);
+  /**
+   * Makes atomSelection take its layouts from a pool of puzzles with a unique solution instead of
+   * shuffling the hexagons.
+   *
+   * @param puzzles the pool, for this game's board and number of atoms, or null to shuffle again
+   */
+  public void usePuzzles(PuzzlePool puzzles) {
+    if (puzzles != null
+        && (puzzles.getBoard().getRadius() != board.getRadius()
+            || puzzles.getAtomCount() != atomCount)) {
+      throw new IllegalArgumentException("Puzzle pool does not match the game's board");
+    }
+    this.puzzles = puzzles;
+  }
 
-      // Create a new Circle for the atom
-      Circle atomCircle = new Circle(posX, posY, GUI.getHexHeight());
-      atomCircle.setStroke(Color.WHITE);
-      atomCircle.setStrokeWidth(2);
-      atomCircle.setStrokeType(StrokeType.INSIDE);
-      atomCircle.getStrokeDashArray().addAll(5d, 10d); // Set the stroke to a dotted pattern
-      atomCircle.setFill(Color.TRANSPARENT); // Set the fill to transparent
+  public List<String> getAtomLocations() {
+    return atomLocations;
+  }
 
-      // Add the Circle to the root Pane
-      GUI.addCircle(atomCircle);
+  // Reveals the atoms, telling the view where each one is.
+  public void atomReveal() {
+    for (String location : atomLocations) {
+      gui.atomRevealed(board.indexOf(location));
     }
   }
 
   /**
    * Returns a map of the effective range of each atom. The effective range is defined as the
-   * neighboring locations of each atom. This method iterates over the atom locations, splits the
+   * neighboring locations of each atom. This method iterates over the atom locations, parses the
    * location string into coordinates, and uses these coordinates to get the neighboring locations
    * from the HexagonManager. If the coordinates are valid, the location and its neighbors are added
    * to the map.
@@ -117,82 +266,50 @@ public class Game {
   public Map<String, List<String>> atomsEffectiveRange() {
     Map<String, List<String>> atomNeighbors = new HashMap<>();
     for (String location : atomLocations) {
-      String[] coordinates = location.split(",");
-      int x = Integer.parseInt(coordinates[0]);
-      int y = Integer.parseInt(coordinates[1]);
-      int z = Integer.parseInt(coordinates[2]);
+      int coord = HexCoord.parse(location);
+      int x = HexCoord.x(coord);
+      int y = HexCoord.y(coord);
+      int z = HexCoord.z(coord);
       List<String> neighbors = hexManager.getNeighborLocations(x, y, z);
 
       if (isValidCoordinate(x, y, z)) {
         atomNeighbors.put(location, neighbors);
       }
-      System.out.println("Neighbors of " + location + ": " + neighbors);
+      if (EventLog.isEnabled(EventLog.Level.DEBUG)) {
+        EventLog.log(EventLog.Level.DEBUG, "Neighbors of " + location + ": " + neighbors);
+      }
     }
     return atomNeighbors;
   }
 
   private boolean isValidCoordinate(int x, int y, int z) {
-    String coordinate = x + "," + y + "," + z;
-    List<String> validHexes = new ArrayList<>(hexManager.getAllHexagonLocations());
-    return validHexes.contains(coordinate);
+    return board.indexOf(x, y, z) != Board.NO_CELL;
   }
 
   /**
-   * Stores the entry points for each hexagon in the grid. This method iterates over all valid
-   * hexagon locations, splits each location string into coordinates, and uses these coordinates to
-   * determine the entry points for each hexagon. The entry points are determined based on the
-   * position of the hexagon in the grid. If the hexagon is on the edge of the grid, it will have
-   * two entry points, otherwise it will have none. The entry points are stored in a LinkedHashSet
-   * to ensure uniqueness, and then converted back to a List before storing. The hexagon location
-   * and its entry points are then added to the entryPoints map.
+   * Stores the entry points of the hexagons in the grid. The entry points of a board depend only
+   * on its radius, so they are looked up in the shared EntryCatalog rather than worked out again
+   * for every game; this keeps those of the edge hexagons the grid holds.
    */
   public void storeEntryPoints() {
-    List<String> validHexes = new ArrayList<>(hexManager.getAllHexagonLocations());
-    Map<Integer, Pair<Integer, String>> entryPointMap = new HashMap<>();
-    int counter = 1;
-
-    for (String hex : validHexes) {
-      String[] coordinates = hex.split(",");
-      int x = Integer.parseInt(coordinates[0]);
-      int y = Integer.parseInt(coordinates[1]);
-      int z = Integer.parseInt(coordinates[2]);
-
-      Set<Integer> hexEntryPointsSet = new LinkedHashSet<>();
-      if (x == -GUI.HIGHEST_COORDINATE) {
-        hexEntryPointsSet.addAll(Arrays.asList(120, 180));
-      }
-      if (z == GUI.HIGHEST_COORDINATE) {
-        hexEntryPointsSet.addAll(Arrays.asList(180, 240));
-      }
-      if (y == -GUI.HIGHEST_COORDINATE) {
-        hexEntryPointsSet.addAll(Arrays.asList(240, 300));
-      }
-      if (x == GUI.HIGHEST_COORDINATE) {
-        hexEntryPointsSet.addAll(Arrays.asList(300, 0));
-      }
-      if (z == -GUI.HIGHEST_COORDINATE) {
-        hexEntryPointsSet.addAll(Arrays.asList(0, 60));
-      }
-      if (y == GUI.HIGHEST_COORDINATE) {
-        hexEntryPointsSet.addAll(Arrays.asList(60, 120));
-      }
-
-      List<Integer> hexEntryPoints = new ArrayList<>(hexEntryPointsSet);
-      if (!hexEntryPoints.isEmpty()) {
-        entryPoints.put(hex, hexEntryPoints);
-      }
-
-      for (Integer point : hexEntryPoints) {
-        Pair<Integer, String> degreeHexPair = new Pair<>(point, hex);
-        entryPointMap.put(counter, degreeHexPair);
-        counter++;
+    entryPoints.clear();
+    Map<String, List<Integer>> degreesByHex = entries.getDegreesByHex();
+    for (String hex : hexManager.getAllHexagonLocations()) {
+      List<Integer> degrees = degreesByHex.get(hex);
+      if (degrees != null) {
+        entryPoints.put(hex, degrees);
       }
     }
 
-    // Print the entryPointMap to the console
-    for (Map.Entry<Integer, Pair<Integer, String>> entry : entryPointMap.entrySet()) {
-      System.out.println(
-          "Entry Point: " + entry.getKey() + ", Degree and Hex Location: " + entry.getValue());
+    if (EventLog.isEnabled(EventLog.Level.TRACE)) {
+      int count = 0;
+      for (Map.Entry<String, List<Integer>> entry : entryPoints.entrySet()) {
+        for (int degree : entry.getValue()) {
+          EventLog.log(
+              EventLog.Level.TRACE,
+              "Entry Point: " + ++count + ", " + new ButtonData(entry.getKey(), degree));
+        }
+      }
     }
   }
 
@@ -204,560 +321,326 @@ public class Game {
     return entryPoints;
   }
 
-  public void handleButtonClick(ButtonData buttonData) {
-    lastEncounterType = EncounterType.NO_ENCOUNTER;
-    deflectionCounter = 0;
-    String originHex = buttonData.hex();
-    storedOriginHex = originHex;
-    int degree = buttonData.degree();
-    traversalRules(originHex, degree);
+  /**
+   * Fires a ray from the given entry point button. The ray is traced by the RayTracer and its
+   * result is passed to the view, which draws it and marks the entry and exit hexagons.
+   *
+   * @param buttonData the entry point the ray was fired from
+   * @return the result of the ray
+   */
+  public RayResult handleButtonClick(ButtonData buttonData) {
+    if (!EngineMetrics.isEnabled()) {
+      return fireRay(buttonData);
+    }
+    long started = System.nanoTime();
+    long allocated = EngineMetrics.allocatedBytes();
+    RayResult result = fireRay(buttonData);
+    EngineMetrics.global().recordRay(result.type(), result.pathLength());
+    EngineMetrics.global().record(EngineMetrics.Operation.FIRE, started, allocated);
+    return result;
   }
 
-  public void traversalRules(String originHex, int degree) {
-    String direction;
-    // Implement traversal rules for degree 300
-    direction =
-        switch (degree) {
-          case 0 -> "-1, 0, +1"; // Implement traversal rules for degree 0
-          case 60 -> "0, -1, +1"; // Implement traversal rules for degree 60
-          case 120 -> "+1, -1, 0"; // Implement traversal rules for degree 120
-          case 180 -> "+1, 0, -1"; // Implement traversal rules for degree 180
-          case 240 -> "0, +1, -1"; // Implement traversal rules for degree 240
-          case 300 -> "-1, +1, 0";
-          default -> null;
-        };
-    collisionDetection(originHex, direction, true);
+  private RayResult fireRay(ButtonData buttonData) {
+    int entry = entries.indexOf(buttonData);
+    int entryCell = entry >= 0 ? entries.cell(entry) : board.indexOf(buttonData.hex());
+    if (entryCell == Board.NO_CELL) {
+      throw new IllegalArgumentException("Invalid entry point: " + buttonData.hex());
+    }
+    RayResult result = tracer().traceResult(entryCell, buttonData.degree() / 60);
+    long packed =
+        RayResult.pack(
+            result.exitCell(), result.exitDirection(), result.type(), result.deflections());
+    lastEncounterType = result.type();
+    if (entry >= 0) { // Always, unless fired from inside the board, which no button does
+      recordRay(new GameSnapshot.Ray(entry, result.pathLength(), packed));
+      if (journal != null) {
+        journal.append(
+            journalSession, ActionJournal.Action.FIRE, entry, result.pathLength(), packed);
+      }
+    }
+    RayCapture capture = EventLog.rayCapture();
+    if (capture != null) {
+      capture.record(entryCell, result.entryDirection(), packed);
+    }
+    if (EventLog.isEnabled(EventLog.Level.DEBUG)) {
+      EventLog.log(EventLog.Level.DEBUG, "Ray from " + buttonData + ": " + result.type());
+    }
+
+    gui.rayFired(result);
+    hexDisplay(result);
+    return result;
   }
 
-  public void handleEncounter(EncounterType encounterType) {
-    lastEncounterType = encounterType; // Store the last encounter type
+  /**
+   * Marks the entry and exit hexagons of a ray according to its encounter type and disables the
+   * entry point button the ray left through.
+   *
+   * @param result the result of the ray
+   */
+  public void hexDisplay(RayResult result) {
+    markRay(
+        result.entryCell(),
+        RayResult.pack(
+            result.exitCell(), result.exitDirection(), result.type(), result.deflections()),
+        result.pathLength());
+  }
 
-    switch (encounterType) {
+  // Marks the cells of a ray from its packed outcome, as hexDisplay does.
+  private void markRay(int origin, long packed, int pathLength) {
+    int exitCell = RayResult.exitCell(packed);
+    int exitDegree =
+        exitCell == Board.NO_CELL ? -1 : Board.reverse(RayResult.exitDirection(packed)) * 60;
+    switch (RayResult.type(packed)) {
+      case DIRECT_HIT:
+        gui.cellMarked(origin, CellMark.ABSORBED);
+        break;
+      case REFLECTION:
+        // Reflected straight back at the entry point, or sent back to it further in
+        gui.cellMarked(origin, pathLength == 1 ? CellMark.REFLECTED_AT_ENTRY : CellMark.REFLECTED);
+        break;
       case DEFLECTION:
-        // Handle deflection
+        CellMark mark =
+            RayResult.deflections(packed) == 1 ? CellMark.DEFLECTED : CellMark.DEFLECTED_REPEATEDLY;
+        gui.disableButtonAt(board.key(exitCell), exitDegree);
+        gui.cellMarked(origin, mark);
+        gui.cellMarked(exitCell, mark);
         break;
-      case DIRECT_HIT:
-        // Handle direct hit
+      case DOUBLE_HIT:
+        gui.disableButtonAt(board.key(exitCell), exitDegree);
+        gui.cellMarked(origin, CellMark.DOUBLE_HIT);
+        gui.cellMarked(exitCell, CellMark.DOUBLE_HIT);
         break;
       case NO_ENCOUNTER:
       default:
-        // Handle no encounter
+        gui.disableButtonAt(board.key(exitCell), exitDegree);
+        gui.cellMarked(origin, CellMark.PASSED_THROUGH);
+        gui.cellMarked(exitCell, CellMark.PASSED_THROUGH);
         break;
     }
   }
 
-  public void collisionDetection(String startingHex, String direction, boolean originCheck) {
-    String[] coordinates = startingHex.split(",");
-    int x = Integer.parseInt(coordinates[0]);
-    int y = Integer.parseInt(coordinates[1]);
-    int z = Integer.parseInt(coordinates[2]);
-
-    System.out.println("Origin Hex: " + startingHex);
-    System.out.println("Direction: " + direction);
-
-    int[] directionValues = directionSelection(direction);
-    int dx = directionValues[0];
-    int dy = directionValues[1];
-    int dz = directionValues[2];
-
-    Map<String, List<String>> atomNeighbors = atomsEffectiveRange();
-    if (atomLocations.contains(storedOriginHex)
-        || atomNeighbors.values().stream()
-                .anyMatch(neighbors -> neighbors.contains(storedOriginHex))
-            && getEntryPointsMap().containsKey(storedOriginHex)
-            && originCheck) {
-      System.out.println("Collision detected at origin: " + startingHex);
-      hexManager.alterHexagon(x, y, z, Color.WHITE);
-      return;
+  // Returns the tracer for the current atom layout.
+  private RayTracer tracer() {
+    if (tracer == null) {
+      tracer = new RayTracer(getAtomField());
     }
+    return tracer;
+  }
 
-    Polyline polyline = new Polyline();
-    polyline.setStrokeWidth(3);
-    polyline.setStroke(Color.CYAN);
-
-    while (x >= -GUI.HIGHEST_COORDINATE
-        && x <= GUI.HIGHEST_COORDINATE
-        && y >= -GUI.HIGHEST_COORDINATE
-        && y <= GUI.HIGHEST_COORDINATE
-        && z >= -GUI.HIGHEST_COORDINATE
-        && z <= GUI.HIGHEST_COORDINATE) {
-      String currentHex = x + "," + y + "," + z;
-      System.out.println("Current Hex: " + currentHex);
-      double currentXCenter = GUI.getHexHeight() * (x + y / 2.0) + (GUI.GUI_SIZE / 2);
-      double currentYCenter = 1.5 * GUI.getHexSize() * y + (GUI.GUI_SIZE / 2);
-      // Add the current hexagon's center to the Polyline
-      polyline.getPoints().addAll(currentXCenter, currentYCenter);
-
-      // Update atomNeighbors map in each iteration
-      if (ignoredAtoms.contains(currentHex)) {
-        x += dx;
-        y += dy;
-        z += dz;
-        ignoredAtoms.remove(currentHex);
-        continue;
-      }
-      // Check if any of the lists of neighbors contain the current hex
-      for (Map.Entry<String, List<String>> entry : atomNeighbors.entrySet()) {
-        if (entry.getValue().contains(currentHex)) {
-          String specificAtomNeighbor = entry.getKey();
-          System.out.println("Collision detected at: " + currentHex + " in atomNeighbors");
-          atomEncounter(startingHex, direction, currentHex, specificAtomNeighbor);
-          GUI.polylinePane.getChildren().add(polyline);
-          return;
-        }
-      }
-      x += dx;
-      y += dy;
-      z += dz;
-    }
-    GUI.polylinePane.getChildren().add(polyline);
-    System.out.println("No collision detected");
-    noAtomEncounter(startingHex, direction); // No collision detected
-  }
-
-  public void noAtomEncounter(String originHex, String direction) {
-    // Extract the x, y, and z coordinates from the originHex string
-    String[] coordinates = originHex.split(",");
-    int originX = Integer.parseInt(coordinates[0]);
-    int originY = Integer.parseInt(coordinates[1]);
-    int originZ = Integer.parseInt(coordinates[2]);
-    // Calculate the direction to move in
-    int[] directionValues = directionSelection(direction);
-    int dx = directionValues[0];
-    int dy = directionValues[1];
-    int dz = directionValues[2];
-
-    int[] lastHex = findLastHex(originX, originY, originZ, dx, dy, dz);
-    int lastX = lastHex[0];
-    int lastY = lastHex[1];
-    int lastZ = lastHex[2];
-    if (EncounterType.NO_ENCOUNTER == lastEncounterType) {
-      hexDisplay(storedOriginHex, lastX, lastY, lastZ, direction);
-    }
-
-    // The x, y, and z coordinates of the last hexagon in the traversal are now stored in x, y, and
-    // z
-    System.out.println("Last hexagon in traversal: " + lastX + "," + lastY + "," + lastZ);
-    hexDisplay(storedOriginHex, lastX, lastY, lastZ, direction);
-  }
-
-  public void atomEncounter(
-      String originHex, String direction, String currentHex, String specificAtom) {
-
-    // Split the current coordinates
-    String[] currentCoordinates = currentHex.split(",");
-    int currentX = Integer.parseInt(currentCoordinates[0]);
-    int currentY = Integer.parseInt(currentCoordinates[1]);
-    int currentZ = Integer.parseInt(currentCoordinates[2]);
-
-    // Get the direction values
-    int[] directionValues = directionSelection(direction);
-    int dx = directionValues[0];
-    int dy = directionValues[1];
-    int dz = directionValues[2];
-
-    // Calculate the next position
-    int nextX = currentX + dx;
-    int nextY = currentY + dy;
-    int nextZ = currentZ + dz;
-
-    String nextPos = nextX + "," + nextY + "," + nextZ;
-    String deflectionPosLowerCornerRight = (currentX) + "," + (currentY - 1) + "," + (currentZ + 1);
-    String deflectionPosLowerCornerLeft = (currentX + 1) + "," + (currentY - 1) + "," + currentZ;
-    String deflectionPosUpperCornerRight = (currentX - 1) + "," + (currentY + 1) + "," + (currentZ);
-    String deflectionPosUpperCornerLeft = (currentX) + "," + (currentY + 1) + "," + (currentZ - 1);
-    String deflectionPosRight = (currentX + 1) + "," + currentY + "," + (currentZ - 1);
-    String deflectionPosLeft = (currentX - 1) + "," + currentY + "," + (currentZ + 1);
-    // ignoredAtoms.clear();
-    System.out.println("Specific Atom = " + specificAtom);
-    // Check if the hex is within 2 or more atom Neighbors
-    if (isInMultipleNeighbors(currentHex)) {
-      System.out.println("Two Atoms approached, Reflection");
-      if (atomLocations.contains(deflectionPosLeft)) {
-        doubleAtomHit(
-            direction,
-            currentHex,
-                atomLocations.contains(deflectionPosUpperCornerRight)
-                || atomLocations.contains(deflectionPosUpperCornerLeft),
-            false,
-            true);
-      } else
-        doubleAtomHit(
-            direction,
-            currentHex,
-                atomLocations.contains(deflectionPosUpperCornerRight)
-                || atomLocations.contains(deflectionPosUpperCornerLeft),
-            atomLocations.contains(deflectionPosRight),
-            false);
-    }
-    // Check if the next position is in the atom locations
-    else if (atomLocations.contains(nextPos)) {
-      directHit(storedOriginHex);
-      System.out.println("Direct Hit: " + nextPos);
-    }
-    // lower deflection
-    else if (specificAtom.equals(deflectionPosRight)) {
-      System.out.println("Direct Right Deflection");
-      deflectionHit(direction, currentHex, dx != 1, true);
-    } else if (specificAtom.equals(deflectionPosLeft)) {
-      System.out.println("Direct Left Deflection");
-      deflectionHit(direction, currentHex, dx != 1, true);
-    } else if (specificAtom.equals(deflectionPosLowerCornerLeft)
-        || specificAtom.equals(deflectionPosLowerCornerRight)) {
-      System.out.println("Lower Deflection");
-      boolean upper = false;
-      deflectionHit(direction, currentHex, upper, false);
-    }
-    // upper deflection
-    else if (specificAtom.equals(deflectionPosUpperCornerRight)
-        || specificAtom.equals(deflectionPosUpperCornerLeft)) {
-      System.out.println("Upper Deflection");
-      boolean upper = true;
-      deflectionHit(direction, currentHex, upper, false);
-    } else {
-      System.out.println("No collision detected");
-      noAtomEncounter(originHex, direction);
-    }
-  }
-
-  public void directHit(String storedOriginHex) {
-    // handleEncounter(EncounterType.DIRECT_HIT);
-    String[] coordinates = storedOriginHex.split(",");
-    int x = Integer.parseInt(coordinates[0]);
-    int y = Integer.parseInt(coordinates[1]);
-    int z = Integer.parseInt(coordinates[2]);
-    hexManager.alterHexagon(x, y, z, Color.GREEN);
-  }
-
-  // Temporary Implementation of Deflection, collision after deflection not yet implemented.
-  public void deflectionHit(
-          String direction, String currentHex, boolean upper, boolean side) {
-    deflectionCounter++;
-    handleEncounter(EncounterType.DEFLECTION);
-    // Calculate the direction to move in
-    ignoredAtoms.add(currentHex);
-    if (side) {
-      System.out.println("Normal Side true");
-      System.out.println("Pre Direction: " + direction);
-      direction =
-          switch (direction) {
-            case "-1, 0, +1", "-1, +1, 0" ->
-                "0, +1, -1"; // Implement traversal rules for side deflection
-            case "0, -1, +1" -> "+1, -1, 0"; // Implement traversal rules for side deflection
-            case "+1, -1, 0" -> "0, -1, +1"; // Implement traversal rules for side deflection
-            case "+1, 0, -1", "0, +1, -1" ->
-                "-1, +1, 0"; // Implement traversal rules for side deflection
-            case "0, +1 , -1" -> "-1, 0, +1"; // Implement traversal rules for side deflection
-            default -> direction;
-          };
-    } else if (upper) {
-      System.out.println("Upper true");
-      System.out.println("Pre Direction: " + direction);
-      direction =
-          switch (direction) {
-            case "0, -1, +1" -> "-1, +1, 0"; // Implement traversal rules for upper deflection
-            case "+1, -1, 0", "0, +1, -1" ->
-                "+1, 0, -1"; // Implement traversal rules for upper deflection
-            case "-1, 0, +1" -> "0, -1, +1"; // Implement traversal rules for upper deflection
-            case "+1, 0, -1" -> "+1, -1, 0"; // Implement traversal rules for upper deflection
-            case "0, +1 , -1" -> "+1, +1, 0"; // Implement traversal rules for upper deflection
-            case "-1, +1, 0" -> "-1, 0, +1"; // Implement traversal rules for upper deflection
-            default -> direction;
-          };
-    } else {
-      System.out.println("Upper false");
-      System.out.println("Pre Direction: " + direction);
-      direction =
-          switch (direction) {
-            case "+1, 0, -1" -> "0, +1, -1"; // Implement traversal rules for lower deflection
-            case "0, +1, -1", "0, -1, +1" ->
-                "-1, 0, +1"; // Implement traversal rules for lower deflection
-            case "-1, +1, 0" -> "+1, -1, 0"; // Implement traversal rules for lower deflection
-            case "-1, 0, +1" -> "-1, +1, 0"; // Implement traversal rules for lower deflection
-            case "+1, -1, 0" -> "+1, 0, -1"; // Implement traversal rules for lower deflection
-            default -> direction;
-          };
-    }
-
-    System.out.println("Direction: " + direction);
-    collisionDetection(currentHex, direction, false);
-  }
-
-  public void doubleAtomHit(
-      String direction,
-      String currentHex,
-      Boolean upper,
-      Boolean leftSide,
-      Boolean rightSide) {
-    handleEncounter(EncounterType.DOUBLE_HIT);
-    // Calculate the direction to move in
-    if (reversalChecker(currentHex, direction)) {
-      System.out.println("Reversal Detected");
-      String[] coordinatesOrigin = storedOriginHex.split(",");
-      int originX = Integer.parseInt(coordinatesOrigin[0]);
-      int originY = Integer.parseInt(coordinatesOrigin[1]);
-      int originZ = Integer.parseInt(coordinatesOrigin[2]);
-      hexManager.alterHexagon(originX, originY, originZ, Color.YELLOW);
-      return;
+  /**
+   * Returns the area of effect of the current atom layout, as computed by atomSelection.
+   *
+   * @return the atom field
+   */
+  public AtomField getAtomField() {
+    if (atomField == null) {
+      atomField = buildAtomField();
     }
+    return atomField;
+  }
 
-    ignoredAtoms.add(currentHex);
-    System.out.println("Pre Direction: " + direction);
-    if (leftSide && upper) {
-      System.out.print("Left Side true upper true");
-      direction =
-          switch (direction) {
-            case "-1, 0, +1" -> "+1, -1, 0"; // Implement traversal rules for 120 degree change
-            case "0, -1, +1", "-1, +1, 0" ->
-                "+1, 0, -1"; // Implement traversal rules for 120 degree change
-            case "+1, -1, 0", "0, +1, -1" ->
-                "-1, 0, +1"; // Implement traversal rules for 120 degree change
-            case "+1, 0, -1" -> "0, -1, +1"; // Implement traversal rules for 120 degree change
-            default -> direction;
-          };
-    } else if (rightSide && upper) {
-      System.out.print("Right Side true upper true");
-      direction =
-          switch (direction) {
-            case "-1, 0, +1" -> "+1, -1, 0"; // Implement traversal rules for 120 degree change
-            case "0, -1, +1" -> "+1, 0, -1"; // Implement traversal rules for 120 degree change
-            case "+1, -1, 0", "0, +1 , -1" ->
-                "-1, 0, +1"; // Implement traversal rules for 120 degree change
-            case "+1, 0, -1" -> "-1, +1, 0"; // Implement traversal rules for 120 degree change
-            case "0, +1, -1" -> "+1, -1, 0"; // Implement traversal rules for 120 degree change
-            case "-1, +1, 0" -> "+1, 0, -1"; // Implement traversal rules for 120 degree
-            default -> direction;
-          };
-    } else if (leftSide || rightSide) {
-      System.out.print("Left Side true");
-      direction =
-          switch (direction) {
-            case "-1, 0, +1" -> "0, +1, -1"; // Implement traversal rules for 120 degree change
-            case "0, -1, +1" -> "+1, 0, -1"; // Implement traversal rules for 120 degree change
-            case "+1, -1, 0", "0, +1 , -1" ->
-                "-1, 0, +1"; // Implement traversal rules for 120 degree change
-            case "+1, 0, -1" -> "-1, +1, 0"; // Implement traversal rules for 120 degree change
-            case "0, +1, -1", "-1, +1, 0" ->
-                "+1, -1, 0"; // Implement traversal rules for 120 degree change
-            default -> direction;
-          };
-    }
-    else if (upper) {
-      System.out.print("Upper true");
-      direction =
-          switch (direction) {
-            case "-1, 0, +1", "0, +1, -1" ->
-                "+1, -1, 0"; // Implement traversal rules for 120 degree change
-            case "0, -1, +1", "+1, -1, 0" ->
-                "0, +1, -1"; // Implement traversal rules for 120 degree change
-            case "+1, 0, -1", "-1, +1, 0" ->
-                "0, -1, +1"; // Implement traversal rules for 120 degree change
-            case "0, +1 , -1" -> "-1, 0, +1"; // Implement traversal rules for 120 degree change
-            default -> direction;
-          };
-    } else {
-      System.out.print("Upper false\n");
-      direction =
-          switch (direction) {
-            case "-1, 0, +1", "+1, -1, 0" ->
-                "0, +1, -1"; // Implement traversal rules for 120 degree change
-            case "0, -1, +1", "+1, 0, -1" ->
-                "-1, +1, 0"; // Implement traversal rules for 120 degree change
-            case "0, +1 , -1", "0, +1, -1" ->
-                "-1, 0, +1"; // Implement traversal rules for 120 degree change
-            case "-1, +1, 0" -> "0, -1, +1"; // Implement traversal rules for 120 degree change
-            default -> direction;
-          };
-    }
-    System.out.println("Direction: " + direction);
-    collisionDetection(currentHex, direction, false);
-  }
-
-  public boolean reversalChecker(String currentHex, String direction) {
-    String[] coordinates = currentHex.split(",");
-    int x = Integer.parseInt(coordinates[0]);
-    int y = Integer.parseInt(coordinates[1]);
-    int z = Integer.parseInt(coordinates[2]);
-    switch (direction) {
-      case "-1, 0, +1":
-        if (atomLocations.contains((x) + "," + (y - 1) + "," + (z + 1))
-            && atomLocations.contains((x - 1) + "," + (y + 1) + "," + z)) {
-          System.out.println("Reversal Detected");
-          return true;
-        }
-        break;
-      case "0, -1, +1":
-        if (atomLocations.contains((x - 1) + "," + (y) + "," + (z + 1))
-            && atomLocations.contains((x + 1) + "," + (y - 1) + "," + z)) {
-          System.out.println("Reversal Detected");
-          return true;
-        }
-        break;
-      case "+1, -1, 0":
-        if (atomLocations.contains((x) + "," + (y - 1) + "," + (z + 1))
-            && atomLocations.contains((x + 1) + "," + (y) + "," + (z - 1))) {
-          System.out.println("Reversal Detected");
-          return true;
-        }
-        break;
-      case "+1, 0, -1":
-        if (atomLocations.contains((x + 1) + "," + (y - 1) + "," + (z))
-            && atomLocations.contains((x) + "," + (y + 1) + "," + (z - 1))) {
-          System.out.println("Reversal Detected");
-          return true;
-        }
-        break;
-      case "0, +1, -1":
-        if (atomLocations.contains((x - 1) + "," + (y + 1) + "," + (z))
-            && atomLocations.contains((x + 1) + "," + (y) + "," + (z - 1))) {
-          System.out.println("Reversal Detected");
-          return true;
-        }
-        break;
-      case "-1, +1, 0":
-        if (atomLocations.contains((x - 1) + "," + (y) + "," + (z + 1))
-            && atomLocations.contains((x) + "," + (y + 1) + "," + (z - 1))) {
-          System.out.println("Reversal Detected");
-          return true;
-        }
-        break;
+  private AtomField buildAtomField() {
+    int[] atomCells = new int[atomLocations.size()];
+    for (int i = 0; i < atomCells.length; i++) {
+      atomCells[i] = board.indexOf(atomLocations.get(i));
+    }
+    // Every layout change builds a new field, so the capture always holds the layout of its rays
+    RayCapture capture = EventLog.rayCapture();
+    if (capture != null) {
+      capture.setLayout(board.getRadius(), atomCells);
     }
-    System.out.println("No Reversal Detected");
-    return false;
+    return new AtomField(board, atomCells);
   }
 
-  public int[] directionSelection(String direction) {
-    // Implement direction selection logic
-    int dx = 0, dy = 0, dz = 0;
-    switch (direction) {
-      case "-1, 0, +1":
-        dx = -1;
-        dz = 1;
-        break;
-      case "0, -1, +1":
-        dy = -1;
-        dz = 1;
-        break;
-      case "+1, -1, 0":
-        dx = 1;
-        dy = -1;
-        break;
-      case "+1, 0, -1":
-        dx = 1;
-        dz = -1;
-        break;
-      case "0, +1, -1":
-        dy = 1;
-        dz = -1;
-        break;
-      case "-1, +1, 0":
-        dx = -1;
-        dy = 1;
-        break;
-    }
-    return new int[] {dx, dy, dz};
+  /**
+   * Computes the outcome of every entry point for the current atom layout in one batched pass,
+   * without firing rays through the GUI or changing the state of the game.
+   *
+   * @return one RaySignature outcome per entry of the board's EntryCatalog
+   */
+  public int[] getRaySignature() {
+    return RaySignature.compute(tracer());
   }
 
-  public void hexDisplay(String originHex, int lastX, int lastY, int lastZ, String direction) {
-    String[] coordinatesOrigin = originHex.split(",");
-    int originX = Integer.parseInt(coordinatesOrigin[0]);
-    int originY = Integer.parseInt(coordinatesOrigin[1]);
-    int originZ = Integer.parseInt(coordinatesOrigin[2]);
-    int degree = getDegree(direction);
-    String lastCoordinates = lastX + "," + lastY + "," + lastZ;
-    System.out.print("Encounter Type: " + lastEncounterType);
-    switch (lastEncounterType) {
-      case DEFLECTION:
-        // Handle deflection
-        gui.disableButtonAt(lastCoordinates, degree);
-        if (deflectionCounter == 1) {
-          hexManager.alterHexagon(originX, originY, originZ, Color.BLUE);
-          hexManager.alterHexagon(lastX, lastY, lastZ, Color.BLUE);
-        } else {
-          System.out.print("Deflection Counter: " + deflectionCounter);
-          hexManager.alterHexagon(originX, originY, originZ, Color.DEEPPINK);
-          hexManager.alterHexagon(lastX, lastY, lastZ, Color.DEEPPINK);
-        }
-        break;
-      case DIRECT_HIT:
-        hexManager.alterHexagon(originX, originY, originZ, Color.GREEN);
-        break;
-      case DOUBLE_HIT:
-        gui.disableButtonAt(lastCoordinates, degree);
-        hexManager.alterHexagon(originX, originY, originZ, Color.BROWN);
-        hexManager.alterHexagon(lastX, lastY, lastZ, Color.BROWN);
-        break;
-      case NO_ENCOUNTER:
-        gui.disableButtonAt(lastCoordinates, degree);
-        hexManager.alterHexagon(originX, originY, originZ, Color.PURPLE);
-        hexManager.alterHexagon(lastX, lastY, lastZ, Color.PURPLE);
-      default:
-        // Handle no encounter
-        gui.disableButtonAt(lastCoordinates, degree);
-        hexManager.alterHexagon(originX, originY, originZ, Color.PURPLE);
-        hexManager.alterHexagon(lastX, lastY, lastZ, Color.PURPLE);
-        break;
-    }
+  // Remembers a fired ray for deduce and for snapshots.
+  private void recordRay(GameSnapshot.Ray ray) {
+    long packed = ray.outcome();
+    int exitCell = RayResult.exitCell(packed);
+    int exit =
+        exitCell == Board.NO_CELL
+            ? -1
+            : entries.exitEntry(exitCell, RayResult.exitDirection(packed));
+    observations.add(
+        new RaySolver.Observation(ray.entry(), RaySignature.encode(RayResult.type(packed), exit)));
+    firedRays.add(ray);
   }
 
-  public boolean isInMultipleNeighbors(String currentHex) {
-    Map<String, List<String>> atomNeighbors = atomsEffectiveRange();
-    int counter = 0;
+  public List<RaySolver.Observation> getObservations() {
+    return Collections.unmodifiableList(observations);
+  }
 
-    for (List<String> neighbors : atomNeighbors.values()) {
-      if (neighbors.contains(currentHex)) {
-        counter++;
-      }
-    }
-    return counter >= 2;
+  /**
+   * Finds every atom layout consistent with the rays fired so far in this game, telling the player
+   * which cells must or cannot hold an atom.
+   *
+   * @param maxLayouts the maximum number of layouts to list in the solution
+   * @return the consistent layouts
+   */
+  public RaySolver.Solution deduce(int maxLayouts) {
+    return new RaySolver(board, atomCount).solve(observations, maxLayouts);
   }
 
-  public int[] findLastHex(int x, int y, int z, int dx, int dy, int dz) {
-    // Move in the direction until you reach the edge of the grid
-    while (x >= -4 && x <= 4 && y >= -4 && y <= 4 && z >= -4 && z <= 4) {
-      // Calculate potential new coordinates
-      int potentialX = x + dx;
-      int potentialY = y + dy;
-      int potentialZ = z + dz;
+  /**
+   * Ranks the entry points not used yet by how much firing them is expected to reveal about the
+   * atoms, given the rays fired so far.
+   *
+   * @return the ranking
+   */
+  public HintAdvisor.Advice hint() {
+    return hintLater().get();
+  }
 
-      // Only update x, y, and z if the new coordinates are valid
-      if (isValidCoordinate(potentialX, potentialY, potentialZ)) {
-        x = potentialX;
-        y = potentialY;
-        z = potentialZ;
-      } else {
-        // If the new coordinates are not valid, break the loop
-        break;
-      }
+  /**
+   * Prepares a hint to be computed on another thread while the game goes on. The rays fired so far
+   * are copied now, so rays fired before the hint is computed do not change it.
+   *
+   * @return the ranking, computed when the supplier is called
+   */
+  public Supplier<HintAdvisor.Advice> hintLater() {
+    if (hintAdvisor == null) {
+      hintAdvisor = new HintAdvisor(board, atomCount);
     }
-    return new int[] {x, y, z};
+    HintAdvisor advisor = hintAdvisor;
+    List<RaySolver.Observation> fired = List.copyOf(observations);
+    return () -> advisor.advise(fired);
+  }
+
+  // Returns the entry point button of an entry of the board's EntryCatalog.
+  public ButtonData entryButton(int entry) {
+    return entries.button(entry);
+  }
+
+  // Returns true if the hex lies in the area of effect of two or more atoms.
+  public boolean isInMultipleNeighbors(String currentHex) {
+    int cell = board.indexOf(currentHex);
+    return cell != Board.NO_CELL && getAtomField().adjacentAtoms(cell) >= 2;
   }
 
+  // Scores the game with the hexagons the player marked in the view.
   public void scoreTracker() {
-    Map<String, Integer> orangeHexButtons = gui.getOrangeHexButtons();
-    for (Map.Entry<String, Integer> entry : orangeHexButtons.entrySet()) {
-      String key = entry.getKey();
+    scoreTracker(gui.getOrangeHexButtons().keySet());
+  }
+
+  /**
+   * Scores the game: one point per ray shot and five per guess that is not an atom.
+   *
+   * @param guesses the "x,y,z" keys of the hexagons guessed to hold atoms
+   */
+  public void scoreTracker(Collection<String> guesses) {
+    if (!EngineMetrics.isEnabled()) {
+      countScore(guesses);
+      return;
+    }
+    long started = System.nanoTime();
+    long allocated = EngineMetrics.allocatedBytes();
+    countScore(guesses);
+    EngineMetrics.global().record(EngineMetrics.Operation.SCORE, started, allocated);
+  }
+
+  private void countScore(Collection<String> guesses) {
+    atomsGuesses = 0;
+    atomsHit = 0;
+    for (String key : guesses) {
       atomsGuesses++;
       if (atomLocations.contains(key)) {
         atomsHit++;
       }
     }
     atomsMissed = atomsGuesses - atomsHit;
-    System.out.println("Atoms Hit: " + atomsHit);
-    System.out.println("Atoms Guesses: " + atomsGuesses);
-    System.out.println("Rays Shot Final: " + raysShot);
     score = (raysShot + (5 * (atomsGuesses - atomsHit)));
-    System.out.println("Score: " + score);
+    if (journal != null) {
+      journal.append(journalSession, ActionJournal.Action.END, raysShot, atomsGuesses, score);
+    }
+    // Replays and batch runs score many games, so the details are only logged when asked for
+    if (EventLog.isEnabled(EventLog.Level.DEBUG)) {
+      EventLog.log(EventLog.Level.DEBUG, "Atoms Hit: " + atomsHit);
+      EventLog.log(EventLog.Level.DEBUG, "Atoms Guesses: " + atomsGuesses);
+      EventLog.log(EventLog.Level.DEBUG, "Rays Shot Final: " + raysShot);
+      EventLog.log(EventLog.Level.DEBUG, "Score: " + score);
+    }
   }
 
   public int getScore() {
     return score;
   }
 
-  public enum EncounterType {
-    NO_ENCOUNTER,
-    DIRECT_HIT,
-    DEFLECTION,
-    DOUBLE_HIT
+  // Returns a snapshot of the game with the hexagons the player marked in the view as guesses.
+  public GameSnapshot snapshot() {
+    return snapshot(gui.getOrangeHexButtons().keySet());
+  }
+
+  /**
+   * Returns a snapshot of the game: its atoms, the rays fired with their outcomes, the guesses and
+   * the score fields.
+   *
+   * @param guesses the "x,y,z" keys of the hexagons guessed to hold atoms
+   * @return the snapshot
+   */
+  public GameSnapshot snapshot(Collection<String> guesses) {
+    return new GameSnapshot(
+        board.getRadius(),
+        cellsOf(atomLocations),
+        firedRays,
+        cellsOf(guesses),
+        raysShot,
+        atomsGuesses,
+        atomsHit,
+        score,
+        lastEncounterType);
+  }
+
+  // Returns the cells of the keys that lie on the board.
+  private int[] cellsOf(Collection<String> keys) {
+    int[] cells = new int[keys.size()];
+    int count = 0;
+    for (String key : keys) {
+      int cell = board.indexOf(key);
+      if (cell != Board.NO_CELL) {
+        cells[count++] = cell;
+      }
+    }
+    return Arrays.copyOf(cells, count);
+  }
+
+  /**
+   * Resumes a game from a snapshot, replacing the current one. The rays are not traced again: their
+   * outcomes are read from the snapshot and marked in the view, and the guesses are left to the
+   * caller, as the view holds them.
+   *
+   * @param snapshot a snapshot of a game on this game's board with this game's number of atoms
+   */
+  public void restore(GameSnapshot snapshot) {
+    if (snapshot.radius() != board.getRadius() || snapshot.atoms().length != atomCount) {
+      throw new IllegalArgumentException("Snapshot does not match the game's board");
+    }
+    atomLocations.clear();
+    for (int cell : snapshot.atoms()) {
+      atomLocations.add(board.key(cell));
+    }
+    atomField = buildAtomField();
+    tracer = new RayTracer(atomField);
+    observations.clear();
+    firedRays.clear();
+    for (GameSnapshot.Ray ray : snapshot.rays()) {
+      recordRay(ray);
+      gui.disableButtonAt(board.key(entries.cell(ray.entry())), entries.degree(ray.entry()));
+      markRay(entries.cell(ray.entry()), ray.outcome(), ray.pathLength());
+    }
+    raysShot = snapshot.raysShot();
+    atomsGuesses = snapshot.atomsGuessed();
+    atomsHit = snapshot.atomsHit();
+    atomsMissed = atomsGuesses - atomsHit;
+    score = snapshot.score();
+    lastEncounterType = snapshot.lastEncounterType();
   }
 }
@@ -0,0 +1,571 @@
+package org.blackbox;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameServer class hosts many concurrent games over HTTP, one GameSession each. Sessions only
+ * hold their own layout and progress; the Board, EntryCatalog and DeflectionRules tables are built
+ * once per radius and shared, and rays are traced with RayTracers borrowed from a pool per radius,
+ * so the server needs as many tracers as requests in flight rather than one per session.
+ *
+ * <p>Requests are plain query strings and responses small JSON objects:
+ *
+ * <pre>
+ *   POST   /games?radius=4&amp;atoms=6       201 {"id":1,"radius":4,"atoms":6,"entries":54}
+ *   POST   /games/1/rays?entry=0           fires entry 0 of the board's EntryCatalog
+ *   POST   /games/1/rays?hex=4,-4,0&amp;degree=180
+ *   POST   /games/1/guesses?hex=0,0,0      marks or unmarks a cell
+ *   POST   /games/1/end                    scores the game and reveals the atoms
+ *   GET    /games/1                        the state of the game
+ *   DELETE /games/1
+ * </pre>
+ *
+ * <p>Invalid arguments are answered with 400, unknown games and paths with 404, the wrong method
+ * with 405, moves the game does not allow any more with 409, a full server with 503 and anything
+ * else that goes wrong with 500.
+ *
+ * <p>Given an ActionJournal, the server records every layout, ray, guess, score and deletion under
+ * the game's id, from which JournalReplayer rebuilds the games still hosted. Replies do not wait
+ * for the journal's group commit, so a crash loses at most the last commit interval of actions.
+ *
+ * <p>The server has no authentication, so it listens on the loopback address unless given another.
+ */
+public final class GameServer {
+  public static final int DEFAULT_PORT = 8080;
+  public static final int DEFAULT_MAX_SESSIONS = 100_000;
+  // Boards are cached for the life of the process, so clients can not ask for arbitrary radii
+  public static final int MAX_RADIUS = 16;
+  // Time between group commits of the journal given with --journal
+  private static final Duration JOURNAL_COMMIT_INTERVAL = Duration.ofMillis(10);
+  // Time between snapshots logged with --metrics
+  private static final Duration METRICS_PERIOD = Duration.ofSeconds(30);
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final int maxSessions;
+  private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+  // Slots taken by hosted games and games being created, never more than maxSessions
+  private final AtomicInteger slots = new AtomicInteger();
+  private final Map<Integer, Queue<RayTracer>> tracers = new ConcurrentHashMap<>();
+  private final AtomicLong nextId = new AtomicLong(1);
+  private final SplittableRandom seeds = new SplittableRandom();
+  private final ActionJournal journal; // Or null when actions are not recorded
+
+  /**
+   * Binds a server to a port of the loopback address. It does not accept requests until started.
+   *
+   * @param port the port, or 0 for any free port
+   * @param maxSessions the highest number of games hosted at once
+   * @throws IOException if the port can not be bound
+   */
+  public GameServer(int port, int maxSessions) throws IOException {
+    this(port, maxSessions, null);
+  }
+
+  /**
+   * Binds a server to the loopback address that records the actions of its games in a journal.
+   *
+   * @param port the port, or 0 for any free port
+   * @param maxSessions the highest number of games hosted at once
+   * @param journal the journal, or null to record nothing
+   * @throws IOException if the port can not be bound
+   */
+  public GameServer(int port, int maxSessions, ActionJournal journal) throws IOException {
+    this(InetAddress.getLoopbackAddress(), port, maxSessions, journal);
+  }
+
+  /**
+   * Binds a server to an address that records the actions of its games in a journal.
+   *
+   * @param address the address to listen on, or null for every address of the host
+   * @param port the port, or 0 for any free port
+   * @param maxSessions the highest number of games hosted at once
+   * @param journal the journal, or null to record nothing
+   * @throws IOException if the port can not be bound
+   */
+  public GameServer(InetAddress address, int port, int maxSessions, ActionJournal journal)
+      throws IOException {
+    if (maxSessions < 1) {
+      throw new IllegalArgumentException("Invalid maximum number of sessions: " + maxSessions);
+    }
+    this.maxSessions = maxSessions;
+    this.journal = journal;
+    server = HttpServer.create(new InetSocketAddress(address, port), 0);
+    executor = newHandlerExecutor();
+    server.setExecutor(executor);
+    server.createContext("/games", this::handle);
+  }
+
+  /**
+   * Returns an executor that runs every request on its own virtual thread, or on a small pool of
+   * platform threads when the runtime has no virtual threads (before JDK 21).
+   */
+  static ExecutorService newHandlerExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors() * 2,
+          task -> {
+            Thread thread = new Thread(task, "game-server");
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  // Stops accepting requests and waits at most the given number of seconds for running ones.
+  public void stop(int delaySeconds) {
+    server.stop(delaySeconds);
+    executor.shutdown();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public InetAddress getAddress() {
+    return server.getAddress().getAddress();
+  }
+
+  // Returns the number of games hosted.
+  public int sessionCount() {
+    return sessions.size();
+  }
+
+  /**
+   * Starts a game with a random layout.
+   *
+   * @param radius the radius of the board
+   * @param atomCount the number of atoms
+   * @return the id of the game
+   */
+  public long create(int radius, int atomCount) {
+    if (radius < 1 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("Invalid radius: " + radius);
+    }
+    // The slot is reserved before the game is built, so concurrent requests can not overfill
+    if (slots.getAndUpdate(taken -> taken < maxSessions ? taken + 1 : taken) >= maxSessions) {
+      throw new ServerFullException(maxSessions);
+    }
+    try {
+      long seed;
+      synchronized (seeds) {
+        seed = seeds.nextLong();
+      }
+      GameSession session =
+          GameSession.random(Board.of(radius), atomCount, new SplittableRandom(seed));
+      long id = nextId.getAndIncrement();
+      if (journal != null) {
+        journal.append(id, ActionJournal.Action.START, radius, atomCount, seed);
+        for (int atom : session.layout()) {
+          journal.append(id, ActionJournal.Action.ATOM, atom, 0, 0);
+        }
+      }
+      sessions.put(id, session);
+      return id;
+    } catch (RuntimeException e) {
+      slots.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Stops hosting a game, freeing its slot.
+   *
+   * @param id the id of the game
+   * @return true if the game was hosted
+   */
+  public boolean remove(long id) {
+    GameSession session = sessions.get(id);
+    if (session == null) {
+      return false;
+    }
+    // Under the lock the moves take, so no move is journaled after the removal
+    synchronized (session) {
+      if (!sessions.remove(id, session)) {
+        return false;
+      }
+      if (journal != null) {
+        journal.append(id, ActionJournal.Action.REMOVE, 0, 0, 0);
+      }
+    }
+    slots.decrementAndGet();
+    return true;
+  }
+
+  // Throws unless the game is still hosted. Called holding the session's lock.
+  private void requireHosted(long id, GameSession session) {
+    if (sessions.get(id) != session) {
+      throw new NotFoundException("No such game: " + id);
+    }
+  }
+
+  /**
+   * Fires a ray in a game with a pooled tracer.
+   *
+   * @param id the id of the game
+   * @param session the game
+   * @param entry the entry of the board's EntryCatalog
+   * @return the outcome packed as described by RayResult
+   */
+  private long fire(long id, GameSession session, int entry) {
+    Board board = session.getBoard();
+    Queue<RayTracer> pool =
+        tracers.computeIfAbsent(board.getRadius(), radius -> new ConcurrentLinkedQueue<>());
+    RayTracer tracer = pool.poll();
+    if (tracer == null) {
+      tracer = new RayTracer(board, new int[0]);
+    }
+    try {
+      long packed;
+      // Held across the append, so the journal has each game's actions in the order they ran
+      synchronized (session) {
+        requireHosted(id, session);
+        packed = session.fire(entry, tracer);
+        if (journal != null) {
+          journal.append(id, ActionJournal.Action.FIRE, entry, tracer.pathLength(), packed);
+        }
+      }
+      if (EngineMetrics.isEnabled()) {
+        EngineMetrics.global().recordRay(RayResult.type(packed), tracer.pathLength());
+      }
+      return packed;
+    } finally {
+      pool.offer(tracer);
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    if (!EngineMetrics.isEnabled()) {
+      respond(exchange);
+      return;
+    }
+    long started = System.nanoTime();
+    long allocated = EngineMetrics.allocatedBytes();
+    try {
+      respond(exchange);
+    } finally {
+      EngineMetrics.global().record(EngineMetrics.Operation.REQUEST, started, allocated);
+    }
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    int status;
+    String body;
+    try {
+      String rawPath = exchange.getRequestURI().getPath();
+      // The context matches every path starting with /games, such as /gamesX
+      if (!rawPath.equals("/games") && !rawPath.startsWith("/games/")) {
+        throw new NotFoundException("No such path: " + rawPath);
+      }
+      String[] path = rawPath.split("/");
+      Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+      String method = exchange.getRequestMethod();
+      if (path.length == 2) {
+        requireMethod(method, "POST");
+        int radius = intParam(query, "radius", Game.DEFAULT_RADIUS);
+        int atoms = intParam(query, "atoms", Game.DEFAULT_ATOM_COUNT);
+        long id = create(radius, atoms);
+        status = 201;
+        body =
+            "{\"id\":" + id
+                + ",\"radius\":" + radius
+                + ",\"atoms\":" + atoms
+                + ",\"entries\":" + EntryCatalog.of(Board.of(radius)).size()
+                + "}";
+      } else {
+        long id = parseId(path[2]);
+        GameSession session = sessions.get(id);
+        if (session == null) {
+          throw new NotFoundException("No such game: " + id);
+        }
+        status = 200;
+        body = handleSession(id, session, path.length > 3 ? path[3] : "", method, query);
+      }
+    } catch (NotFoundException e) {
+      status = 404;
+      body = error(e.getMessage());
+    } catch (MethodNotAllowedException e) {
+      status = 405;
+      body = error(e.getMessage());
+    } catch (IllegalArgumentException e) {
+      status = 400;
+      body = error(e.getMessage());
+    } catch (ServerFullException e) {
+      status = 503;
+      body = error(e.getMessage());
+    } catch (IllegalStateException e) {
+      status = 409;
+      body = error(e.getMessage());
+    } catch (RuntimeException e) {
+      // Anything else is a bug, but the client still gets an answer rather than a timeout
+      status = 500;
+      body = error("Internal error: " + e);
+      EventLog.log(
+          EventLog.Level.WARN,
+          "Failed " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e);
+    }
+    try (exchange) {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+  }
+
+  private String handleSession(
+      long id, GameSession session, String action, String method, Map<String, String> query) {
+    Board board = session.getBoard();
+    switch (action) {
+      case "":
+        if (method.equals("DELETE")) {
+          if (!remove(id)) {
+            throw new NotFoundException("No such game: " + id);
+          }
+          return "{\"id\":" + id + "}";
+        }
+        requireMethod(method, "GET");
+        return state(id, session);
+      case "rays":
+        requireMethod(method, "POST");
+        EntryCatalog entries = EntryCatalog.of(board);
+        int entry;
+        if (query.containsKey("entry")) {
+          entry = intParam(query, "entry", -1);
+        } else {
+          int cell = cellParam(board, query);
+          int degree = intParam(query, "degree", -1);
+          entry = degree % 60 == 0 ? entries.indexOf(cell, Math.floorMod(degree / 60, 6)) : -1;
+          if (entry < 0) {
+            throw new IllegalArgumentException(
+                "Not an entry point: " + board.key(cell) + " at " + degree);
+          }
+        }
+        return ray(board, entry, fire(id, session, entry));
+      case "guesses":
+        requireMethod(method, "POST");
+        int cell = cellParam(board, query);
+        boolean marked;
+        synchronized (session) {
+          requireHosted(id, session);
+          marked = session.toggleGuess(cell);
+          if (journal != null) {
+            journal.append(id, ActionJournal.Action.GUESS, cell, marked ? 1 : 0, 0);
+          }
+        }
+        return "{\"hex\":\"" + board.key(cell)
+            + "\",\"marked\":" + marked
+            + ",\"guesses\":" + session.getGuesses()
+            + "}";
+      case "end":
+        requireMethod(method, "POST");
+        synchronized (session) {
+          requireHosted(id, session);
+          boolean wasEnded = session.isEnded();
+          int score = session.end();
+          if (journal != null && !wasEnded) {
+            journal.append(
+                id, ActionJournal.Action.END, session.getRaysShot(), session.getGuesses(), score);
+          }
+        }
+        return state(id, session);
+      default:
+        throw new IllegalArgumentException("Unknown action: " + action);
+    }
+  }
+
+  private static String state(long id, GameSession session) {
+    Board board = session.getBoard();
+    String json =
+        "{\"id\":" + id
+            + ",\"radius\":" + board.getRadius()
+            + ",\"rays\":" + session.getRaysShot()
+            + ",\"guesses\":" + session.getGuesses()
+            + ",\"ended\":" + session.isEnded();
+    if (!session.isEnded()) {
+      return json + "}";
+    }
+    StringJoiner atoms = new StringJoiner("\",\"", "[\"", "\"]");
+    for (int atom : session.getAtoms()) {
+      atoms.add(board.key(atom));
+    }
+    return json
+        + ",\"score\":" + session.score()
+        + ",\"hits\":" + session.hits()
+        + ",\"atoms\":" + atoms
+        + "}";
+  }
+
+  private static String ray(Board board, int entry, long packed) {
+    String json =
+        "{\"entry\":" + entry
+            + ",\"type\":\"" + RayResult.type(packed)
+            + "\",\"deflections\":" + RayResult.deflections(packed);
+    int exitCell = RayResult.exitCell(packed);
+    if (exitCell == Board.NO_CELL) {
+      return json + "}";
+    }
+    int exitDirection = RayResult.exitDirection(packed);
+    return json
+        + ",\"exit\":\"" + board.key(exitCell)
+        + "\",\"exitDegree\":" + exitDirection * 60
+        + ",\"exitEntry\":" + EntryCatalog.of(board).exitEntry(exitCell, exitDirection)
+        + "}";
+  }
+
+  private static String error(String message) {
+    return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+  }
+
+  private static void requireMethod(String method, String expected) {
+    if (!method.equals(expected)) {
+      throw new MethodNotAllowedException(method);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> params = new HashMap<>();
+    if (query != null) {
+      for (String pair : query.split("&")) {
+        int equals = pair.indexOf('=');
+        if (equals > 0) {
+          params.put(
+              pair.substring(0, equals),
+              URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+      }
+    }
+    return params;
+  }
+
+  private static long parseId(String id) {
+    try {
+      return Long.parseLong(id);
+    } catch (NumberFormatException e) {
+      throw new NotFoundException("No such game: " + id);
+    }
+  }
+
+  private static int intParam(Map<String, String> query, String name, int defaultValue) {
+    String value = query.get(name);
+    try {
+      return value == null ? defaultValue : Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid " + name + ": " + value, e);
+    }
+  }
+
+  private static int cellParam(Board board, Map<String, String> query) {
+    String hex = query.get("hex");
+    int cell = hex == null ? Board.NO_CELL : board.indexOf(hex);
+    if (cell == Board.NO_CELL) {
+      throw new IllegalArgumentException("Invalid hex: " + hex);
+    }
+    return cell;
+  }
+
+  // Commits the last actions of the journal on the way out.
+  private static void closeJournal(ActionJournal journal) {
+    try {
+      journal.close();
+    } catch (IOException e) {
+      EventLog.log(EventLog.Level.WARN, "Could not close the journal: " + e.getMessage());
+    }
+  }
+
+  // Thrown for requests naming a game or path the server does not have.
+  private static final class NotFoundException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NotFoundException(String message) {
+      super(message);
+    }
+  }
+
+  // Thrown for requests using a method their path does not accept.
+  private static final class MethodNotAllowedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    MethodNotAllowedException(String method) {
+      super("Method not allowed: " + method);
+    }
+  }
+
+  // Thrown when a game is started while the server hosts its maximum number of games.
+  private static final class ServerFullException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    ServerFullException(int maxSessions) {
+      super("Hosting the maximum of " + maxSessions + " games");
+    }
+  }
+
+  /**
+   * Starts a server until the process is stopped.
+   *
+   * @param args --bind=ADDRESS for the address to listen on, the loopback address by default,
+   *     --port=N for the port, --max-sessions=N for the highest number of games, --journal=FILE
+   *     to record the games' actions and --metrics to report EngineMetrics
+   * @throws IOException if the port can not be bound
+   */
+  public static void main(String[] args) throws IOException {
+    InetAddress address = InetAddress.getLoopbackAddress();
+    int port = DEFAULT_PORT;
+    int maxSessions = DEFAULT_MAX_SESSIONS;
+    ActionJournal journal = null;
+    for (String arg : args) {
+      String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("--bind=")) {
+        address = InetAddress.getByName(value);
+      } else if (arg.startsWith("--port=")) {
+        port = Integer.parseInt(value);
+      } else if (arg.startsWith("--max-sessions=")) {
+        maxSessions = Integer.parseInt(value);
+      } else if (arg.startsWith("--journal=")) {
+        journal = ActionJournal.open(Path.of(value), JOURNAL_COMMIT_INTERVAL);
+      } else if (arg.equals("--metrics")) {
+        EngineMetrics.enable();
+        EngineMetrics.global().startReporting(METRICS_PERIOD);
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    GameServer server = new GameServer(address, port, maxSessions, journal);
+    if (journal != null) {
+      ActionJournal opened = journal;
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> closeJournal(opened)));
+    }
+    server.start();
+    EventLog.log(
+        EventLog.Level.INFO,
+        "Serving games on " + server.getAddress().getHostAddress() + ":" + server.getPort());
+  }
+}
@@ -0,0 +1,211 @@
+package org.blackbox;
+
+import java.util.SplittableRandom;
+
+/**
+ * The GameSession class is the state of one game hosted by the GameServer: its atom layout, the
+ * entry points used up and the cells guessed. It holds no tracer of its own; rays are traced with
+ * a RayTracer borrowed from a pool shared by every session on the same board, and the board,
+ * catalog and rule tables are shared. Every method that reads the bitboards or the progress is
+ * synchronized, so requests for the same session may arrive on different threads; getBoard only
+ * reads the final radius and needs no lock.
+ *
+ * <p>A session is kept small enough to host hundreds of thousands at once: the atoms, the guesses
+ * and the entries used are three bitboards packed into a single long array, and the number of
+ * guesses and hits are counted from them rather than stored. On the standard board each bitboard
+ * is one word, so a session is an object and a three word array, 72 bytes with compressed oops.
+ */
+public final class GameSession {
+  private final int radius; // The board is looked up rather than referenced
+  private final long[] bits; // Atom, guess and used entry bitboards, in that order
+  private int raysShot;
+  private boolean ended;
+
+  /**
+   * Starts a game with the given atoms.
+   *
+   * @param board the board to play on
+   * @param atoms the cells holding atoms
+   */
+  public GameSession(Board board, int[] atoms) {
+    this(board);
+    for (int atom : atoms) {
+      if (atom < 0 || atom >= board.getCellCount() || isSet(atom)) {
+        throw new IllegalArgumentException("Invalid atom cell: " + atom);
+      }
+      set(atom);
+    }
+  }
+
+  private GameSession(Board board) {
+    this.radius = board.getRadius();
+    this.bits = new long[2 * cellWords() + ((EntryCatalog.of(board).size() + 63) >>> 6)];
+  }
+
+  /**
+   * Starts a game with a random layout, drawn with Floyd's algorithm straight into the bitboard.
+   *
+   * @param board the board to play on
+   * @param atomCount the number of atoms
+   * @param random the source of randomness for the layout
+   * @return the session
+   */
+  public static GameSession random(Board board, int atomCount, SplittableRandom random) {
+    int cells = board.getCellCount();
+    if (atomCount < 1 || atomCount > cells) {
+      throw new IllegalArgumentException("Invalid number of atoms: " + atomCount);
+    }
+    GameSession session = new GameSession(board);
+    for (int j = cells - atomCount; j < cells; j++) {
+      int cell = random.nextInt(j + 1);
+      session.set(session.isSet(cell) ? j : cell);
+    }
+    return session;
+  }
+
+  // Returns the number of words in a bitboard with a bit per cell, counting cells like Board.
+  private int cellWords() {
+    return (3 * radius * (radius + 1) + 1 + 63) >>> 6;
+  }
+
+  /**
+   * Fires a ray from an entry point. Like the entry point buttons of the GUI, an entry can not be
+   * fired again once it has been fired from or a ray has left through it.
+   *
+   * @param entry the entry of the board's EntryCatalog
+   * @param tracer a tracer for the board, whose layout is replaced by this session's atoms
+   * @return the outcome packed as described by RayResult
+   */
+  public synchronized long fire(int entry, RayTracer tracer) {
+    checkOpen();
+    Board board = getBoard();
+    EntryCatalog entries = EntryCatalog.of(board);
+    if (entry < 0 || entry >= entries.size()) {
+      throw new IllegalArgumentException("Invalid entry point: " + entry);
+    }
+    int usedFrom = 2 * cellWords() << 6;
+    if (isSet(usedFrom + entry)) {
+      throw new IllegalStateException("Entry point already used: " + entry);
+    }
+    tracer.getField().place(bits, 0);
+    long packed = tracer.trace(entries.cell(entry), entries.direction(entry));
+    raysShot++;
+    set(usedFrom + entry);
+    int exitCell = RayResult.exitCell(packed);
+    if (exitCell != Board.NO_CELL) {
+      set(usedFrom + entries.exitEntry(exitCell, RayResult.exitDirection(packed)));
+    }
+    return packed;
+  }
+
+  /**
+   * Marks a cell as guessed to hold an atom, or clears the guess if it was already marked. At most
+   * as many cells as there are atoms can be marked at once.
+   *
+   * @param cell the cell
+   * @return true if the cell is now marked
+   */
+  public synchronized boolean toggleGuess(int cell) {
+    checkOpen();
+    if (cell < 0 || cell >= getBoard().getCellCount()) {
+      throw new IllegalArgumentException("Invalid cell: " + cell);
+    }
+    int guess = (cellWords() << 6) + cell;
+    if (!isSet(guess) && getGuesses() == getAtomCount()) {
+      throw new IllegalStateException("Already guessed " + getGuesses() + " atoms");
+    }
+    bits[guess >>> 6] ^= 1L << guess;
+    return isSet(guess);
+  }
+
+  /**
+   * Ends the game once every atom has been guessed.
+   *
+   * @return the score: rays shot plus five for every wrong guess
+   */
+  public synchronized int end() {
+    if (!ended && getGuesses() < getAtomCount()) {
+      throw new IllegalStateException(
+          "Guessed " + getGuesses() + " of " + getAtomCount() + " atoms");
+    }
+    ended = true;
+    return score();
+  }
+
+  // Returns the score so far: rays shot plus five for every wrong guess.
+  public synchronized int score() {
+    return raysShot + 5 * (getGuesses() - hits());
+  }
+
+  public synchronized int hits() {
+    int words = cellWords();
+    int hits = 0;
+    for (int word = 0; word < words; word++) {
+      hits += Long.bitCount(bits[word] & bits[words + word]);
+    }
+    return hits;
+  }
+
+  public synchronized int getRaysShot() {
+    return raysShot;
+  }
+
+  public synchronized int getGuesses() {
+    return count(cellWords());
+  }
+
+  public synchronized int getAtomCount() {
+    return count(0);
+  }
+
+  public synchronized boolean isEnded() {
+    return ended;
+  }
+
+  // Returns the atoms in increasing order once the game has ended.
+  public synchronized int[] getAtoms() {
+    if (!ended) {
+      throw new IllegalStateException("The atoms are hidden until the game ends");
+    }
+    return layout();
+  }
+
+  // Returns the atoms in increasing order, hidden or not.
+  synchronized int[] layout() {
+    int[] atoms = new int[getAtomCount()];
+    int count = 0;
+    for (int word = 0, words = cellWords(); word < words; word++) {
+      for (long rest = bits[word]; rest != 0; rest &= rest - 1) {
+        atoms[count++] = (word << 6) + Long.numberOfTrailingZeros(rest);
+      }
+    }
+    return atoms;
+  }
+
+  public Board getBoard() {
+    return Board.of(radius);
+  }
+
+  private void checkOpen() {
+    if (ended) {
+      throw new IllegalStateException("The game has ended");
+    }
+  }
+
+  // Counts the bits of the cell bitboard starting at the given word.
+  private int count(int from) {
+    int count = 0;
+    for (int word = from, to = from + cellWords(); word < to; word++) {
+      count += Long.bitCount(bits[word]);
+    }
+    return count;
+  }
+
+  private boolean isSet(int index) {
+    return (bits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private void set(int index) {
+    bits[index >>> 6] |= 1L << index;
+  }
+}
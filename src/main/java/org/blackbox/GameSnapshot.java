@@ -0,0 +1,238 @@
+package org.blackbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable snapshot of a Game: its atoms, the rays fired with their traced outcomes, the cells
+ * guessed and the score fields. Restoring a snapshot reads the outcomes back instead of tracing the
+ * rays again. Cells and entries use the dense indices of the Board and its EntryCatalog.
+ *
+ * <p>A snapshot is encoded big-endian as the byte radius, the byte ordinal of the last encounter
+ * type, the short numbers of atoms, rays and guesses, the int rays shot and score, the short
+ * guesses and hits last scored, then a short per atom cell, a short entry, short path length and
+ * long packed outcome per ray, and a short per guessed cell. Bytes and shorts are unsigned, which
+ * holds every cell of a board up to MAX_RADIUS. SnapshotFile holds many snapshots after a header;
+ * save and load use the same layout for a single game.
+ *
+ * @param radius the radius of the board
+ * @param atoms the cells holding atoms
+ * @param rays the rays fired, in order
+ * @param guesses the cells guessed to hold atoms
+ * @param raysShot the rays shot as counted by the game
+ * @param atomsGuessed the guesses counted when the game was last scored
+ * @param atomsHit the guesses that were atoms when the game was last scored
+ * @param score the score when the game was last scored
+ * @param lastEncounterType the encounter type of the last ray fired
+ */
+public record GameSnapshot(
+    int radius,
+    int[] atoms,
+    List<Ray> rays,
+    int[] guesses,
+    int raysShot,
+    int atomsGuessed,
+    int atomsHit,
+    int score,
+    EncounterType lastEncounterType) {
+
+  // The largest board whose cells all fit an unsigned short
+  public static final int MAX_RADIUS = 147;
+  // Bytes before the variable-length cells and rays
+  static final int FIXED_BYTES = 20;
+  private static final int MAX_SHORT = 0xFFFF;
+  static final int RAY_BYTES = 12;
+  private static final EncounterType[] TYPES = EncounterType.values();
+
+  /**
+   * A ray fired in the game.
+   *
+   * @param entry the entry of the board's EntryCatalog it was fired from
+   * @param pathLength the number of cells it visited
+   * @param outcome the outcome packed as described by RayResult
+   */
+  public record Ray(int entry, int pathLength, long outcome) {
+    public Ray {
+      if (entry < 0 || entry > MAX_SHORT || pathLength < 0 || pathLength > MAX_SHORT) {
+        throw new IllegalArgumentException("Invalid ray: " + entry + ", " + pathLength);
+      }
+    }
+  }
+
+  public GameSnapshot {
+    if (radius < 0 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("Invalid radius: " + radius);
+    }
+    atoms = atoms.clone();
+    rays = List.copyOf(rays);
+    guesses = guesses.clone();
+  }
+
+  @Override
+  public int[] atoms() {
+    return atoms.clone();
+  }
+
+  @Override
+  public int[] guesses() {
+    return guesses.clone();
+  }
+
+  // Returns the number of bytes write puts in a buffer.
+  public int encodedSize() {
+    return FIXED_BYTES + 2 * (atoms.length + guesses.length) + RAY_BYTES * rays.size();
+  }
+
+  /**
+   * Writes the snapshot at the buffer's position.
+   *
+   * @param buffer the buffer, with at least encodedSize bytes remaining
+   */
+  public void write(ByteBuffer buffer) {
+    buffer
+        .put((byte) radius)
+        .put((byte) lastEncounterType.ordinal())
+        .putShort((short) atoms.length)
+        .putShort((short) rays.size())
+        .putShort((short) guesses.length)
+        .putInt(raysShot)
+        .putInt(score)
+        .putShort((short) atomsGuessed)
+        .putShort((short) atomsHit);
+    for (int atom : atoms) {
+      buffer.putShort((short) atom);
+    }
+    for (Ray ray : rays) {
+      buffer.putShort((short) ray.entry());
+      buffer.putShort((short) ray.pathLength());
+      buffer.putLong(ray.outcome());
+    }
+    for (int guess : guesses) {
+      buffer.putShort((short) guess);
+    }
+  }
+
+  /**
+   * Reads a snapshot written by write, advancing the buffer past it.
+   *
+   * @param buffer the buffer positioned at the snapshot
+   * @return the snapshot
+   * @throws IOException if the bytes are not a snapshot
+   */
+  public static GameSnapshot read(ByteBuffer buffer) throws IOException {
+    int radius = Byte.toUnsignedInt(buffer.get());
+    int type = Byte.toUnsignedInt(buffer.get());
+    if (radius > MAX_RADIUS || type >= TYPES.length) {
+      throw new IOException("Corrupt snapshot: radius " + radius + ", encounter type " + type);
+    }
+    int[] atoms = new int[unsignedShort(buffer)];
+    int rayCount = unsignedShort(buffer);
+    int[] guesses = new int[unsignedShort(buffer)];
+    int raysShot = buffer.getInt();
+    int score = buffer.getInt();
+    int atomsGuessed = unsignedShort(buffer);
+    int atomsHit = unsignedShort(buffer);
+    for (int i = 0; i < atoms.length; i++) {
+      atoms[i] = unsignedShort(buffer);
+    }
+    List<Ray> rays = new ArrayList<>(rayCount);
+    for (int i = 0; i < rayCount; i++) {
+      rays.add(new Ray(unsignedShort(buffer), unsignedShort(buffer), buffer.getLong()));
+    }
+    for (int i = 0; i < guesses.length; i++) {
+      guesses[i] = unsignedShort(buffer);
+    }
+    return new GameSnapshot(
+        radius, atoms, rays, guesses, raysShot, atomsGuessed, atomsHit, score, TYPES[type]);
+  }
+
+  private static int unsignedShort(ByteBuffer buffer) {
+    return Short.toUnsignedInt(buffer.getShort());
+  }
+
+  // Returns the encoded size of the snapshot at the buffer's position, without moving it.
+  static int encodedSize(ByteBuffer buffer) {
+    int at = buffer.position();
+    int atoms = Short.toUnsignedInt(buffer.getShort(at + 2));
+    int rays = Short.toUnsignedInt(buffer.getShort(at + 4));
+    int guesses = Short.toUnsignedInt(buffer.getShort(at + 6));
+    return FIXED_BYTES + 2 * (atoms + guesses) + RAY_BYTES * rays;
+  }
+
+  /**
+   * Writes the snapshot to a file of its own, replacing the file.
+   *
+   * @param file the file
+   * @throws IOException if the file can not be written
+   */
+  public void save(Path file) throws IOException {
+    SnapshotFile.write(file, List.of(this));
+  }
+
+  /**
+   * Reads a snapshot written by save.
+   *
+   * @param file the file
+   * @return the snapshot
+   * @throws IOException if the file can not be read or holds no snapshot
+   */
+  public static GameSnapshot load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+      buffer.flip();
+      SnapshotFile.checkHeader(buffer, file);
+      if (!buffer.hasRemaining()) {
+        throw new IOException("No game in " + file);
+      }
+      return read(buffer);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof GameSnapshot other
+        && radius == other.radius
+        && Arrays.equals(atoms, other.atoms)
+        && rays.equals(other.rays)
+        && Arrays.equals(guesses, other.guesses)
+        && raysShot == other.raysShot
+        && atomsGuessed == other.atomsGuessed
+        && atomsHit == other.atomsHit
+        && score == other.score
+        && lastEncounterType == other.lastEncounterType;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = radius;
+    result = 31 * result + Arrays.hashCode(atoms);
+    result = 31 * result + rays.hashCode();
+    result = 31 * result + Arrays.hashCode(guesses);
+    result = 31 * result + raysShot;
+    result = 31 * result + atomsGuessed;
+    result = 31 * result + atomsHit;
+    result = 31 * result + score;
+    return 31 * result + lastEncounterType.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "GameSnapshot[radius=" + radius
+        + ", atoms=" + Arrays.toString(atoms)
+        + ", rays=" + rays
+        + ", guesses=" + Arrays.toString(guesses)
+        + ", raysShot=" + raysShot
+        + ", atomsGuessed=" + atomsGuessed
+        + ", atomsHit=" + atomsHit
+        + ", score=" + score
+        + ", lastEncounterType=" + lastEncounterType
+        + "]";
+  }
+}
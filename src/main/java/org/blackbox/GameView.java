@@ -0,0 +1,29 @@
+package org.blackbox;
+
+import java.util.Map;
+
+/**
+ * The GameView interface is how a Game shows what happens to the player and reads their guesses.
+ * The GUI implements it with JavaFX; the Game itself never touches a display, so the rules run in
+ * batch jobs without JavaFX on the classpath. HEADLESS ignores every event and holds no guesses.
+ */
+public interface GameView {
+  GameView HEADLESS = new GameView() {};
+
+  // Called after a ray has been traced, before its cells are marked.
+  default void rayFired(RayResult result) {}
+
+  // Called for the entry and exit cells of a ray as it is fired.
+  default void cellMarked(int cell, CellMark mark) {}
+
+  // Called for the entry point button a ray left the board through.
+  default void disableButtonAt(String hex, int degree) {}
+
+  // Called for each atom when the atoms are revealed.
+  default void atomRevealed(int cell) {}
+
+  // Returns the cells the player has guessed hold atoms, keyed by hex with their hexagon number.
+  default Map<String, Integer> getOrangeHexButtons() {
+    return Map.of();
+  }
+}
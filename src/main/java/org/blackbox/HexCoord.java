@@ -0,0 +1,85 @@
+package org.blackbox;
+
+/**
+ * The HexCoord class packs cube coordinates into a single int so they can be stored, compared and
+ * hashed without building "x,y,z" strings. Each component is stored in 10 bits, which covers every
+ * coordinate from -512 to 511. Packing is a pure function of the coordinates, so two packed values
+ * are equal exactly when their coordinates are.
+ */
+public final class HexCoord {
+  private static final int BITS = 10;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final int OFFSET = 1 << (BITS - 1);
+  public static final int MIN = -OFFSET;
+  public static final int MAX = OFFSET - 1;
+  // Amount added to a packed coordinate to step once in each Board direction
+  private static final int[] DELTAS = new int[Board.DIRECTIONS];
+
+  static {
+    for (int d = 0; d < Board.DIRECTIONS; d++) {
+      DELTAS[d] = (Board.dx(d) << (2 * BITS)) + (Board.dy(d) << BITS) + Board.dz(d);
+    }
+  }
+
+  private HexCoord() {}
+
+  /**
+   * Packs the given cube coordinates into an int.
+   *
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @return the packed coordinate
+   */
+  public static int pack(int x, int y, int z) {
+    if (x < MIN || x > MAX || y < MIN || y > MAX || z < MIN || z > MAX) {
+      throw new IllegalArgumentException("Coordinate out of range: " + x + "," + y + "," + z);
+    }
+    return ((x + OFFSET) << (2 * BITS)) | ((y + OFFSET) << BITS) | (z + OFFSET);
+  }
+
+  public static int x(int coord) {
+    return ((coord >>> (2 * BITS)) & MASK) - OFFSET;
+  }
+
+  public static int y(int coord) {
+    return ((coord >>> BITS) & MASK) - OFFSET;
+  }
+
+  public static int z(int coord) {
+    return (coord & MASK) - OFFSET;
+  }
+
+  // Returns the packed coordinate one step away in the given Board direction. The step must not
+  // leave the packable range, which holds for any board that fits in a HexCoord.
+  public static int neighbor(int coord, int direction) {
+    return coord + DELTAS[direction];
+  }
+
+  // Returns the "x,y,z" key of a packed coordinate.
+  public static String key(int coord) {
+    return x(coord) + "," + y(coord) + "," + z(coord);
+  }
+
+  /**
+   * Parses an "x,y,z" key into a packed coordinate.
+   *
+   * @param key the coordinate key
+   * @return the packed coordinate
+   * @throws IllegalArgumentException if the key is malformed
+   */
+  public static int parse(String key) {
+    String[] coordinates = key.split(",");
+    if (coordinates.length != 3) {
+      throw new IllegalArgumentException("Invalid coordinate: " + key);
+    }
+    try {
+      return pack(
+          Integer.parseInt(coordinates[0].trim()),
+          Integer.parseInt(coordinates[1].trim()),
+          Integer.parseInt(coordinates[2].trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid coordinate: " + key, e);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package org.blackbox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The HexGrid interface gives the Game the hexagon locations it can place atoms and entry points
+ * on, as "x,y,z" keys. The GUI's HexagonManager implements it over the hexagons it draws; of
+ * returns a grid over every cell of a Board for games that run without a display.
+ */
+public interface HexGrid {
+
+  // Returns the keys of every hexagon on the grid.
+  Set<String> getAllHexagonLocations();
+
+  // Returns the keys of the hexagons next to the given coordinates.
+  List<String> getNeighborLocations(int x, int y, int z);
+
+  /**
+   * Returns a grid holding every cell of a board, in Board cell order.
+   *
+   * @param board the board
+   * @return the grid
+   */
+  static HexGrid of(Board board) {
+    Set<String> locations = new LinkedHashSet<>();
+    for (int cell = 0; cell < board.getCellCount(); cell++) {
+      locations.add(board.key(cell));
+    }
+    Set<String> allLocations = Collections.unmodifiableSet(locations);
+    return new HexGrid() {
+      @Override
+      public Set<String> getAllHexagonLocations() {
+        return allLocations;
+      }
+
+      @Override
+      public List<String> getNeighborLocations(int x, int y, int z) {
+        List<String> neighbors = new ArrayList<>(Board.DIRECTIONS);
+        int cell = board.indexOf(x, y, z);
+        if (cell == Board.NO_CELL) {
+          return neighbors;
+        }
+        for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+          int neighbor = board.neighbor(cell, direction);
+          if (neighbor != Board.NO_CELL) {
+            neighbors.add(board.key(neighbor));
+          }
+        }
+        return neighbors;
+      }
+    };
+  }
+}
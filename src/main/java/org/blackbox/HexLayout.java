@@ -0,0 +1,196 @@
+package org.blackbox;
+
+/**
+ * The HexLayout class maps between the cells and entry points of a Board and pixel positions on
+ * screen, using the same pointy-topped layout as the GUI. Points are mapped back to cells with cube
+ * coordinate rounding, so the canvas renderer finds the cell or entry point under the mouse with a
+ * few arithmetic operations instead of a node per hexagon. It holds no JavaFX types.
+ */
+public final class HexLayout {
+  private static final double SQRT3 = Math.sqrt(3);
+  // Fraction of the way from an entry's cell to the cell outside it where its marker is drawn
+  private static final double MARKER_OFFSET = 0.75;
+  // Corners of a hexagon of size 1 relative to its centre, in the order they are drawn
+  private static final double[] CORNER_X = new double[6];
+  private static final double[] CORNER_Y = new double[6];
+
+  static {
+    for (int i = 0; i < 6; i++) {
+      double angle = i * Math.PI / 3 + Math.PI / 6;
+      CORNER_X[i] = Math.cos(angle);
+      CORNER_Y[i] = Math.sin(angle);
+    }
+  }
+
+  private final Board board;
+  private final EntryCatalog entries;
+  private final double size;
+  private final double centerX;
+  private final double centerY;
+  // Centre of each cell, computed once
+  private final double[] cellXs;
+  private final double[] cellYs;
+
+  /**
+   * Lays out a board around a centre point.
+   *
+   * @param board the board
+   * @param size the distance from the centre of a hexagon to its corners
+   * @param centerX the x position of the centre cell
+   * @param centerY the y position of the centre cell
+   */
+  public HexLayout(Board board, double size, double centerX, double centerY) {
+    if (!(size > 0)) {
+      throw new IllegalArgumentException("Invalid hexagon size: " + size);
+    }
+    this.board = board;
+    this.entries = EntryCatalog.of(board);
+    this.size = size;
+    this.centerX = centerX;
+    this.centerY = centerY;
+    cellXs = new double[board.getCellCount()];
+    cellYs = new double[board.getCellCount()];
+    for (int cell = 0; cell < cellXs.length; cell++) {
+      cellXs[cell] = x(board.x(cell), board.y(cell));
+      cellYs[cell] = y(board.x(cell), board.y(cell));
+    }
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  public double getSize() {
+    return size;
+  }
+
+  // Returns the x position of the centre of the hexagon at axial coordinates x and y.
+  public double x(int x, int y) {
+    return SQRT3 * size * (x + y / 2.0) + centerX;
+  }
+
+  // Returns the y position of the centre of the hexagon at axial coordinates x and y.
+  public double y(int x, int y) {
+    return 1.5 * size * y + centerY;
+  }
+
+  public double cellX(int cell) {
+    return cellXs[cell];
+  }
+
+  public double cellY(int cell) {
+    return cellYs[cell];
+  }
+
+  // Returns the x offset of a corner of every hexagon from its centre.
+  public double cornerX(int corner) {
+    return size * CORNER_X[corner];
+  }
+
+  // Returns the y offset of a corner of every hexagon from its centre.
+  public double cornerY(int corner) {
+    return size * CORNER_Y[corner];
+  }
+
+  // Returns the x position of the marker of an entry point, just outside the edge it fires across.
+  public double entryX(int entry) {
+    int cell = entries.cell(entry);
+    int outside = Board.reverse(entries.direction(entry));
+    return cellX(cell) + MARKER_OFFSET * (x(Board.dx(outside), Board.dy(outside)) - centerX);
+  }
+
+  // Returns the y position of the marker of an entry point.
+  public double entryY(int entry) {
+    int cell = entries.cell(entry);
+    int outside = Board.reverse(entries.direction(entry));
+    return cellY(cell) + MARKER_OFFSET * (y(Board.dx(outside), Board.dy(outside)) - centerY);
+  }
+
+  /**
+   * Fills arrays with the corners of a cell's hexagon, in the order they are drawn.
+   *
+   * @param cell the cell
+   * @param xs an array of at least six elements to receive the x positions
+   * @param ys an array of at least six elements to receive the y positions
+   */
+  public void corners(int cell, double[] xs, double[] ys) {
+    double x = cellX(cell);
+    double y = cellY(cell);
+    for (int i = 0; i < 6; i++) {
+      xs[i] = x + cornerX(i);
+      ys[i] = y + cornerY(i);
+    }
+  }
+
+  /**
+   * Returns the cell whose hexagon contains a point.
+   *
+   * @param px the x position
+   * @param py the y position
+   * @return the cell, or NO_CELL if the point is off the board
+   */
+  public int cellAt(double px, double py) {
+    int coord = coordAt(px, py);
+    return coord == Integer.MIN_VALUE ? Board.NO_CELL : board.indexOfCoord(coord);
+  }
+
+  /**
+   * Returns the entry point whose marker is nearest a point in the ring of hexagons around the
+   * board. The hexagon outside the board holding the point is found by rounding, and the entry is
+   * the one firing from it into whichever of its neighbours on the board is nearest the point.
+   *
+   * @param px the x position
+   * @param py the y position
+   * @return the entry of the board's EntryCatalog, or -1 if the point is not next to the board
+   */
+  public int entryAt(double px, double py) {
+    int coord = coordAt(px, py);
+    if (coord == Integer.MIN_VALUE || board.indexOfCoord(coord) != Board.NO_CELL) {
+      return -1;
+    }
+    int best = -1;
+    double bestDistance = Double.MAX_VALUE;
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      int cell = board.indexOfCoord(HexCoord.neighbor(coord, direction));
+      if (cell == Board.NO_CELL) {
+        continue;
+      }
+      // The ray crosses into the cell travelling away from the outside hexagon
+      int entry = entries.indexOf(cell, direction);
+      double dx = entryX(entry) - px;
+      double dy = entryY(entry) - py;
+      if (dx * dx + dy * dy < bestDistance) {
+        bestDistance = dx * dx + dy * dy;
+        best = entry;
+      }
+    }
+    return best;
+  }
+
+  // Returns the packed coordinate of the hexagon holding a point, or Integer.MIN_VALUE if it is
+  // more than one ring outside the board.
+  private int coordAt(double px, double py) {
+    double fy = (py - centerY) / (1.5 * size);
+    double fx = (px - centerX) / (SQRT3 * size) - fy / 2;
+    double fz = -fx - fy;
+    long x = Math.round(fx);
+    long y = Math.round(fy);
+    long z = Math.round(fz);
+    // Rounding can break x + y + z = 0; the component that moved furthest is recomputed
+    double errorX = Math.abs(x - fx);
+    double errorY = Math.abs(y - fy);
+    double errorZ = Math.abs(z - fz);
+    if (errorX > errorY && errorX > errorZ) {
+      x = -y - z;
+    } else if (errorY > errorZ) {
+      y = -x - z;
+    } else {
+      z = -x - y;
+    }
+    long limit = board.getRadius() + 1L;
+    if (Math.abs(x) > limit || Math.abs(y) > limit || Math.abs(z) > limit) {
+      return Integer.MIN_VALUE;
+    }
+    return HexCoord.pack((int) x, (int) y, (int) z);
+  }
+}
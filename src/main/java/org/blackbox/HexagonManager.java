@@ -4,64 +4,121 @@ import java.util.*;
 import javafx.scene.paint.Color;
 
 /**
- * The HexagonManager class manages the hexagons in the game. It stores the hexagons in a map for
- * easy access and provides methods to manipulate and retrieve information about the hexagons.
+ * The HexagonManager class manages the hexagons in the game. Hexagons on the board are stored in an
+ * array indexed by their Board cell for fast access, and the String based methods are kept as an
+ * adapter over those cells for the rest of the game.
  */
-public class HexagonManager {
+public class HexagonManager implements HexGrid {
 
-  // Directions for neighboring hexagons
-  private static final int[][] DIRECTIONS = {
-    {+1, -1, 0}, {+1, 0, -1}, {0, +1, -1},
-    {-1, +1, 0}, {-1, 0, +1}, {0, -1, +1}
-  };
-  // Map to store hexagons for easy access
-  private final Map<String, GUI.Hexagon> hexagons;
+  private final Board board;
+  // Hexagons indexed by board cell
+  private final GUI.Hexagon[] cells;
+  // Hexagons added at coordinates that are not on the board, keyed by packed HexCoord
+  private final Map<Integer, GUI.Hexagon> offBoard;
+  // "x,y,z" keys of every hexagon in the order they were added
+  private final Set<String> locations;
 
-  // Constructor initializes the hexagons map.
+  // Constructor initializes the hexagon storage for the board size configured in the GUI.
   public HexagonManager() {
-    hexagons = new HashMap<>();
+    this(Board.of(GUI.getRadius()));
+  }
+
+  public HexagonManager(Board board) {
+    this.board = board;
+    cells = new GUI.Hexagon[board.getCellCount()];
+    offBoard = new HashMap<>();
+    locations = new LinkedHashSet<>();
+  }
+
+  public Board getBoard() {
+    return board;
   }
 
   // Returns a list of neighboring locations for the given coordinates.
+  @Override
   public List<String> getNeighborLocations(int x, int y, int z) {
     List<String> neighbors = new ArrayList<>();
-    for (int[] direction : DIRECTIONS) {
-      int newX = x + direction[0];
-      int newY = y + direction[1];
-      int newZ = z + direction[2];
-      String neighborKey = newX + "," + newY + "," + newZ;
-      if (hexagons.containsKey(neighborKey)) {
-        neighbors.add(neighborKey);
+    int coord = HexCoord.pack(x, y, z);
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      int neighbor = HexCoord.neighbor(coord, direction);
+      if (getHexagonAt(neighbor) != null) {
+        neighbors.add(HexCoord.key(neighbor));
       }
     }
     return neighbors;
   }
 
-  // Adds hexagon to a map settings it co-ordinates as it's key allowing for fast and easy access
+  /**
+   * Fills the given array with the board cells next to a cell that hold a hexagon.
+   *
+   * @param cell the board cell
+   * @param neighbors an array of at least six elements to receive the neighbouring cells
+   * @return the number of neighbouring cells written
+   */
+  public int getNeighborCells(int cell, int[] neighbors) {
+    int count = 0;
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      int neighbor = board.neighbor(cell, direction);
+      if (neighbor != Board.NO_CELL && cells[neighbor] != null) {
+        neighbors[count++] = neighbor;
+      }
+    }
+    return count;
+  }
+
+  // Returns true if the cell lies on the edge of the board.
+  public boolean isBoundary(int cell) {
+    return board.isBoundary(cell);
+  }
+
+  // Adds hexagon to the board array using its co-ordinates, allowing for fast and easy access
   public void addHexagon(int x, int y, int z, GUI.Hexagon hexagon) {
-    String key = x + "," + y + "," + z;
-    hexagons.put(key, hexagon);
+    int coord = HexCoord.pack(x, y, z);
+    int cell = board.indexOfCoord(coord);
+    if (cell != Board.NO_CELL) {
+      cells[cell] = hexagon;
+    } else {
+      offBoard.put(coord, hexagon);
+    }
+    locations.add(HexCoord.key(coord));
   }
 
   // Returns a set of all hexagon locations in the map.
+  @Override
   public Set<String> getAllHexagonLocations() {
-    return hexagons.keySet();
+    return Collections.unmodifiableSet(locations);
   }
 
   // Get a hexagon from the map using its coordinates
   public GUI.Hexagon getHexagon(int x, int y, int z) {
-    String key = x + "," + y + "," + z;
-    return hexagons.get(key);
+    return getHexagonAt(HexCoord.pack(x, y, z));
+  }
+
+  // Get a hexagon using its board cell
+  public GUI.Hexagon getHexagon(int cell) {
+    return cells[cell];
   }
 
   // Alter the color of a hexagon
   public void alterHexagon(int x, int y, int z, Color newColor) {
-    GUI.Hexagon hex = getHexagon(x, y, z);
+    setFill(getHexagon(x, y, z), newColor);
+  }
+
+  // Alter the color of a hexagon using its board cell
+  public void alterHexagon(int cell, Color newColor) {
+    setFill(cells[cell], newColor);
+  }
+
+  private GUI.Hexagon getHexagonAt(int coord) {
+    int cell = board.indexOfCoord(coord);
+    return cell != Board.NO_CELL ? cells[cell] : offBoard.get(coord);
+  }
+
+  private void setFill(GUI.Hexagon hex, Color newColor) {
     if (hex != null) {
       Color transparentColor =
           Color.color(newColor.getRed(), newColor.getGreen(), newColor.getBlue(), 0.7);
       hex.setFill(transparentColor);
     }
-    GUI.updateButtons();
   }
 }
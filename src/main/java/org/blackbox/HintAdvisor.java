@@ -0,0 +1,323 @@
+package org.blackbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * The HintAdvisor class ranks the entry points a player has not used yet by how much firing them is
+ * expected to reveal. A ray's outcome is fixed by the layout, so its expected information gain is
+ * the entropy of its outcome over the layouts still consistent with the rays fired so far.
+ *
+ * <p>The consistent layouts are sampled uniformly. Each ranking keeps its sample, and while later
+ * observations extend the ones it was made for, the sample is filtered by the new rays instead of
+ * drawn again: a uniform sample of the layouts that fit fewer rays, cut down to those that fit them
+ * all, is a uniform sample of the latter. Once the sample holds every consistent layout, later
+ * rankings are exact and cost no tracing at all. Otherwise random layouts are drawn from the cells
+ * not proven empty and the inconsistent ones rejected, within a time budget; once too few fit for
+ * that, the RaySolver samples them exactly, and rejection is not tried again while later
+ * observations extend those. Signatures of sampled layouts are cached by layout hash, so the layouts that survive a
+ * click are not traced again on the next one. Sampling, tracing and scoring all run in parallel.
+ *
+ * <p>advise is synchronized, so a ranking can be computed on a background thread while the game
+ * goes on, as long as it is given its own copy of the observations.
+ */
+public final class HintAdvisor {
+  public static final int DEFAULT_SAMPLE_SIZE = 1024;
+  // Random layouts drawn, and the time spent drawing them, before falling back to the solver
+  private static final int MAX_DRAWS = 200_000;
+  private static final long MAX_DRAW_NANOS = 30_000_000;
+  private static final int DRAW_CHUNKS = 64;
+  // The cache is cleared when it grows past this many layouts
+  private static final int MAX_CACHED_LAYOUTS = 1 << 16;
+
+  private final Board board;
+  private final EntryCatalog entries;
+  private final int atomCount;
+  private final int sampleSize;
+  private final RaySolver solver;
+  private final long[] cellKeys; // Random key per cell, XORed into layout hashes
+  private final Map<Long, int[]> signatures = new ConcurrentHashMap<>();
+  private final ThreadLocal<Sampler> samplers;
+  private final SplittableRandom seeds = new SplittableRandom(); // Only used inside advise
+  private Basis last; // The sample behind the last ranking, or null
+
+  /**
+   * The expected information gain of firing a ray.
+   *
+   * @param entry the entry of the board's EntryCatalog
+   * @param expectedGain the expected information in bits
+   */
+  public record Hint(int entry, double expectedGain) {}
+
+  /**
+   * Entry points ranked by expected information gain.
+   *
+   * @param layouts the number of consistent layouts, estimated unless exact
+   * @param exact whether layouts is an exact count
+   * @param ranking the unused entry points, most informative first
+   */
+  public record Advice(long layouts, boolean exact, List<Hint> ranking) {
+
+    // Returns the most informative entry point, or -1 if every ray has been fired.
+    public int bestEntry() {
+      return ranking.isEmpty() ? -1 : ranking.get(0).entry();
+    }
+  }
+
+  public HintAdvisor(Board board, int atomCount) {
+    this(board, atomCount, DEFAULT_SAMPLE_SIZE);
+  }
+
+  /**
+   * Constructs an advisor.
+   *
+   * @param board the board the atoms are hidden on
+   * @param atomCount the number of hidden atoms
+   * @param sampleSize the number of consistent layouts the ranking is computed over
+   */
+  public HintAdvisor(Board board, int atomCount, int sampleSize) {
+    this.board = board;
+    this.entries = EntryCatalog.of(board);
+    this.atomCount = atomCount;
+    this.sampleSize = sampleSize;
+    this.solver = new RaySolver(board, atomCount);
+    SplittableRandom keys = new SplittableRandom(board.getRadius());
+    this.cellKeys = new long[board.getCellCount()];
+    for (int cell = 0; cell < cellKeys.length; cell++) {
+      cellKeys[cell] = keys.nextLong();
+    }
+    this.samplers = ThreadLocal.withInitial(Sampler::new);
+  }
+
+  /**
+   * Ranks every entry point whose outcome is not known yet.
+   *
+   * @param observations the rays fired so far
+   * @return the ranking
+   */
+  public synchronized Advice advise(List<RaySolver.Observation> observations) {
+    boolean[] known = new boolean[entries.size()];
+    for (RaySolver.Observation observation : observations) {
+      known[observation.entry()] = true;
+      int exit = RaySignature.exitEntry(observation.outcome());
+      if (exit >= 0) {
+        known[exit] = true; // Firing back from the exit retraces the same ray
+      }
+    }
+    if (signatures.size() > MAX_CACHED_LAYOUTS) {
+      signatures.clear();
+    }
+
+    List<RaySolver.Observation> fired = List.copyOf(observations);
+    boolean extendsLast = last != null && extendsLast(fired);
+    Basis basis = extendsLast ? filterLast(fired) : null;
+    if (basis == null && !(extendsLast && last.solved())) {
+      basis = drawConsistent(fired);
+    }
+    if (basis == null) {
+      RaySolver.Solution solution = solver.sample(fired, sampleSize, seeds.nextLong());
+      basis =
+          new Basis(
+              fired,
+              solution.layouts(),
+              solution.count(),
+              true,
+              solution.count() == solution.layouts().size(),
+              true);
+    }
+    last = basis;
+    int[][] outcomes = basis.sample().parallelStream().map(this::signature).toArray(int[][]::new);
+
+    List<Hint> ranking =
+        IntStream.range(0, entries.size())
+            .parallel()
+            .filter(entry -> !known[entry])
+            .mapToObj(entry -> new Hint(entry, entropy(outcomes, entry)))
+            .sorted(Comparator.comparingDouble(Hint::expectedGain).reversed())
+            .toList();
+    return new Advice(basis.layouts(), basis.exact(), ranking);
+  }
+
+  /**
+   * The sample a ranking is computed over.
+   *
+   * @param observations the observations every layout of the sample fits
+   * @param sample a uniform sample of the consistent layouts
+   * @param layouts the number of consistent layouts, estimated unless exact
+   * @param exact whether layouts is an exact count
+   * @param complete whether the sample holds every consistent layout
+   * @param solved whether rejection sampling has given up on these or fewer observations
+   */
+  private record Basis(
+      List<RaySolver.Observation> observations,
+      List<int[]> sample,
+      long layouts,
+      boolean exact,
+      boolean complete,
+      boolean solved) {}
+
+  // Returns true if the observations start with those of the last ranking.
+  private boolean extendsLast(List<RaySolver.Observation> observations) {
+    int count = last.observations().size();
+    return observations.size() >= count
+        && observations.subList(0, count).equals(last.observations());
+  }
+
+  // Filters the last sample by the observations added since, or returns null if too few are left.
+  private Basis filterLast(List<RaySolver.Observation> observations) {
+    List<RaySolver.Observation> added =
+        observations.subList(last.observations().size(), observations.size());
+    List<int[]> kept =
+        last.sample().parallelStream().filter(layout -> fits(signature(layout), added)).toList();
+    if (last.complete()) {
+      return new Basis(observations, kept, kept.size(), true, true, last.solved());
+    }
+    // A smaller sample still ranks well, and is far cheaper than a new one
+    if (kept.size() < sampleSize / 4) {
+      return null;
+    }
+    long layouts = Math.round((double) last.layouts() * kept.size() / last.sample().size());
+    return new Basis(observations, kept, layouts, false, false, last.solved());
+  }
+
+  private static boolean fits(int[] signature, List<RaySolver.Observation> observations) {
+    for (RaySolver.Observation observation : observations) {
+      if (signature[observation.entry()] != observation.outcome()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Returns the signature of a layout from the cache, tracing it on a miss.
+  private int[] signature(int[] layout) {
+    long hash = 0;
+    for (int cell : layout) {
+      hash ^= cellKeys[cell];
+    }
+    return signatures.computeIfAbsent(hash, key -> samplers.get().signature(layout));
+  }
+
+  // Returns the entropy in bits of an entry's outcome over the sampled layouts.
+  private double entropy(int[][] outcomes, int entry) {
+    int[] counts = new int[(entries.size() + 1) << 3];
+    for (int[] signature : outcomes) {
+      counts[signature[entry]]++;
+    }
+    double n = outcomes.length;
+    double entropy = 0;
+    for (int count : counts) {
+      if (count > 0) {
+        double p = count / n;
+        entropy -= p * Math.log(p);
+      }
+    }
+    return entropy / Math.log(2);
+  }
+
+  /**
+   * Draws random layouts in parallel and keeps those consistent with the observations. Atoms are
+   * only drawn from the cells the observations do not prove empty, which keeps the sample uniform
+   * while rejecting far fewer layouts. Returns null if too few fit within the draw budget.
+   */
+  private Basis drawConsistent(List<RaySolver.Observation> observations) {
+    long[] empty = solver.emptyCells(observations);
+    int[] forbidden = new int[board.getCellCount()];
+    int forbiddenCount = 0;
+    for (int cell = 0; cell < forbidden.length; cell++) {
+      if ((empty[cell >>> 6] & (1L << cell)) != 0) {
+        forbidden[forbiddenCount++] = cell;
+      }
+    }
+    int candidates = board.getCellCount() - forbiddenCount;
+    if (candidates < atomCount) {
+      return null;
+    }
+    int[] excluded = Arrays.copyOf(forbidden, forbiddenCount);
+    AtomicInteger accepted = new AtomicInteger();
+    AtomicInteger drawn = new AtomicInteger();
+    long seed = seeds.nextLong();
+    long deadline = System.nanoTime() + MAX_DRAW_NANOS;
+    List<int[]> sample =
+        IntStream.range(0, DRAW_CHUNKS)
+            .parallel()
+            .mapToObj(
+                chunk -> {
+                  SplittableRandom random = new SplittableRandom(seed + chunk);
+                  LayoutSampler layouts = new LayoutSampler(board, atomCount, 1, excluded);
+                  Sampler sampler = samplers.get();
+                  List<int[]> found = new ArrayList<>();
+                  for (int i = 0; i < MAX_DRAWS / DRAW_CHUNKS; i++) {
+                    if (accepted.get() >= sampleSize || System.nanoTime() > deadline) {
+                      break;
+                    }
+                    drawn.incrementAndGet();
+                    int[] layout = sampler.draw(layouts, random, observations);
+                    if (layout != null) {
+                      found.add(layout);
+                      accepted.incrementAndGet();
+                    }
+                  }
+                  return found;
+                })
+            .flatMap(List::stream)
+            .toList();
+    // A smaller rejection sample still ranks well, and is far cheaper than an exact one
+    if (sample.size() < sampleSize / 16) {
+      return null;
+    }
+    // Scale the acceptance rate up to every layout of the candidate cells
+    double total = Math.exp(logBinomial(candidates, atomCount));
+    long layouts = Math.round(total * sample.size() / drawn.get());
+    return new Basis(observations, sample, layouts, false, false, false);
+  }
+
+  private static double logBinomial(int n, int k) {
+    double result = 0;
+    for (int i = 0; i < k; i++) {
+      result += Math.log(n - i) - Math.log(i + 1);
+    }
+    return result;
+  }
+
+  // Per-thread layout and tracer.
+  private final class Sampler {
+    private final int[] cells = new int[atomCount];
+    private final AtomField field = new AtomField(board, new int[0]);
+    private final RayTracer tracer = new RayTracer(field);
+
+    // Draws a random layout and returns it if every observed ray agrees with it, or null.
+    int[] draw(
+        LayoutSampler layouts, SplittableRandom random, List<RaySolver.Observation> observations) {
+      layouts.draw(random, cells, 0);
+      field.place(cells, atomCount);
+      for (RaySolver.Observation observation : observations) {
+        int entry = observation.entry();
+        long packed = tracer.trace(entries.cell(entry), entries.direction(entry));
+        int exitCell = RayResult.exitCell(packed);
+        int exit =
+            exitCell == Board.NO_CELL
+                ? -1
+                : entries.exitEntry(exitCell, RayResult.exitDirection(packed));
+        if (RaySignature.encode(RayResult.type(packed), exit) != observation.outcome()) {
+          return null;
+        }
+      }
+      int[] layout = Arrays.copyOf(cells, atomCount);
+      Arrays.sort(layout);
+      return layout;
+    }
+
+    int[] signature(int[] layout) {
+      field.place(layout, layout.length);
+      return RaySignature.compute(tracer);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package org.blackbox;
+
+import java.util.Arrays;
+
+/**
+ * The IncrementalSignature class keeps the ray signature of an atom layout up to date while atoms
+ * are moved one at a time. Each ray remembers its footprint, the cells on its path and next to it,
+ * which are the only cells whose contents it depends on; moving an atom re-traces just the rays
+ * whose footprint holds the old or new cell, and keeps count of how many outcomes differ from a
+ * reference signature. An instance is not thread-safe.
+ */
+public final class IncrementalSignature {
+  private final Board board;
+  private final EntryCatalog entries;
+  private final AtomField field;
+  private final RayTracer tracer;
+  private final int words; // Longs per bitset of entries
+  private final int[] signature;
+  private final int[] reference;
+  private final long[] results; // Packed ray result per entry
+  private final long[][] footprints; // Entry -> cells the ray depends on
+  private final long[][] readers; // Cell -> entries whose ray depends on it
+  private final long[] pending; // Entries waiting to be re-traced
+  private int differences;
+  private long retraced;
+
+  /**
+   * Traces every ray of the given layout.
+   *
+   * @param board the board the atoms are placed on
+   * @param atomCells the cells holding atoms
+   */
+  public IncrementalSignature(Board board, int[] atomCells) {
+    this.board = board;
+    this.entries = EntryCatalog.of(board);
+    this.field = new AtomField(board, atomCells);
+    this.tracer = new RayTracer(field);
+    int size = entries.size();
+    this.words = (size + 63) >>> 6;
+    this.signature = new int[size];
+    this.reference = new int[size];
+    this.results = new long[size];
+    this.footprints = new long[size][(board.getCellCount() + 63) >>> 6];
+    this.readers = new long[board.getCellCount()][words];
+    this.pending = new long[words];
+    reset(atomCells, atomCells.length);
+  }
+
+  /**
+   * Replaces the layout and traces every ray again. The new signature becomes the reference.
+   *
+   * @param atomCells the cells holding atoms
+   * @param count the number of cells to use
+   */
+  public void reset(int[] atomCells, int count) {
+    field.place(atomCells, count);
+    for (long[] cellReaders : readers) {
+      Arrays.fill(cellReaders, 0);
+    }
+    for (long[] footprint : footprints) {
+      Arrays.fill(footprint, 0);
+    }
+    Arrays.fill(pending, -1L);
+    retrace();
+    markReference();
+  }
+
+  /**
+   * Moves an atom and re-traces the rays that depend on either cell.
+   *
+   * @param from a cell holding an atom
+   * @param to an empty cell
+   */
+  public void move(int from, int to) {
+    if (!field.isAtom(from) || field.isAtom(to)) {
+      throw new IllegalArgumentException(
+          "Can not move an atom from " + board.key(from) + " to " + board.key(to));
+    }
+    field.remove(from);
+    field.add(to);
+    for (int i = 0; i < words; i++) {
+      pending[i] = readers[from][i] | readers[to][i];
+    }
+    retrace();
+  }
+
+  // Makes the current signature the one that differences are counted against.
+  public void markReference() {
+    System.arraycopy(signature, 0, reference, 0, signature.length);
+    differences = 0;
+  }
+
+  // Returns the number of entries whose outcome differs from the reference signature.
+  public int differences() {
+    return differences;
+  }
+
+  // Returns the outcome of an entry, encoded as by RaySignature.
+  public int outcome(int entry) {
+    return signature[entry];
+  }
+
+  // Returns the packed RayResult of an entry, including its number of deflections.
+  public long result(int entry) {
+    return results[entry];
+  }
+
+  public int[] copySignature() {
+    return signature.clone();
+  }
+
+  public AtomField getField() {
+    return field;
+  }
+
+  // Returns the number of rays traced since construction, for measuring the incremental saving.
+  public long getRetraced() {
+    return retraced;
+  }
+
+  // Traces every pending entry, filling in its reverse ray from the same trace.
+  private void retrace() {
+    int size = entries.size();
+    for (int word = 0; word < words; word++) {
+      while (pending[word] != 0) {
+        int entry = (word << 6) + Long.numberOfTrailingZeros(pending[word]);
+        pending[word] &= pending[word] - 1;
+        if (entry >= size) {
+          pending[word] = 0;
+          break;
+        }
+        int cell = entries.cell(entry);
+        int direction = entries.direction(entry);
+        long packed = tracer.trace(cell, direction);
+        retraced++;
+        long[] footprint = footprints[entry];
+        clearReader(entry, footprint);
+        Arrays.fill(footprint, 0);
+        for (int step = 0; step < tracer.pathLength(); step++) {
+          int pathCell = tracer.pathCell(step);
+          mark(footprint, pathCell);
+          for (int d = 0; d < Board.DIRECTIONS; d++) {
+            int neighbor = board.neighbor(pathCell, d);
+            if (neighbor != Board.NO_CELL) {
+              mark(footprint, neighbor);
+            }
+          }
+        }
+        setReader(entry, footprint);
+        int exitCell = RayResult.exitCell(packed);
+        if (exitCell == Board.NO_CELL) {
+          update(entry, packed, RaySignature.encode(RayResult.type(packed), -1));
+          continue;
+        }
+        int exit = entries.exitEntry(exitCell, RayResult.exitDirection(packed));
+        update(entry, packed, RaySignature.encode(RayResult.type(packed), exit));
+        if (exit != entry) {
+          // The reverse ray follows the same path back to this entry
+          long reverse =
+              RayResult.pack(
+                  cell,
+                  Board.reverse(direction),
+                  RayResult.type(packed),
+                  RayResult.deflections(packed));
+          update(exit, reverse, RaySignature.encode(RayResult.type(packed), entry));
+          clearReader(exit, footprints[exit]);
+          System.arraycopy(footprint, 0, footprints[exit], 0, footprint.length);
+          setReader(exit, footprint);
+          pending[exit >>> 6] &= ~(1L << exit);
+        }
+      }
+    }
+  }
+
+  private void update(int entry, long packed, int outcome) {
+    boolean before = signature[entry] == reference[entry];
+    results[entry] = packed;
+    signature[entry] = outcome;
+    boolean after = outcome == reference[entry];
+    if (before != after) {
+      differences += after ? -1 : 1;
+    }
+  }
+
+  private void clearReader(int entry, long[] footprint) {
+    for (int word = 0; word < footprint.length; word++) {
+      for (long bits = footprint[word]; bits != 0; bits &= bits - 1) {
+        readers[(word << 6) + Long.numberOfTrailingZeros(bits)][entry >>> 6] &= ~(1L << entry);
+      }
+    }
+  }
+
+  private void setReader(int entry, long[] footprint) {
+    for (int word = 0; word < footprint.length; word++) {
+      for (long bits = footprint[word]; bits != 0; bits &= bits - 1) {
+        readers[(word << 6) + Long.numberOfTrailingZeros(bits)][entry >>> 6] |= 1L << entry;
+      }
+    }
+  }
+
+  private static void mark(long[] bits, int cell) {
+    bits[cell >>> 6] |= 1L << cell;
+  }
+}
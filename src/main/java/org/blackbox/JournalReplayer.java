@@ -0,0 +1,194 @@
+package org.blackbox;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The JournalReplayer class rebuilds games from an ActionJournal. Every game is played again on a
+ * headless Game with the journaled layout: its rays are traced afresh and compared with the
+ * journaled outcomes, and its score is recomputed and compared with the journaled one, so a replay
+ * both reconstructs the game and audits it. Any difference is reported as a divergence. Games
+ * journaled as removed are dropped, so a replay holds the games the server was still hosting.
+ */
+public final class JournalReplayer implements Consumer<ActionJournal.Entry> {
+  private final Map<Long, Replay> replays = new LinkedHashMap<>();
+
+  /** A game rebuilt from the journal. */
+  public static final class Replay {
+    private final long session;
+    private final Game game;
+    private final long layoutSeed;
+    private final int[] atoms;
+    private int placed;
+    private final Set<String> guesses = new LinkedHashSet<>();
+    private final List<String> divergences = new ArrayList<>();
+    private boolean ended;
+
+    private Replay(long session, int radius, int atomCount, long layoutSeed) {
+      this.session = session;
+      this.game = new Game(radius, atomCount);
+      this.layoutSeed = layoutSeed;
+      this.atoms = new int[atomCount];
+    }
+
+    public long getSession() {
+      return session;
+    }
+
+    // Returns the game as it stood after the last journaled action.
+    public Game getGame() {
+      return game;
+    }
+
+    public long getLayoutSeed() {
+      return layoutSeed;
+    }
+
+    // Returns the "x,y,z" keys of the hexagons marked as guesses, in the order they were marked.
+    public Set<String> getGuesses() {
+      return Collections.unmodifiableSet(guesses);
+    }
+
+    // Returns a description of every journaled outcome the replay did not reproduce.
+    public List<String> getDivergences() {
+      return Collections.unmodifiableList(divergences);
+    }
+
+    public boolean isEnded() {
+      return ended;
+    }
+
+    @Override
+    public String toString() {
+      return "Game " + session
+          + ": " + game.getAtomLocations()
+          + ", " + game.raysShot + " rays"
+          + (ended ? ", score " + game.getScore() : ", not ended")
+          + (divergences.isEmpty() ? "" : ", diverged: " + divergences);
+    }
+  }
+
+  /**
+   * Replays every game of a journal.
+   *
+   * @param file the journal
+   * @return the games not removed, keyed by session id in the order they started
+   * @throws IOException if the file can not be read or is not a journal
+   */
+  public static Map<Long, Replay> replay(Path file) throws IOException {
+    JournalReplayer replayer = new JournalReplayer();
+    ActionJournal.forEach(file, replayer);
+    return replayer.getReplays();
+  }
+
+  // Returns the games replayed so far, keyed by session id.
+  public Map<Long, Replay> getReplays() {
+    return Collections.unmodifiableMap(replays);
+  }
+
+  /**
+   * Applies the next record of the journal.
+   *
+   * @param entry the record
+   */
+  @Override
+  public void accept(ActionJournal.Entry entry) {
+    if (entry.action() == ActionJournal.Action.START) {
+      // A session that starts again plays a new game, replacing the old one
+      replays.put(entry.session(), new Replay(entry.session(), entry.a(), entry.b(), entry.c()));
+      return;
+    }
+    if (entry.action() == ActionJournal.Action.REMOVE) {
+      replays.remove(entry.session()); // Deleted games are not rebuilt
+      return;
+    }
+    Replay replay = replays.get(entry.session());
+    if (replay == null) {
+      return; // Began before the journal did
+    }
+    Game game = replay.game;
+    Board board = game.getBoard();
+    switch (entry.action()) {
+      case ATOM:
+        replay.atoms[replay.placed++] = entry.a();
+        if (replay.placed == replay.atoms.length) {
+          game.restore(
+              new GameSnapshot(
+                  board.getRadius(),
+                  replay.atoms,
+                  List.of(),
+                  new int[0],
+                  0,
+                  0,
+                  0,
+                  0,
+                  EncounterType.NO_ENCOUNTER));
+        }
+        break;
+      case FIRE:
+        RayResult result = game.handleButtonClick(game.entryButton(entry.a()));
+        game.raysShot++;
+        long packed =
+            RayResult.pack(
+                result.exitCell(), result.exitDirection(), result.type(), result.deflections());
+        if (packed != entry.c() || result.pathLength() != entry.b()) {
+          replay.divergences.add(
+              "ray " + game.raysShot + " from entry " + entry.a() + " gave " + result.type()
+                  + " instead of " + RayResult.type(entry.c()));
+        }
+        break;
+      case GUESS:
+        if (entry.b() != 0) {
+          replay.guesses.add(board.key(entry.a()));
+        } else {
+          replay.guesses.remove(board.key(entry.a()));
+        }
+        break;
+      case END:
+        game.scoreTracker(replay.guesses);
+        replay.ended = true;
+        if (game.getScore() != entry.c() || game.raysShot != entry.a()) {
+          replay.divergences.add(
+              "scored " + game.getScore() + " for " + game.raysShot + " rays instead of "
+                  + entry.c() + " for " + entry.a());
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Prints every game of a journal, or one game given with --session=N.
+   *
+   * @param args the journal file, optionally followed by --session=N
+   * @throws IOException if the journal can not be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      throw new IllegalArgumentException("Usage: JournalReplayer FILE [--session=N]");
+    }
+    Long session = null;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].startsWith("--session=")) {
+        session = Long.parseLong(args[i].substring("--session=".length()));
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+      }
+    }
+    EventLog.setLevel(EventLog.Level.OFF); // Only the replays are printed
+    for (Replay replay : replay(Path.of(args[0])).values()) {
+      if (session == null || session == replay.getSession()) {
+        System.out.println(replay);
+      }
+    }
+  }
+}
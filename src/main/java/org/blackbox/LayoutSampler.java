@@ -0,0 +1,165 @@
+package org.blackbox;
+
+import java.util.SplittableRandom;
+
+/**
+ * The LayoutSampler class draws random atom layouts: sets of distinct cells, optionally kept off
+ * forbidden cells and a minimum distance apart. Layouts are drawn with Floyd's algorithm over a
+ * fixed array of the candidate cells, using a reusable bitset to tell which have been taken, so a
+ * draw costs O(atoms) whatever the size of the board, allocates nothing and depends only on the
+ * random numbers it is given. Layouts that break the spacing are rejected whole, which keeps every
+ * valid layout equally likely.
+ *
+ * <p>A sampler is not thread-safe, so each thread should own its own instance, drawing from its own
+ * SplittableRandom split from a common root.
+ */
+public final class LayoutSampler {
+  // Draws rejected for their spacing before the constraints are deemed unsatisfiable
+  private static final int MAX_ATTEMPTS = 1_000_000;
+
+  private final Board board;
+  private final int atomCount;
+  private final int minSpacing;
+  private final int[] candidates; // Cells atoms may be placed on, in increasing order
+  private final long[] taken; // Bit per candidate, set while a draw is in progress
+  private final int[] picks; // Candidates taken by the current draw, to clear their bits
+
+  /**
+   * Constructs a sampler of layouts of distinct cells anywhere on the board.
+   *
+   * @param board the board
+   * @param atomCount the number of atoms in each layout
+   */
+  public LayoutSampler(Board board, int atomCount) {
+    this(board, atomCount, 1, new int[0]);
+  }
+
+  /**
+   * Constructs a sampler of layouts that keep off some cells and keep their atoms apart.
+   *
+   * @param board the board
+   * @param atomCount the number of atoms in each layout
+   * @param minSpacing the smallest number of steps between two atoms; 1 allows neighbours and 2
+   *     keeps every atom out of the others' areas of effect
+   * @param forbidden the cells no atom may be placed on
+   */
+  public LayoutSampler(Board board, int atomCount, int minSpacing, int[] forbidden) {
+    if (minSpacing < 1) {
+      throw new IllegalArgumentException("Invalid spacing: " + minSpacing);
+    }
+    boolean[] excluded = new boolean[board.getCellCount()];
+    int count = excluded.length;
+    for (int cell : forbidden) {
+      if (cell < 0 || cell >= excluded.length) {
+        throw new IllegalArgumentException("Invalid cell: " + cell);
+      }
+      if (!excluded[cell]) {
+        excluded[cell] = true;
+        count--;
+      }
+    }
+    if (atomCount < 1 || atomCount > count) {
+      throw new IllegalArgumentException(
+          "Invalid number of atoms: " + atomCount + " for " + count + " cells");
+    }
+    this.board = board;
+    this.atomCount = atomCount;
+    this.minSpacing = minSpacing;
+    this.candidates = new int[count];
+    for (int cell = 0, next = 0; cell < excluded.length; cell++) {
+      if (!excluded[cell]) {
+        candidates[next++] = cell;
+      }
+    }
+    this.taken = new long[(count + 63) >>> 6];
+    this.picks = new int[atomCount];
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  public int getAtomCount() {
+    return atomCount;
+  }
+
+  /**
+   * Draws a layout into a new array.
+   *
+   * @param random the source of randomness
+   * @return the cells of the layout, in no particular order
+   */
+  public int[] draw(SplittableRandom random) {
+    int[] layout = new int[atomCount];
+    draw(random, layout, 0);
+    return layout;
+  }
+
+  /**
+   * Draws a layout into part of an array.
+   *
+   * @param random the source of randomness
+   * @param layouts the array receiving the cells of the layout, in no particular order
+   * @param offset the position of the first cell in the array
+   * @throws IllegalStateException if no layout meeting the spacing is found
+   */
+  public void draw(SplittableRandom random, int[] layouts, int offset) {
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      if (tryDraw(random, layouts, offset)) {
+        return;
+      }
+    }
+    throw new IllegalStateException(
+        "No layout of " + atomCount + " atoms " + minSpacing + " apart found in "
+            + MAX_ATTEMPTS + " draws");
+  }
+
+  /**
+   * Draws layouts back to back into an array, for simulations and generators that consume many.
+   *
+   * @param random the source of randomness
+   * @param layouts the array receiving the layouts, atomCount cells each
+   * @param count the number of layouts to draw
+   */
+  public void drawBatch(SplittableRandom random, int[] layouts, int count) {
+    if ((long) count * atomCount > layouts.length) {
+      throw new IllegalArgumentException(
+          "Room for " + layouts.length / atomCount + " layouts, not " + count);
+    }
+    for (int i = 0, offset = 0; i < count; i++, offset += atomCount) {
+      draw(random, layouts, offset);
+    }
+  }
+
+  // Draws with Floyd's algorithm, giving up as soon as an atom is too close to an earlier one.
+  private boolean tryDraw(SplittableRandom random, int[] layouts, int offset) {
+    int n = candidates.length;
+    int drawn = 0;
+    boolean spaced = true;
+    for (int j = n - atomCount; j < n && spaced; j++) {
+      int pick = random.nextInt(j + 1);
+      if ((taken[pick >>> 6] & (1L << pick)) != 0) {
+        pick = j; // j itself can not have been taken yet
+      }
+      taken[pick >>> 6] |= 1L << pick;
+      picks[drawn] = pick;
+      int cell = candidates[pick];
+      for (int i = 0; i < drawn && minSpacing > 1; i++) {
+        if (distance(cell, layouts[offset + i]) < minSpacing) {
+          spaced = false;
+        }
+      }
+      layouts[offset + drawn++] = cell;
+    }
+    for (int i = 0; i < drawn; i++) {
+      taken[picks[i] >>> 6] &= ~(1L << picks[i]);
+    }
+    return spaced;
+  }
+
+  private int distance(int a, int b) {
+    return Math.max(
+        Math.abs(board.x(a) - board.x(b)),
+        Math.max(Math.abs(board.y(a) - board.y(b)), Math.abs(board.z(a) - board.z(b))));
+  }
+}
@@ -0,0 +1,222 @@
+package org.blackbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The MonteCarloSimulator class plays many headless games with a Strategy and collects the
+ * distribution of their scores. Games are split evenly between the workers of a ForkJoinPool; every
+ * worker owns its SelfPlaySession, a SplittableRandom split from the seed and a local histogram, so
+ * the workers share nothing until they merge their histograms at the end. Runs with the same seed
+ * and number of threads give the same histogram.
+ */
+public final class MonteCarloSimulator {
+  // Scores above this are counted in the last bucket of the histogram
+  public static final int DEFAULT_MAX_SCORE = 1023;
+  // Games a worker plays between updates of the shared progress counter
+  private static final int PROGRESS_BATCH = 1024;
+
+  private final Board board;
+  private final int atomCount;
+  private final SelfPlaySession.Strategy strategy;
+  private final int maxScore;
+  private final LongAdder progress = new LongAdder();
+
+  public MonteCarloSimulator(Board board, int atomCount, SelfPlaySession.Strategy strategy) {
+    this(board, atomCount, strategy, DEFAULT_MAX_SCORE);
+  }
+
+  /**
+   * Constructs a simulator.
+   *
+   * @param board the board to play on
+   * @param atomCount the number of atoms hidden in each game
+   * @param strategy the strategy that plays every game
+   * @param maxScore the highest score given its own bucket in the histogram
+   */
+  public MonteCarloSimulator(
+      Board board, int atomCount, SelfPlaySession.Strategy strategy, int maxScore) {
+    if (atomCount < 1 || atomCount > board.getCellCount()) {
+      throw new IllegalArgumentException("Invalid number of atoms: " + atomCount);
+    }
+    if (maxScore < 0) {
+      throw new IllegalArgumentException("Invalid maximum score: " + maxScore);
+    }
+    this.board = board;
+    this.atomCount = atomCount;
+    this.strategy = strategy;
+    this.maxScore = maxScore;
+  }
+
+  /**
+   * Plays the given number of games.
+   *
+   * @param games the number of games to play
+   * @param threads the number of worker threads
+   * @param seed the seed every worker's random numbers are split from
+   * @return the distribution of scores
+   */
+  public Report run(long games, int threads, long seed) {
+    if (games < 0 || threads < 1) {
+      throw new IllegalArgumentException("Invalid run: " + games + " games, " + threads + " threads");
+    }
+    progress.reset();
+    AtomicLongArray histogram = new AtomicLongArray(maxScore + 1);
+    SplittableRandom root = new SplittableRandom(seed);
+    long start = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      List<ForkJoinTask<?>> workers = new ArrayList<>(threads);
+      for (int worker = 0; worker < threads; worker++) {
+        // Split in order on this thread so each worker's stream depends only on the seed
+        SplittableRandom random = root.split();
+        long share = games / threads + (worker < games % threads ? 1 : 0);
+        workers.add(pool.submit(() -> play(share, random, histogram)));
+      }
+      for (ForkJoinTask<?> worker : workers) {
+        worker.join();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    long elapsed = System.nanoTime() - start;
+    long[] counts = new long[histogram.length()];
+    for (int score = 0; score < counts.length; score++) {
+      counts[score] = histogram.get(score);
+    }
+    return new Report(games, elapsed, counts);
+  }
+
+  // Returns the number of games finished so far by the current run.
+  public long getProgress() {
+    return progress.sum();
+  }
+
+  private void play(long games, SplittableRandom random, AtomicLongArray histogram) {
+    SelfPlaySession session = new SelfPlaySession(board, atomCount);
+    long[] local = new long[maxScore + 1];
+    for (long game = 0; game < games; game++) {
+      session.newGame(random);
+      strategy.play(session, random);
+      local[Math.min(session.score(), maxScore)]++;
+      if ((game + 1) % PROGRESS_BATCH == 0) {
+        progress.add(PROGRESS_BATCH);
+      }
+    }
+    progress.add(games % PROGRESS_BATCH);
+    for (int score = 0; score < local.length; score++) {
+      if (local[score] != 0) {
+        histogram.addAndGet(score, local[score]);
+      }
+    }
+  }
+
+  /**
+   * The result of a run: how many games ended with each score, and how long they took.
+   *
+   * @param games the number of games played
+   * @param elapsedNanos the wall clock time of the run
+   * @param histogram the number of games per score, with the last bucket holding higher scores
+   */
+  public record Report(long games, long elapsedNanos, long[] histogram) {
+
+    public double mean() {
+      if (games == 0) {
+        return 0;
+      }
+      double total = 0;
+      for (int score = 0; score < histogram.length; score++) {
+        total += (double) score * histogram[score];
+      }
+      return total / games;
+    }
+
+    /**
+     * Returns the lowest score at or below which the given fraction of games ended.
+     *
+     * @param fraction a fraction between 0 and 1
+     * @return the score at the percentile
+     */
+    public int percentile(double fraction) {
+      long target = (long) Math.ceil(fraction * games);
+      long seen = 0;
+      for (int score = 0; score < histogram.length; score++) {
+        seen += histogram[score];
+        if (seen >= target && seen > 0) {
+          return score;
+        }
+      }
+      return histogram.length - 1;
+    }
+
+    public double gamesPerSecond() {
+      return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d games in %.2f s (%.0f games/s), mean score %.2f, median %d, p90 %d, p99 %d",
+          games,
+          elapsedNanos / 1e9,
+          gamesPerSecond(),
+          mean(),
+          percentile(0.5),
+          percentile(0.9),
+          percentile(0.99));
+    }
+  }
+
+  /**
+   * Runs a simulation from the command line. Accepts --radius=N, --atoms=K, --games=G,
+   * --threads=T, --seed=S and --rays=R, where R is the ray budget of the elimination strategy and 0
+   * selects blind guessing. --metrics prints the EngineMetrics of the run after the report.
+   *
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) {
+    int radius = Game.DEFAULT_RADIUS;
+    int atoms = Game.DEFAULT_ATOM_COUNT;
+    long games = 1_000_000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long seed = System.nanoTime();
+    int rays = 0;
+    boolean metrics = false;
+    for (String arg : args) {
+      String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("--radius=")) {
+        radius = Integer.parseInt(value);
+      } else if (arg.startsWith("--atoms=")) {
+        atoms = Integer.parseInt(value);
+      } else if (arg.startsWith("--games=")) {
+        games = Long.parseLong(value);
+      } else if (arg.startsWith("--threads=")) {
+        threads = Integer.parseInt(value);
+      } else if (arg.startsWith("--seed=")) {
+        seed = Long.parseLong(value);
+      } else if (arg.startsWith("--rays=")) {
+        rays = Integer.parseInt(value);
+      } else if (arg.equals("--metrics")) {
+        metrics = true;
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    SelfPlaySession.Strategy strategy =
+        rays == 0 ? SelfPlaySession.Strategy.blind() : SelfPlaySession.Strategy.elimination(rays);
+    MonteCarloSimulator simulator =
+        new MonteCarloSimulator(Board.of(radius), atoms, strategy);
+    if (metrics) {
+      EngineMetrics.enable();
+    }
+    System.out.println(simulator.run(games, threads, seed));
+    if (metrics) {
+      System.out.println(EngineMetrics.global().getSnapshot());
+    }
+  }
+}
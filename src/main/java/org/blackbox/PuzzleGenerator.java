@@ -0,0 +1,240 @@
+package org.blackbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The PuzzleGenerator class produces atom layouts whose full ray signature belongs to no other
+ * layout, so a player who fires every ray can always deduce the atoms. A random layout is improved
+ * by local search: while some atom can be moved to another cell without changing any ray, that atom
+ * is moved somewhere random, using an IncrementalSignature so each trial move only re-traces the
+ * rays near it. A layout that survives this is checked with the RaySolver, and any other layout the
+ * solver finds points at the atoms to move next.
+ *
+ * <p>A generator is not thread-safe; buildPool runs one per worker thread.
+ */
+public final class PuzzleGenerator {
+  // Moves tried on one layout before starting again from a new random one
+  private static final int MAX_MOVES = 64;
+
+  private final Board board;
+  private final int atomCount;
+  private final RaySolver solver;
+  private final IncrementalSignature signature;
+  private final LayoutSampler sampler;
+  private final int[] layout; // The random layout each attempt starts from
+  private final List<RaySolver.Observation> observations = new ArrayList<>();
+
+  /**
+   * A generated puzzle.
+   *
+   * @param atoms the cells holding atoms, in increasing order
+   * @param signature the outcome of every entry point, encoded as by RaySignature
+   * @param rating how hard the puzzle is, see PuzzleGenerator.rate
+   */
+  public record Puzzle(int[] atoms, int[] signature, int rating) {
+
+    public Difficulty difficulty() {
+      return Difficulty.of(rating);
+    }
+  }
+
+  /** Difficulty bands of the puzzle rating. */
+  public enum Difficulty {
+    EASY,
+    MEDIUM,
+    HARD;
+
+    // Rating bands, chosen so each holds about a third of the puzzles on the standard board
+    private static final int MEDIUM_RATING = 34;
+    private static final int HARD_RATING = 40;
+
+    public static Difficulty of(int rating) {
+      return rating >= HARD_RATING ? HARD : rating >= MEDIUM_RATING ? MEDIUM : EASY;
+    }
+  }
+
+  /**
+   * Constructs a generator.
+   *
+   * @param board the board to generate puzzles for
+   * @param atomCount the number of atoms in each puzzle
+   */
+  public PuzzleGenerator(Board board, int atomCount) {
+    this.board = board;
+    this.atomCount = atomCount;
+    this.solver = new RaySolver(board, atomCount);
+    this.signature = new IncrementalSignature(board, new int[0]);
+    this.sampler = new LayoutSampler(board, atomCount);
+    this.layout = new int[atomCount];
+  }
+
+  /**
+   * Generates a puzzle with a unique solution.
+   *
+   * @param random the source of randomness
+   * @return the puzzle
+   */
+  public Puzzle generate(SplittableRandom random) {
+    while (true) {
+      sampler.draw(random, layout, 0);
+      signature.reset(layout, atomCount);
+      for (int moves = 0; moves < MAX_MOVES; moves++) {
+        int atom = findAmbiguousAtom();
+        if (atom == Board.NO_CELL) {
+          RaySolver.Solution solution = solver.solve(observations(), 2);
+          if (solution.isUnique()) {
+            return puzzle();
+          }
+          atom = differingAtom(solution);
+        }
+        signature.move(atom, randomEmptyCell(random));
+        signature.markReference();
+      }
+    }
+  }
+
+  /**
+   * Generates puzzles in parallel, one generator per worker thread.
+   *
+   * @param board the board to generate puzzles for
+   * @param atomCount the number of atoms in each puzzle
+   * @param count the number of puzzles
+   * @param threads the number of worker threads
+   * @param seed the seed every worker's random numbers are split from
+   * @return the puzzles, in the same order for the same seed and number of threads
+   */
+  public static List<Puzzle> buildPool(
+      Board board, int atomCount, int count, int threads, long seed) {
+    SplittableRandom root = new SplittableRandom(seed);
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      List<ForkJoinTask<List<Puzzle>>> workers = new ArrayList<>(threads);
+      for (int worker = 0; worker < threads; worker++) {
+        SplittableRandom random = root.split();
+        int share = count / threads + (worker < count % threads ? 1 : 0);
+        workers.add(
+            pool.submit(
+                () -> {
+                  PuzzleGenerator generator = new PuzzleGenerator(board, atomCount);
+                  List<Puzzle> puzzles = new ArrayList<>(share);
+                  for (int i = 0; i < share; i++) {
+                    puzzles.add(generator.generate(random));
+                  }
+                  return puzzles;
+                }));
+      }
+      List<Puzzle> puzzles = new ArrayList<>(count);
+      for (ForkJoinTask<List<Puzzle>> worker : workers) {
+        puzzles.addAll(worker.join());
+      }
+      return puzzles;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Rates a layout from its rays: every deflection a ray takes adds a point, and every atom that no
+   * ray reaches in a straight line adds five, since it can only be found from the rays around it.
+   *
+   * @param signature the traced layout
+   * @return the rating
+   */
+  public static int rate(IncrementalSignature signature) {
+    AtomField field = signature.getField();
+    Board board = field.getBoard();
+    EntryCatalog entries = EntryCatalog.of(board);
+    int rating = 0;
+    long[] seen = new long[(board.getCellCount() + 63) >>> 6];
+    for (int entry = 0; entry < entries.size(); entry++) {
+      long packed = signature.result(entry);
+      int deflections = RayResult.deflections(packed);
+      rating += deflections;
+      if (RayResult.type(packed) == EncounterType.DIRECT_HIT && deflections == 0) {
+        // Absorbed without turning, so the first atom on the straight line is exposed
+        int direction = entries.direction(entry);
+        int cell = entries.cell(entry);
+        while (!field.isAtom(cell)) {
+          cell = board.neighbor(cell, direction);
+        }
+        seen[cell >>> 6] |= 1L << cell;
+      }
+    }
+    for (int i = 0; i < field.getAtomCount(); i++) {
+      int atom = field.atomCell(i);
+      if ((seen[atom >>> 6] & (1L << atom)) == 0) {
+        rating += 5;
+      }
+    }
+    return rating;
+  }
+
+  // Returns an atom that can move to another cell without changing any ray, or NO_CELL.
+  private int findAmbiguousAtom() {
+    AtomField field = signature.getField();
+    int[] atoms = new int[atomCount];
+    for (int i = 0; i < atomCount; i++) {
+      atoms[i] = field.atomCell(i);
+    }
+    for (int atom : atoms) {
+      for (int cell = 0; cell < board.getCellCount(); cell++) {
+        if (field.isAtom(cell)) {
+          continue;
+        }
+        signature.move(atom, cell);
+        boolean same = signature.differences() == 0;
+        signature.move(cell, atom);
+        if (same) {
+          return atom;
+        }
+      }
+    }
+    return Board.NO_CELL;
+  }
+
+  // Returns an atom of the current layout that the other solution does not have.
+  private int differingAtom(RaySolver.Solution solution) {
+    AtomField field = signature.getField();
+    for (int[] layout : solution.layouts()) {
+      for (int i = 0; i < atomCount; i++) {
+        int atom = field.atomCell(i);
+        if (Arrays.binarySearch(layout, atom) < 0) {
+          return atom;
+        }
+      }
+    }
+    throw new IllegalStateException("No other layout has the same signature");
+  }
+
+  private int randomEmptyCell(SplittableRandom random) {
+    AtomField field = signature.getField();
+    int cell;
+    do {
+      cell = random.nextInt(board.getCellCount());
+    } while (field.isAtom(cell));
+    return cell;
+  }
+
+  private List<RaySolver.Observation> observations() {
+    observations.clear();
+    for (int entry = 0; entry < EntryCatalog.of(board).size(); entry++) {
+      observations.add(new RaySolver.Observation(entry, signature.outcome(entry)));
+    }
+    return observations;
+  }
+
+  private Puzzle puzzle() {
+    AtomField field = signature.getField();
+    int[] atoms = new int[atomCount];
+    for (int i = 0; i < atomCount; i++) {
+      atoms[i] = field.atomCell(i);
+    }
+    Arrays.sort(atoms);
+    return new Puzzle(atoms, signature.copySignature(), rate(signature));
+  }
+}
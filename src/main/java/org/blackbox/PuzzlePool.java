@@ -0,0 +1,124 @@
+package org.blackbox;
+
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The PuzzlePool class builds unique-solution puzzles in the background so that starting a game
+ * never waits for the generator. Worker threads keep the pool topped up to its target size; when a
+ * game takes a puzzle from an empty pool, one is generated on the spot instead.
+ */
+public final class PuzzlePool {
+  private final Board board;
+  private final int atomCount;
+  private final int target;
+  private final ConcurrentLinkedQueue<PuzzleGenerator.Puzzle> puzzles =
+      new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final ExecutorService workers;
+  private final SplittableRandom random; // Used on the caller's thread when the pool is empty
+
+  /**
+   * Starts filling a pool in the background on daemon threads.
+   *
+   * @param board the board to generate puzzles for
+   * @param atomCount the number of atoms in each puzzle
+   * @param target the number of puzzles to keep ready
+   * @param threads the number of background threads
+   */
+  public PuzzlePool(Board board, int atomCount, int target, int threads) {
+    this.board = board;
+    this.atomCount = atomCount;
+    this.target = target;
+    SplittableRandom root = new SplittableRandom();
+    this.random = root.split();
+    this.workers =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              Thread thread = new Thread(runnable, "puzzle-pool");
+              thread.setDaemon(true);
+              thread.setPriority(Thread.MIN_PRIORITY);
+              return thread;
+            });
+    for (int i = 0; i < threads; i++) {
+      SplittableRandom workerRandom = root.split();
+      workers.execute(() -> fill(workerRandom));
+    }
+  }
+
+  /**
+   * Takes a puzzle from the pool, generating one if the pool is empty.
+   *
+   * @return a puzzle with a unique solution
+   */
+  public PuzzleGenerator.Puzzle take() {
+    PuzzleGenerator.Puzzle puzzle = puzzles.poll();
+    if (puzzle == null) {
+      synchronized (random) {
+        return new PuzzleGenerator(board, atomCount).generate(random);
+      }
+    }
+    size.decrementAndGet();
+    refill();
+    return puzzle;
+  }
+
+  /**
+   * Takes a puzzle of the given difficulty if the pool holds one, or any puzzle otherwise.
+   *
+   * @param difficulty the preferred difficulty
+   * @return a puzzle with a unique solution
+   */
+  public PuzzleGenerator.Puzzle take(PuzzleGenerator.Difficulty difficulty) {
+    for (Iterator<PuzzleGenerator.Puzzle> it = puzzles.iterator(); it.hasNext(); ) {
+      PuzzleGenerator.Puzzle puzzle = it.next();
+      if (puzzle.difficulty() == difficulty && puzzles.remove(puzzle)) {
+        size.decrementAndGet();
+        refill();
+        return puzzle;
+      }
+    }
+    return take();
+  }
+
+  // Returns the number of puzzles ready to be taken.
+  public int size() {
+    return size.get();
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  public int getAtomCount() {
+    return atomCount;
+  }
+
+  // Stops the background threads; puzzles already in the pool can still be taken.
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  private void refill() {
+    if (!workers.isShutdown()) {
+      SplittableRandom workerRandom;
+      synchronized (random) {
+        workerRandom = random.split();
+      }
+      workers.execute(() -> fill(workerRandom));
+    }
+  }
+
+  private void fill(SplittableRandom workerRandom) {
+    PuzzleGenerator generator = new PuzzleGenerator(board, atomCount);
+    while (!Thread.currentThread().isInterrupted() && size.get() < target) {
+      puzzles.add(generator.generate(workerRandom));
+      size.incrementAndGet();
+    }
+  }
+}
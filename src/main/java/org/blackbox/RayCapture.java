@@ -0,0 +1,208 @@
+package org.blackbox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The RayCapture class keeps the most recent rays fired in a ring buffer of fixed-size binary
+ * records, so capturing a ray allocates nothing. The capture also holds the board radius and the
+ * atom layout the rays were fired at, so a dump read back offline can replay every ray against
+ * the same layout with a RayTracer. Setting a different layout starts the capture afresh.
+ *
+ * <p>The dump is big-endian: the int MAGIC, the int VERSION, the int board radius (-1 if no layout
+ * was set), the int number of atoms and an int cell per atom, the int number of rays, then per ray
+ * the long System.nanoTime it was fired at, the int entry cell, the byte entry direction and the
+ * long packed result as returned by RayTracer.trace.
+ */
+public final class RayCapture {
+  public static final int MAGIC = 0x42425243; // "BBRC"
+  public static final int VERSION = 2;
+  private static final int RECORD = 3; // Longs per ray: time, entry, packed result
+
+  private final long[] records;
+  private final int capacity;
+  private long written; // Rays recorded since the layout was set
+  private int radius = -1; // The board of the layout, or -1 before one is set
+  private int[] atoms = new int[0];
+
+  /**
+   * A captured ray.
+   *
+   * @param nanos the System.nanoTime the ray was fired at
+   * @param entryCell the cell the ray was fired into
+   * @param entryDirection the direction it was fired in
+   * @param result the outcome packed as described by RayResult
+   */
+  public record RayEvent(long nanos, int entryCell, int entryDirection, long result) {
+
+    public EncounterType type() {
+      return RayResult.type(result);
+    }
+
+    // Returns true if the tracer's layout gives this ray the same outcome.
+    public boolean replay(RayTracer tracer) {
+      return tracer.trace(entryCell, entryDirection) == result;
+    }
+  }
+
+  /**
+   * The contents of a dump.
+   *
+   * @param radius the radius of the board the rays were fired on, or -1 if it was not recorded
+   * @param atoms the cells of the atoms the rays were fired at
+   * @param rays the rays, oldest first
+   */
+  public record Dump(int radius, int[] atoms, List<RayEvent> rays) {
+
+    // Returns a tracer for the captured layout, against which every captured ray can be replayed.
+    public RayTracer tracer() {
+      if (radius < 0) {
+        throw new IllegalStateException("The capture holds no layout");
+      }
+      return new RayTracer(Board.of(radius), atoms);
+    }
+  }
+
+  /**
+   * Constructs an empty capture.
+   *
+   * @param capacity the number of most recent rays to keep
+   */
+  public RayCapture(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.records = new long[capacity * RECORD];
+  }
+
+  /**
+   * Records a ray, overwriting the oldest one once the buffer is full.
+   *
+   * @param entryCell the cell the ray was fired into
+   * @param entryDirection the direction it was fired in
+   * @param result the outcome packed as described by RayResult
+   */
+  public synchronized void record(int entryCell, int entryDirection, long result) {
+    int slot = (int) (written % capacity) * RECORD;
+    records[slot] = System.nanoTime();
+    records[slot + 1] = ((long) entryCell << 3) | entryDirection;
+    records[slot + 2] = result;
+    written++;
+  }
+
+  /**
+   * Sets the layout the next rays are fired at. If it differs from the current one, the rays held
+   * are dropped, since they can not be replayed against it.
+   *
+   * @param radius the radius of the board
+   * @param atoms the cells of the atoms
+   */
+  public synchronized void setLayout(int radius, int[] atoms) {
+    if (radius == this.radius && Arrays.equals(atoms, this.atoms)) {
+      return;
+    }
+    this.radius = radius;
+    this.atoms = atoms.clone();
+    written = 0;
+  }
+
+  public synchronized int getRadius() {
+    return radius;
+  }
+
+  public synchronized int[] getAtoms() {
+    return atoms.clone();
+  }
+
+  // Returns the number of rays held, at most the capacity.
+  public synchronized int size() {
+    return (int) Math.min(written, capacity);
+  }
+
+  // Returns the rays held, oldest first.
+  public synchronized List<RayEvent> events() {
+    int size = size();
+    List<RayEvent> events = new ArrayList<>(size);
+    for (long i = written - size; i < written; i++) {
+      int slot = (int) (i % capacity) * RECORD;
+      long entry = records[slot + 1];
+      events.add(
+          new RayEvent(records[slot], (int) (entry >>> 3), (int) entry & 7, records[slot + 2]));
+    }
+    return events;
+  }
+
+  /**
+   * Writes the rays held to a file, oldest first.
+   *
+   * @param file the file to write
+   * @throws IOException if the file can not be written
+   */
+  public void dump(Path file) throws IOException {
+    int dumpedRadius;
+    int[] dumpedAtoms;
+    List<RayEvent> events;
+    synchronized (this) {
+      dumpedRadius = radius;
+      dumpedAtoms = atoms;
+      events = events();
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(dumpedRadius);
+      out.writeInt(dumpedAtoms.length);
+      for (int atom : dumpedAtoms) {
+        out.writeInt(atom);
+      }
+      out.writeInt(events.size());
+      for (RayEvent event : events) {
+        out.writeLong(event.nanos());
+        out.writeInt(event.entryCell());
+        out.writeByte(event.entryDirection());
+        out.writeLong(event.result());
+      }
+    }
+  }
+
+  /**
+   * Reads a file written by dump.
+   *
+   * @param file the file to read
+   * @return the layout and the rays, oldest first
+   * @throws IOException if the file can not be read or is not a dump
+   */
+  public static Dump read(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a ray capture: " + file);
+      }
+      int radius = in.readInt();
+      int atomCount = in.readInt();
+      if (radius < -1 || atomCount < 0) {
+        throw new IOException("Corrupt ray capture header: " + file);
+      }
+      int[] atoms = new int[atomCount];
+      for (int i = 0; i < atomCount; i++) {
+        atoms[i] = in.readInt();
+      }
+      int count = in.readInt();
+      List<RayEvent> events = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        events.add(new RayEvent(in.readLong(), in.readInt(), in.readByte(), in.readLong()));
+      }
+      return new Dump(radius, atoms, events);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package org.blackbox;
+
+import java.util.Arrays;
+
+/**
+ * The immutable outcome of a single ray traced by the RayTracer. Cells and directions use the dense
+ * indices of the Board the ray was traced on; the exit is NO_CELL when the ray was absorbed.
+ *
+ * @param entryCell the cell the ray was fired into
+ * @param entryDirection the direction the ray was travelling when it entered the board
+ * @param exitCell the last cell on the board before the ray left it, or NO_CELL if absorbed
+ * @param exitDirection the direction the ray was travelling when it left the board, or -1
+ * @param type the encounter type of the ray
+ * @param deflections the number of times the ray changed direction
+ * @param path the cells visited by the ray in order, starting with the entry cell
+ */
+public record RayResult(
+    int entryCell,
+    int entryDirection,
+    int exitCell,
+    int exitDirection,
+    EncounterType type,
+    int deflections,
+    int[] path) {
+
+  // Bit layout of the packed long returned by RayTracer.trace
+  private static final int DIRECTION_SHIFT = 32;
+  private static final int TYPE_SHIFT = 36;
+  private static final int DEFLECTION_SHIFT = 40;
+  private static final EncounterType[] TYPES = EncounterType.values();
+
+  public RayResult {
+    path = path.clone();
+  }
+
+  /**
+   * Builds a RayResult from the packed outcome returned by RayTracer.trace and the path held in the
+   * tracer's buffer.
+   *
+   * @param entryCell the cell the ray was fired into
+   * @param entryDirection the direction the ray was fired in
+   * @param packed the packed outcome
+   * @param path the tracer's path buffer
+   * @param pathLength the number of valid cells in the path buffer
+   * @return the unpacked result
+   */
+  static RayResult unpack(
+      int entryCell, int entryDirection, long packed, int[] path, int pathLength) {
+    return new RayResult(
+        entryCell,
+        entryDirection,
+        exitCell(packed),
+        exitDirection(packed),
+        type(packed),
+        deflections(packed),
+        Arrays.copyOf(path, pathLength));
+  }
+
+  static long pack(int exitCell, int exitDirection, EncounterType type, int deflections) {
+    return (exitCell & 0xFFFFFFFFL)
+        | ((long) (exitDirection & 0xF) << DIRECTION_SHIFT)
+        | ((long) type.ordinal() << TYPE_SHIFT)
+        | ((long) deflections << DEFLECTION_SHIFT);
+  }
+
+  public static int exitCell(long packed) {
+    return (int) packed;
+  }
+
+  public static int exitDirection(long packed) {
+    int direction = (int) (packed >>> DIRECTION_SHIFT) & 0xF;
+    return direction == 0xF ? -1 : direction;
+  }
+
+  public static EncounterType type(long packed) {
+    return TYPES[(int) (packed >>> TYPE_SHIFT) & 0xF];
+  }
+
+  public static int deflections(long packed) {
+    return (int) (packed >>> DEFLECTION_SHIFT);
+  }
+
+  public boolean isAbsorbed() {
+    return exitCell == Board.NO_CELL;
+  }
+
+  /**
+   * Returns the degree of the entry point button sitting where the ray left the board, i.e. the
+   * button that would fire a ray back along the exit path.
+   *
+   * @return the exit degree, or -1 if the ray was absorbed
+   */
+  public int exitDegree() {
+    return isAbsorbed() ? -1 : Board.reverse(exitDirection) * 60;
+  }
+
+  @Override
+  public int[] path() {
+    return path.clone();
+  }
+
+  public int pathLength() {
+    return path.length;
+  }
+
+  public int pathCell(int index) {
+    return path[index];
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof RayResult other
+        && entryCell == other.entryCell
+        && entryDirection == other.entryDirection
+        && exitCell == other.exitCell
+        && exitDirection == other.exitDirection
+        && type == other.type
+        && deflections == other.deflections
+        && Arrays.equals(path, other.path);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Arrays.hashCode(path);
+    result = 31 * result + entryCell;
+    result = 31 * result + entryDirection;
+    result = 31 * result + exitCell;
+    result = 31 * result + exitDirection;
+    result = 31 * result + type.hashCode();
+    return 31 * result + deflections;
+  }
+
+  @Override
+  public String toString() {
+    return "RayResult[entryCell=" + entryCell
+        + ", entryDirection=" + entryDirection
+        + ", exitCell=" + exitCell
+        + ", exitDirection=" + exitDirection
+        + ", type=" + type
+        + ", deflections=" + deflections
+        + ", path=" + Arrays.toString(path) + "]";
+  }
+}
@@ -0,0 +1,75 @@
+package org.blackbox;
+
+import java.util.Arrays;
+
+/**
+ * The RaySignature class computes the outcome of every possible ray on a board for one atom layout
+ * in a single pass. The signature is an int per entry of the board's EntryCatalog holding the
+ * encounter type in its low bits and the entry the ray leaves through above them.
+ *
+ * <p>The ray rules are reversible, so when the ray fired from entry A leaves through entry B, the
+ * ray fired from B leaves through A with the same encounter type. Each such pair is traced once.
+ */
+public final class RaySignature {
+  private static final int TYPE_BITS = 3;
+  private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+  private static final EncounterType[] TYPES = EncounterType.values();
+  // Marks an entry that has not been traced yet; no encoded outcome is negative
+  private static final int UNKNOWN = -1;
+
+  private RaySignature() {}
+
+  /**
+   * Computes the signature of the layout held by the tracer.
+   *
+   * @param tracer the tracer for the atom layout
+   * @return a new array with one outcome per entry point
+   */
+  public static int[] compute(RayTracer tracer) {
+    int[] signature = new int[EntryCatalog.of(tracer.getBoard()).size()];
+    compute(tracer, signature);
+    return signature;
+  }
+
+  /**
+   * Computes the signature of the layout held by the tracer into an existing array, so repeated
+   * signatures allocate nothing.
+   *
+   * @param tracer the tracer for the atom layout
+   * @param signature an array of at least one element per entry point to receive the outcomes
+   */
+  public static void compute(RayTracer tracer, int[] signature) {
+    EntryCatalog entries = EntryCatalog.of(tracer.getBoard());
+    int size = entries.size();
+    Arrays.fill(signature, 0, size, UNKNOWN);
+    for (int entry = 0; entry < size; entry++) {
+      if (signature[entry] != UNKNOWN) {
+        continue; // Already known from the reverse ray
+      }
+      long packed = tracer.trace(entries.cell(entry), entries.direction(entry));
+      EncounterType type = RayResult.type(packed);
+      int exitCell = RayResult.exitCell(packed);
+      if (exitCell == Board.NO_CELL) {
+        signature[entry] = encode(type, UNKNOWN);
+        continue;
+      }
+      int exit = entries.exitEntry(exitCell, RayResult.exitDirection(packed));
+      signature[entry] = encode(type, exit);
+      signature[exit] = encode(type, entry);
+    }
+  }
+
+  // Encodes an outcome; exitEntry is -1 for an absorbed ray.
+  public static int encode(EncounterType type, int exitEntry) {
+    return ((exitEntry + 1) << TYPE_BITS) | type.ordinal();
+  }
+
+  public static EncounterType type(int outcome) {
+    return TYPES[outcome & TYPE_MASK];
+  }
+
+  // Returns the entry the ray leaves through, or -1 if it was absorbed.
+  public static int exitEntry(int outcome) {
+    return (outcome >>> TYPE_BITS) - 1;
+  }
+}
@@ -0,0 +1,707 @@
+package org.blackbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * The RaySolver class finds every atom layout consistent with the rays fired so far. Layouts are
+ * searched depth first, deciding candidate cells one at a time in a fixed order: once an atom is
+ * placed at a candidate, every earlier candidate is known to hold an atom or not, and any ray whose
+ * path only looks at decided cells is traced straight away. Most wrong branches are therefore cut
+ * long before all atoms are placed, and once every ray is confirmed the rest of the subtree is
+ * counted without being visited.
+ *
+ * <p>Before searching, candidate cells are narrowed with bitsets: a ray that passes straight
+ * through proves its path and everything next to it empty, and any ray that is not absorbed proves
+ * its entry cell and the cell ahead of it empty. Every other ray needs an atom next to its straight
+ * path; the cells around the most constrained rays are decided first, and a branch is dropped as
+ * soon as it passes the last cell that could provide a ray's atom. The top two levels of the search
+ * are split into independent tasks run in parallel.
+ */
+public final class RaySolver {
+  // Above this many candidate cells the search is split by first atom only
+  private static final int MAX_PAIR_SPLIT = 1024;
+  // Spreads the seeds of consecutive tasks apart
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private final Board board;
+  private final EntryCatalog entries;
+  private final int atomCount;
+
+  /**
+   * An observed ray: the entry point it was fired from and its outcome, encoded as by RaySignature.
+   *
+   * @param entry the entry of the board's EntryCatalog
+   * @param outcome the encoded outcome
+   */
+  public record Observation(int entry, int outcome) {}
+
+  /**
+   * The layouts consistent with a set of observations.
+   *
+   * @param count the number of consistent layouts
+   * @param cellCounts the number of consistent layouts with an atom in each cell
+   * @param layouts up to the requested number of consistent layouts, each sorted by cell; the first
+   *     ones found by solve, or a uniform random sample from sample
+   */
+  public record Solution(long count, long[] cellCounts, List<int[]> layouts) {
+
+    // Returns true if every consistent layout has an atom in the cell.
+    public boolean isCertainAtom(int cell) {
+      return count > 0 && cellCounts[cell] == count;
+    }
+
+    // Returns true if no consistent layout has an atom in the cell.
+    public boolean isCertainEmpty(int cell) {
+      return cellCounts[cell] == 0;
+    }
+
+    // Returns the fraction of consistent layouts with an atom in the cell.
+    public double probability(int cell) {
+      return count == 0 ? 0 : (double) cellCounts[cell] / count;
+    }
+
+    public boolean isUnique() {
+      return count == 1;
+    }
+  }
+
+  /**
+   * Constructs a solver.
+   *
+   * @param board the board the atoms are hidden on
+   * @param atomCount the number of hidden atoms
+   */
+  public RaySolver(Board board, int atomCount) {
+    if (atomCount < 1 || atomCount > board.getCellCount()) {
+      throw new IllegalArgumentException("Invalid number of atoms: " + atomCount);
+    }
+    this.board = board;
+    this.entries = EntryCatalog.of(board);
+    this.atomCount = atomCount;
+  }
+
+  /**
+   * Finds the layouts consistent with the observations.
+   *
+   * @param observations the rays fired so far
+   * @param maxLayouts the maximum number of layouts to return; all layouts are still counted
+   * @return the consistent layouts
+   */
+  public Solution solve(List<Observation> observations, int maxLayouts) {
+    return search(observations, maxLayouts, null);
+  }
+
+  /**
+   * Finds the layouts consistent with the observations and returns a uniform random sample of
+   * them, so that statistics over the sample stand for all consistent layouts.
+   *
+   * @param observations the rays fired so far
+   * @param sampleSize the maximum number of layouts in the sample
+   * @param seed the seed of the sample
+   * @return the consistent layouts, with every layout if there are no more than sampleSize
+   */
+  public Solution sample(List<Observation> observations, int sampleSize, long seed) {
+    return search(observations, sampleSize, seed);
+  }
+
+  private Solution search(List<Observation> observations, int maxLayouts, Long seed) {
+    Problem problem = new Problem(observations);
+    if (problem.candidates.length < atomCount) {
+      return new Solution(0, new long[board.getCellCount()], List.of());
+    }
+    // Each task fixes the first one or two atoms of the layout
+    int n = problem.candidates.length;
+    int depth = atomCount >= 2 && n <= MAX_PAIR_SPLIT ? 2 : 1;
+    int[] prefixes =
+        depth == 1
+            ? IntStream.range(0, n).toArray()
+            : IntStream.range(0, n * n).filter(p -> p / n < p % n).toArray();
+    Partial result =
+        Arrays.stream(prefixes)
+            .parallel()
+            .mapToObj(
+                prefix -> {
+                  // Each task samples with its own stream, derived from the seed and its prefix
+                  SplittableRandom random =
+                      seed == null ? null : new SplittableRandom(seed + prefix * GOLDEN_GAMMA);
+                  return new Search(problem, new Partial(board.getCellCount(), maxLayouts, random))
+                      .run(prefix, depth, n);
+                })
+            .reduce(Partial::merge)
+            .orElseGet(() -> new Partial(board.getCellCount(), maxLayouts, null));
+    return new Solution(result.count, result.cellCounts, List.copyOf(result.layouts));
+  }
+
+  /**
+   * Returns the cells the observations prove empty, as a bitset with one bit per cell: the path of
+   * every ray that passes straight through and the cells next to it, and the entry cell and the
+   * cell ahead of every ray that is not absorbed.
+   *
+   * @param observations the rays fired so far
+   * @return the bitset of empty cells
+   */
+  long[] emptyCells(List<Observation> observations) {
+    long[] empty = new long[(board.getCellCount() + 63) >>> 6];
+    for (Observation observation : observations) {
+      int cell = entries.cell(observation.entry());
+      int direction = entries.direction(observation.entry());
+      EncounterType type = RaySignature.type(observation.outcome());
+      if (type == EncounterType.NO_ENCOUNTER) {
+        or(empty, straightZone(cell, direction));
+      } else if (type != EncounterType.DIRECT_HIT) {
+        set(empty, cell);
+        int ahead = board.neighbor(cell, direction);
+        if (ahead != Board.NO_CELL) {
+          set(empty, ahead);
+        }
+      }
+    }
+    return empty;
+  }
+
+  // Returns the cells on the straight path of a ray and every cell next to them.
+  private long[] straightZone(int cell, int direction) {
+    long[] zone = new long[(board.getCellCount() + 63) >>> 6];
+    for (int c = cell; c != Board.NO_CELL; c = board.neighbor(c, direction)) {
+      set(zone, c);
+      for (int d = 0; d < Board.DIRECTIONS; d++) {
+        int neighbor = board.neighbor(c, d);
+        if (neighbor != Board.NO_CELL) {
+          set(zone, neighbor);
+        }
+      }
+    }
+    return zone;
+  }
+
+  // The observations and the constraints derived from them, shared read-only by all tasks.
+  private final class Problem {
+    final int[] entryCells;
+    final int[] entryDirections;
+    final long[] outcomes; // Expected packed ray results
+    final int[] candidates; // Cells that may hold an atom, in the order the search decides them
+    final int[] decidedAt; // Cell -> last candidate position among the cell and its neighbours
+    final long[] constraintsAt; // Candidate position -> rays needing an atom there
+    final long[] expiredBefore; // Candidate position -> rays that had their last chance before it
+
+    Problem(List<Observation> observations) {
+      int count = observations.size();
+      int cellCount = board.getCellCount();
+      entryCells = new int[count];
+      entryDirections = new int[count];
+      outcomes = new long[count];
+      long[] empty = emptyCells(observations);
+      long[][] zones = new long[count][];
+      List<Integer> constrained = new ArrayList<>(); // Rays that need an atom near them
+      for (int i = 0; i < count; i++) {
+        Observation observation = observations.get(i);
+        int cell = entries.cell(observation.entry());
+        int direction = entries.direction(observation.entry());
+        entryCells[i] = cell;
+        entryDirections[i] = direction;
+        outcomes[i] = expected(observation.outcome());
+        if (RaySignature.type(observation.outcome()) != EncounterType.NO_ENCOUNTER) {
+          zones[i] = straightZone(cell, direction);
+          constrained.add(i);
+        }
+      }
+      for (int i : constrained) {
+        andNot(zones[i], empty);
+      }
+      // Only the first 64 zones are tracked; the rays themselves check every observation
+      constrained.sort(Comparator.comparingInt(i -> cardinality(zones[i])));
+      if (constrained.size() > Long.SIZE) {
+        constrained = constrained.subList(0, Long.SIZE);
+      }
+
+      // Decide the cells around the most constrained rays first, walking each ray from its
+      // entry so that the start of its path is decided first and the ray settles early
+      int[] order = new int[cellCount];
+      long[] ordered = empty.clone();
+      int n = 0;
+      for (int i : constrained) {
+        for (int c = entryCells[i]; c != Board.NO_CELL; c = board.neighbor(c, entryDirections[i])) {
+          for (int d = -1; d < Board.DIRECTIONS; d++) {
+            int cell = d < 0 ? c : board.neighbor(c, d);
+            if (cell != Board.NO_CELL && !isSet(ordered, cell)) {
+              set(ordered, cell);
+              order[n++] = cell;
+            }
+          }
+        }
+      }
+      // Then the rest by distance from those cells, which is where deflected rays go next
+      int[] queue = new int[cellCount];
+      long[] seen = new long[empty.length];
+      int head = 0;
+      int tail = 0;
+      for (int i = 0; i < n; i++) {
+        set(seen, order[i]);
+        queue[tail++] = order[i];
+      }
+      for (int start = 0; start < cellCount; start++) {
+        if (head == tail) {
+          if (isSet(seen, start)) {
+            continue;
+          }
+          set(seen, start);
+          queue[tail++] = start;
+        }
+        while (head < tail) {
+          int cell = queue[head++];
+          if (!isSet(ordered, cell)) {
+            set(ordered, cell);
+            order[n++] = cell;
+          }
+          for (int d = 0; d < Board.DIRECTIONS; d++) {
+            int neighbor = board.neighbor(cell, d);
+            if (neighbor != Board.NO_CELL && !isSet(seen, neighbor)) {
+              set(seen, neighbor);
+              queue[tail++] = neighbor;
+            }
+          }
+        }
+      }
+      candidates = Arrays.copyOf(order, n);
+
+      int[] position = new int[cellCount];
+      Arrays.fill(position, -1); // Known empty cells are decided from the start
+      for (int i = 0; i < n; i++) {
+        position[candidates[i]] = i;
+      }
+      decidedAt = new int[cellCount];
+      for (int cell = 0; cell < cellCount; cell++) {
+        decidedAt[cell] = position[cell];
+        for (int d = 0; d < Board.DIRECTIONS; d++) {
+          int neighbor = board.neighbor(cell, d);
+          if (neighbor != Board.NO_CELL) {
+            decidedAt[cell] = Math.max(decidedAt[cell], position[neighbor]);
+          }
+        }
+      }
+
+      constraintsAt = new long[n];
+      expiredBefore = new long[n + 1];
+      for (int z = 0; z < constrained.size(); z++) {
+        long[] zone = zones[constrained.get(z)];
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+          if (isSet(zone, candidates[i])) {
+            constraintsAt[i] |= 1L << z;
+            last = i;
+          }
+        }
+        for (int i = last + 1; i <= n; i++) {
+          expiredBefore[i] |= 1L << z;
+        }
+      }
+    }
+
+    // Converts an encoded outcome into the packed ray result the tracer returns, minus deflections.
+    private long expected(int outcome) {
+      EncounterType type = RaySignature.type(outcome);
+      int exit = RaySignature.exitEntry(outcome);
+      if (exit < 0) {
+        return RayResult.pack(Board.NO_CELL, -1, type, 0);
+      }
+      // The ray leaves through the exit entry's cell, heading opposite to its firing direction
+      return RayResult.pack(entries.cell(exit), Board.reverse(entries.direction(exit)), type, 0);
+    }
+  }
+
+  // The depth first search of one task, with its own layout and tracer.
+  private final class Search {
+    private final Problem problem;
+    private final Partial partial;
+    private final AtomField field = new AtomField(board, new int[0]);
+    private final RayTracer tracer = new RayTracer(field);
+    private final int[] layout = new int[atomCount];
+    private long listed; // Layouts offered by listFree in the current free subtree
+    private final boolean[][] settled; // Depth -> observations already confirmed at that depth
+    private final int[] settledCount; // Depth -> number of observations confirmed
+    private final int[][] blocked; // Depth -> step at which each unsettled ray can go further
+    private final long[] touched = new long[(board.getCellCount() + 63) >>> 6];
+
+    Search(Problem problem, Partial partial) {
+      this.problem = problem;
+      this.partial = partial;
+      this.settled = new boolean[atomCount + 1][problem.outcomes.length];
+      this.settledCount = new int[atomCount + 1];
+      this.blocked = new int[atomCount + 1][problem.outcomes.length];
+    }
+
+    // Runs the subtree under a prefix of one or two candidate positions.
+    Partial run(int prefix, int depth, int n) {
+      int[] positions = depth == 1 ? new int[] {prefix} : new int[] {prefix / n, prefix % n};
+      long satisfied = 0;
+      for (int d = 0; d < depth; d++) {
+        int position = positions[d];
+        if ((~satisfied & problem.expiredBefore[position]) != 0) {
+          return partial;
+        }
+        satisfied |= problem.constraintsAt[position];
+        if (!place(d, position)) {
+          return partial;
+        }
+      }
+      long leaves = search(depth, positions[depth - 1] + 1, satisfied);
+      for (int d = 0; d < depth; d++) {
+        partial.cellCounts[layout[d]] += leaves;
+      }
+      return partial;
+    }
+
+    // Counts the consistent layouts that extend the atoms placed so far.
+    private long search(int depth, int from, long satisfied) {
+      int n = problem.candidates.length;
+      if (depth == atomCount) {
+        if ((~satisfied & problem.expiredBefore[n]) != 0 || !check(depth, n)) {
+          return 0;
+        }
+        partial.offer(sorted(layout, atomCount));
+        return 1;
+      }
+      if (settledCount[depth] == problem.outcomes.length) {
+        // No remaining cell can change a ray, so every way of filling them is consistent
+        return countFree(depth, from);
+      }
+      if (depth == atomCount - 1) {
+        return searchLast(depth, from, satisfied);
+      }
+      long leaves = 0;
+      int last = n - (atomCount - depth);
+      for (int position = from; position <= last; position++) {
+        if ((~satisfied & problem.expiredBefore[position]) != 0) {
+          break; // A ray can no longer find the atom it needs
+        }
+        if (position > from) {
+          // The candidates skipped so far are empty, which may already decide some rays
+          if (!skip(depth, position - 1)) {
+            break;
+          }
+          if (settledCount[depth] == problem.outcomes.length) {
+            leaves += countFree(depth, position);
+            break;
+          }
+        }
+        if (place(depth, position)) {
+          long found =
+              search(depth + 1, position + 1, satisfied | problem.constraintsAt[position]);
+          partial.cellCounts[layout[depth]] += found;
+          leaves += found;
+        }
+        field.remove(layout[depth]);
+      }
+      return leaves;
+    }
+
+    /**
+     * Counts the consistent layouts for the last atom. The rays are traced once with every
+     * remaining cell empty; the last atom can only change a ray if it lands next to that ray's
+     * path, so only those cells are traced again.
+     */
+    private long searchLast(int depth, int from, long satisfied) {
+      boolean consistent = true;
+      Arrays.fill(touched, 0);
+      for (int i = 0; i < problem.outcomes.length; i++) {
+        long packed = tracer.trace(problem.entryCells[i], problem.entryDirections[i]);
+        consistent &= withoutDeflections(packed) == problem.outcomes[i];
+        for (int step = 0; step < tracer.pathLength(); step++) {
+          int cell = tracer.pathCell(step);
+          set(touched, cell);
+          for (int d = 0; d < Board.DIRECTIONS; d++) {
+            int neighbor = board.neighbor(cell, d);
+            if (neighbor != Board.NO_CELL) {
+              set(touched, neighbor);
+            }
+          }
+        }
+      }
+      long leaves = 0;
+      int n = problem.candidates.length;
+      for (int position = from; position < n; position++) {
+        if ((~satisfied & problem.expiredBefore[position]) != 0) {
+          break; // A ray can no longer find the atom it needs
+        }
+        int cell = problem.candidates[position];
+        layout[depth] = cell;
+        long found;
+        if (isSet(touched, cell)) {
+          field.add(cell);
+          found = check(depth + 1, n) ? 1 : 0;
+          field.remove(cell);
+        } else {
+          found = consistent ? 1 : 0;
+        }
+        if (found != 0) {
+          partial.cellCounts[cell]++;
+          partial.offer(sorted(layout, atomCount));
+          leaves++;
+        }
+      }
+      return leaves;
+    }
+
+    // Counts the layouts that fill the remaining atoms from any of the remaining candidates.
+    private long countFree(int depth, int from) {
+      int free = problem.candidates.length - from;
+      int atoms = atomCount - depth;
+      long leaves = binomial(free, atoms);
+      long each = binomial(free - 1, atoms - 1);
+      for (int position = from; position < problem.candidates.length; position++) {
+        partial.cellCounts[problem.candidates[position]] += each;
+      }
+      if (partial.random == null || leaves <= 4L * partial.max) {
+        listFree(depth, from);
+        partial.count += leaves - listed;
+        listed = 0;
+      } else {
+        partial.merge(sampleFree(depth, from, leaves));
+      }
+      return leaves;
+    }
+
+    // Offers free layouts in order, stopping early once no more would be kept.
+    private void listFree(int depth, int from) {
+      if (partial.random == null && partial.layouts.size() >= partial.max) {
+        return;
+      }
+      if (depth == atomCount) {
+        partial.offer(sorted(layout, atomCount));
+        listed++;
+        return;
+      }
+      for (int position = from; position <= problem.candidates.length - (atomCount - depth);
+          position++) {
+        layout[depth] = problem.candidates[position];
+        listFree(depth + 1, position + 1);
+      }
+    }
+
+    // Draws distinct random free layouts to stand for a subtree too large to list.
+    private Partial sampleFree(int depth, int from, long leaves) {
+      Partial sample = new Partial(0, partial.max, partial.random);
+      Set<List<Integer>> drawn = new HashSet<>();
+      int[] positions = new int[problem.candidates.length - from];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = from + i;
+      }
+      while (sample.layouts.size() < partial.max) {
+        for (int d = depth; d < atomCount; d++) {
+          int i = d - depth + partial.random.nextInt(positions.length - (d - depth));
+          int swap = positions[d - depth];
+          positions[d - depth] = positions[i];
+          positions[i] = swap;
+          layout[d] = problem.candidates[positions[d - depth]];
+        }
+        int[] drawnLayout = sorted(layout, atomCount);
+        if (drawn.add(Arrays.stream(drawnLayout).boxed().toList())) {
+          sample.layouts.add(drawnLayout);
+        }
+      }
+      sample.count = leaves;
+      return sample;
+    }
+
+    // Places the atom for a depth and checks every ray that became decided.
+    private boolean place(int depth, int position) {
+      layout[depth] = problem.candidates[position];
+      field.add(layout[depth]);
+      if (depth == atomCount - 1) {
+        return true; // The leaf checks every ray with the rest of the board empty
+      }
+      return check(depth + 1, position);
+    }
+
+    // Traces the rays not yet settled with the candidates up to the horizon decided.
+    private boolean check(int depth, int horizon) {
+      boolean[] previous = settled[depth - 1];
+      boolean[] current = settled[depth];
+      int count = settledCount[depth - 1];
+      for (int i = 0; i < current.length; i++) {
+        current[i] = previous[i];
+        if (current[i]) {
+          continue;
+        }
+        long packed =
+            tracer.traceWithin(
+                problem.entryCells[i], problem.entryDirections[i], problem.decidedAt, horizon);
+        if (packed == RayTracer.UNDETERMINED) {
+          blocked[depth][i] = blockedAt();
+          continue;
+        }
+        if (withoutDeflections(packed) != problem.outcomes[i]) {
+          return false;
+        }
+        current[i] = true;
+        count++;
+      }
+      settledCount[depth] = count;
+      return true;
+    }
+
+    /**
+     * Traces again the unsettled rays that were blocked on a cell decided by the horizon, with no
+     * atom added. Every later sibling only adds atoms beyond the horizon, so a ray settled here
+     * stays settled for the rest of the loop, and a ray that disagrees rules the loop out.
+     */
+    private boolean skip(int depth, int horizon) {
+      boolean[] current = settled[depth];
+      for (int i = 0; i < current.length; i++) {
+        if (current[i] || blocked[depth][i] > horizon) {
+          continue;
+        }
+        long packed =
+            tracer.traceWithin(
+                problem.entryCells[i], problem.entryDirections[i], problem.decidedAt, horizon);
+        if (packed == RayTracer.UNDETERMINED) {
+          blocked[depth][i] = blockedAt();
+          continue;
+        }
+        if (withoutDeflections(packed) != problem.outcomes[i]) {
+          return false;
+        }
+        current[i] = true;
+        settledCount[depth]++;
+      }
+      return true;
+    }
+
+    // Returns the step deciding the cell the last traceWithin stopped at.
+    private int blockedAt() {
+      return problem.decidedAt[tracer.pathCell(tracer.pathLength() - 1)];
+    }
+  }
+
+  /**
+   * Counts gathered by one task, merged in task order. Without a random source the first max
+   * layouts are kept; with one, the layouts kept are a uniform reservoir sample of every layout
+   * counted.
+   */
+  private static final class Partial {
+    long count;
+    final long[] cellCounts;
+    final List<int[]> layouts = new ArrayList<>();
+    final int max;
+    final SplittableRandom random;
+
+    Partial(int cellCount, int max, SplittableRandom random) {
+      this.cellCounts = new long[cellCount];
+      this.max = max;
+      this.random = random;
+    }
+
+    // Counts one more layout and keeps it if there is room or it wins its place in the sample.
+    void offer(int[] layout) {
+      count++;
+      if (layouts.size() < max) {
+        layouts.add(layout);
+      } else if (random != null) {
+        long slot = random.nextLong(count);
+        if (slot < max) {
+          layouts.set((int) slot, layout);
+        }
+      }
+    }
+
+    Partial merge(Partial other) {
+      for (int cell = 0; cell < other.cellCounts.length; cell++) {
+        cellCounts[cell] += other.cellCounts[cell];
+      }
+      if (random == null) {
+        for (int[] layout : other.layouts) {
+          if (layouts.size() < max) {
+            layouts.add(layout);
+          }
+        }
+        count += other.count;
+        return this;
+      }
+      // Draw from the two samples in proportion to the layouts each stands for
+      List<int[]> mine = new ArrayList<>(layouts);
+      List<int[]> theirs = new ArrayList<>(other.layouts);
+      Collections.shuffle(mine, new Random(random.nextLong()));
+      Collections.shuffle(theirs, new Random(random.nextLong()));
+      layouts.clear();
+      long remainingMine = count;
+      long remainingTheirs = other.count;
+      int nextMine = 0;
+      int nextTheirs = 0;
+      while (layouts.size() < max && remainingMine + remainingTheirs > 0) {
+        if (random.nextLong(remainingMine + remainingTheirs) < remainingMine) {
+          layouts.add(mine.get(nextMine++));
+          remainingMine--;
+        } else {
+          layouts.add(theirs.get(nextTheirs++));
+          remainingTheirs--;
+        }
+      }
+      count += other.count;
+      return this;
+    }
+  }
+
+  private static long withoutDeflections(long packed) {
+    return RayResult.pack(
+        RayResult.exitCell(packed), RayResult.exitDirection(packed), RayResult.type(packed), 0);
+  }
+
+  private static int[] sorted(int[] layout, int length) {
+    int[] copy = Arrays.copyOf(layout, length);
+    Arrays.sort(copy);
+    return copy;
+  }
+
+  // Returns n choose k, saturating at Long.MAX_VALUE.
+  private static long binomial(int n, int k) {
+    if (k < 0 || k > n) {
+      return 0;
+    }
+    long result = 1;
+    for (int i = 0; i < Math.min(k, n - k); i++) {
+      try {
+        result = Math.multiplyExact(result, n - i) / (i + 1);
+      } catch (ArithmeticException e) {
+        return Long.MAX_VALUE;
+      }
+    }
+    return result;
+  }
+
+  private static int cardinality(long[] bits) {
+    int count = 0;
+    for (long word : bits) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  private static void andNot(long[] bits, long[] other) {
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] &= ~other[i];
+    }
+  }
+
+  private static boolean isSet(long[] bits, int cell) {
+    return (bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  private static void set(long[] bits, int cell) {
+    bits[cell >>> 6] |= 1L << cell;
+  }
+
+  private static void or(long[] bits, long[] other) {
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] |= other[i];
+    }
+  }
+}
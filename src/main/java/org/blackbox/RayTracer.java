@@ -0,0 +1,184 @@
+package org.blackbox;
+
+/**
+ * The RayTracer class traces rays through a Board for a fixed atom layout. It works purely on dense
+ * cell and direction indices, holds no JavaFX types and allocates nothing per ray: trace returns
+ * the outcome packed into a long and leaves the visited cells in a reusable path buffer. A tracer
+ * is not thread-safe, so each thread should own its own instance.
+ *
+ * <p>A ray entering a cell looks at the atoms around it relative to its heading, as tabulated by
+ * DeflectionRules. These rules are reversible, so a ray fired from the exit of another ray
+ * retraces it back to its entry.
+ */
+public final class RayTracer {
+  // Returned by traceWithin when the outcome depends on cells that are not decided yet
+  public static final long UNDETERMINED = Long.MIN_VALUE;
+
+  private final Board board;
+  private final AtomField field;
+  private final int[] path;
+  private int pathLength;
+
+  /**
+   * Constructs a tracer for the given board and atom layout.
+   *
+   * @param board the board to trace on
+   * @param atomCells the cells holding atoms
+   */
+  public RayTracer(Board board, int[] atomCells) {
+    this(new AtomField(board, atomCells));
+  }
+
+  /**
+   * Constructs a tracer for a precomputed atom field.
+   *
+   * @param field the atom layout and its area of effect
+   */
+  public RayTracer(AtomField field) {
+    this(field, maxSteps(field.getBoard()));
+  }
+
+  /**
+   * Constructs a tracer that gives up on rays longer than the given number of steps, bounding the
+   * cost of a single trace.
+   *
+   * @param field the atom layout and its area of effect
+   * @param maxSteps the most moves from one cell to the next a ray may make
+   */
+  public RayTracer(AtomField field, int maxSteps) {
+    if (maxSteps < 1) {
+      throw new IllegalArgumentException("A ray needs at least one step, not " + maxSteps);
+    }
+    this.board = field.getBoard();
+    this.field = field;
+    this.path = new int[maxSteps + 1];
+  }
+
+  /**
+   * Returns the longest path any ray can take on a board. The rules are reversible, so the first
+   * (cell, direction) state a ray repeated would have to be its entry state, which it can only
+   * reach again from outside the board. No ray cycles, and none needs a visited set: it makes at
+   * most one step per state.
+   *
+   * @param board the board
+   * @return the number of (cell, direction) states
+   */
+  public static int maxSteps(Board board) {
+    return board.getCellCount() * Board.DIRECTIONS;
+  }
+
+  /**
+   * Traces a ray fired into the given cell in the given direction. The visited cells are left in
+   * the path buffer until the next call.
+   *
+   * @param entryCell the cell the ray enters the board through
+   * @param entryDirection the direction the ray is travelling in
+   * @return the outcome packed as described by RayResult
+   */
+  public long trace(int entryCell, int entryDirection) {
+    return traceWithin(entryCell, entryDirection, null, 0);
+  }
+
+  /**
+   * Traces a ray over a partly decided layout, as built up by a search that places atoms one step
+   * at a time. A ray passing through a cell looks at the cell and its six neighbours, so the trace
+   * gives up as soon as it reaches a cell whose neighbourhood is not fully decided yet.
+   *
+   * @param entryCell the cell the ray enters the board through
+   * @param entryDirection the direction the ray is travelling in
+   * @param decidedAt the search step from which each cell and its neighbours are decided
+   * @param horizon the current search step
+   * @return the packed outcome, or UNDETERMINED if the ray reaches an undecided neighbourhood
+   */
+  public long traceWithin(int entryCell, int entryDirection, int[] decidedAt, int horizon) {
+    int cell = entryCell;
+    int direction = entryDirection;
+    int deflections = 0;
+    pathLength = 0;
+    path[pathLength++] = cell;
+
+    if (decidedAt != null && decidedAt[cell] > horizon) {
+      return UNDETERMINED;
+    }
+    if (field.isAtom(cell)) {
+      return RayResult.pack(Board.NO_CELL, -1, EncounterType.DIRECT_HIT, 0);
+    }
+
+    while (true) {
+      int step = DeflectionRules.step(direction, field.neighborMask(cell));
+      if (step == DeflectionRules.ABSORBED) {
+        return RayResult.pack(Board.NO_CELL, -1, EncounterType.DIRECT_HIT, deflections);
+      }
+      if (DeflectionRules.isDeflected(step)) {
+        direction = DeflectionRules.direction(step);
+        deflections++;
+      }
+
+      int next = board.neighbor(cell, direction);
+      if (next == Board.NO_CELL) {
+        return RayResult.pack(
+            cell, direction, classify(entryCell, entryDirection, cell, direction, deflections),
+            deflections);
+      }
+      if (pathLength == path.length) {
+        throw new IllegalStateException(
+            "Ray from " + board.key(entryCell) + " exceeded " + (path.length - 1) + " steps");
+      }
+      cell = next;
+      path[pathLength++] = cell;
+      if (decidedAt != null && decidedAt[cell] > horizon) {
+        return UNDETERMINED;
+      }
+    }
+  }
+
+  /**
+   * Traces a ray and returns its outcome as an immutable RayResult, copying the path out of the
+   * buffer. Prefer trace in loops that fire many rays.
+   *
+   * @param entryCell the cell the ray enters the board through
+   * @param entryDirection the direction the ray is travelling in
+   * @return the result of the ray
+   */
+  public RayResult traceResult(int entryCell, int entryDirection) {
+    long packed = trace(entryCell, entryDirection);
+    return RayResult.unpack(entryCell, entryDirection, packed, path, pathLength);
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  public int getMaxSteps() {
+    return path.length - 1;
+  }
+
+  // Returns the number of cells visited by the last traced ray.
+  public int pathLength() {
+    return pathLength;
+  }
+
+  // Returns the cell at the given position of the last traced ray's path.
+  public int pathCell(int index) {
+    return path[index];
+  }
+
+  public AtomField getField() {
+    return field;
+  }
+
+  private static EncounterType classify(
+      int entryCell, int entryDirection, int exitCell, int exitDirection, int deflections) {
+    if (deflections == 0) {
+      return EncounterType.NO_ENCOUNTER;
+    }
+    if (exitCell == entryCell && exitDirection == Board.reverse(entryDirection)) {
+      return EncounterType.REFLECTION;
+    }
+    int turn = Math.floorMod(exitDirection - entryDirection, Board.DIRECTIONS);
+    if (deflections >= 2 && (turn == 2 || turn == 4)) {
+      return EncounterType.DOUBLE_HIT;
+    }
+    return EncounterType.DEFLECTION;
+  }
+}
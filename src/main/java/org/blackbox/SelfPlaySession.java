@@ -0,0 +1,243 @@
+package org.blackbox;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The SelfPlaySession class is a headless, reusable game for simulations. It holds one atom layout
+ * at a time and records the rays fired and cells guessed by a Strategy, scoring them with the same
+ * formula as Game.scoreTracker: one point per ray and five per wrong guess. A session is owned by a
+ * single thread and allocates nothing after construction.
+ */
+public final class SelfPlaySession {
+  private final Board board;
+  private final EntryCatalog entries;
+  private final int atomCount;
+  private final AtomField field;
+  private final RayTracer tracer;
+  private final LayoutSampler sampler;
+  private final int[] layout; // The atoms of the current game
+  private final long[] guessed; // Bit per cell, set when the cell has been guessed
+  private final long[] scratch; // Bit per cell, free for the strategy to use each game
+  private final long[] used; // Bit per entry, set once it has been fired from or exited through
+  private final int[] entryOrder; // The entries in an order strategies shuffle as they fire
+  private EngineMetrics.Recorder metrics; // Created when rays are first fired with metrics on
+  private int raysShot;
+  private int guesses;
+  private int hits;
+
+  /**
+   * Constructs a session for the given board and number of atoms.
+   *
+   * @param board the board to play on
+   * @param atomCount the number of atoms hidden in each game
+   */
+  public SelfPlaySession(Board board, int atomCount) {
+    if (atomCount < 1 || atomCount > board.getCellCount()) {
+      throw new IllegalArgumentException("Invalid number of atoms: " + atomCount);
+    }
+    this.board = board;
+    this.entries = EntryCatalog.of(board);
+    this.atomCount = atomCount;
+    this.field = new AtomField(board, new int[0]);
+    this.tracer = new RayTracer(field);
+    this.sampler = new LayoutSampler(board, atomCount);
+    this.layout = new int[atomCount];
+    this.guessed = new long[(board.getCellCount() + 63) >>> 6];
+    this.scratch = new long[guessed.length];
+    this.used = new long[(entries.size() + 63) >>> 6];
+    this.entryOrder = new int[entries.size()];
+    for (int entry = 0; entry < entryOrder.length; entry++) {
+      entryOrder[entry] = entry;
+    }
+  }
+
+  /**
+   * Starts a new game with a random atom layout, clearing the rays and guesses of the last one.
+   *
+   * @param random the source of randomness for the layout
+   */
+  public void newGame(SplittableRandom random) {
+    sampler.draw(random, layout, 0);
+    field.place(layout, atomCount);
+    Arrays.fill(guessed, 0);
+    Arrays.fill(scratch, 0);
+    Arrays.fill(used, 0);
+    raysShot = 0;
+    guesses = 0;
+    hits = 0;
+  }
+
+  /**
+   * Fires a ray from the given entry point and counts it towards the score. As in the game, an
+   * entry can not be fired again once it has been fired from or a ray has left through it.
+   *
+   * @param entry the entry of the board's EntryCatalog to fire from
+   * @return the outcome of the ray, encoded as by RaySignature
+   */
+  public int fire(int entry) {
+    if (isUsed(entry)) {
+      throw new IllegalStateException("Entry point already used: " + entry);
+    }
+    used[entry >>> 6] |= 1L << entry;
+    raysShot++;
+    int cell = entries.cell(entry);
+    int direction = entries.direction(entry);
+    long packed;
+    if (EngineMetrics.isEnabled()) {
+      if (metrics == null) {
+        metrics = EngineMetrics.global().newRecorder(this);
+      }
+      packed = metrics.trace(tracer, cell, direction);
+    } else {
+      packed = tracer.trace(cell, direction);
+    }
+    int exitCell = RayResult.exitCell(packed);
+    int exit = -1;
+    if (exitCell != Board.NO_CELL) {
+      exit = entries.exitEntry(exitCell, RayResult.exitDirection(packed));
+      used[exit >>> 6] |= 1L << exit;
+    }
+    return RaySignature.encode(RayResult.type(packed), exit);
+  }
+
+  /**
+   * Guesses that the given cell holds an atom. Guessing the same cell twice has no effect.
+   *
+   * @param cell the guessed cell
+   */
+  public void guess(int cell) {
+    long bit = 1L << cell;
+    if ((guessed[cell >>> 6] & bit) != 0) {
+      return;
+    }
+    guessed[cell >>> 6] |= bit;
+    guesses++;
+    if (field.isAtom(cell)) {
+      hits++;
+    }
+  }
+
+  // Returns true if the entry has been fired from or a ray has left through it this game.
+  public boolean isUsed(int entry) {
+    return (used[entry >>> 6] & (1L << entry)) != 0;
+  }
+
+  // Returns every entry, in an order strategies may shuffle in place to pick entries at random.
+  public int[] entryOrder() {
+    return entryOrder;
+  }
+
+  public boolean isGuessed(int cell) {
+    return (guessed[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // Returns a bitboard with one bit per cell, cleared at the start of every game, for strategies.
+  public long[] scratchCells() {
+    return scratch;
+  }
+
+  // Returns the score of the current game: rays shot plus five for every wrong guess.
+  public int score() {
+    return raysShot + 5 * (guesses - hits);
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  public EntryCatalog getEntries() {
+    return entries;
+  }
+
+  public int getAtomCount() {
+    return atomCount;
+  }
+
+  public int getRaysShot() {
+    return raysShot;
+  }
+
+  public int getGuesses() {
+    return guesses;
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  /**
+   * A guessing strategy played by the simulator. Implementations fire rays and guess cells through
+   * the session and must not keep per-game state outside it, since one strategy instance is shared
+   * by every worker thread.
+   */
+  @FunctionalInterface
+  public interface Strategy {
+    void play(SelfPlaySession session, SplittableRandom random);
+
+    /** Fires no rays and guesses random cells. */
+    static Strategy blind() {
+      return (session, random) -> guessRandomly(session, random, null);
+    }
+
+    /**
+     * Fires rays from random entry points not used yet, rules out every cell next to the path of
+     * rays that pass straight through, and guesses random cells among the rest.
+     *
+     * @param rays the number of rays to fire each game
+     * @return the strategy
+     */
+    static Strategy elimination(int rays) {
+      return (session, random) -> {
+        Board board = session.getBoard();
+        EntryCatalog entries = session.getEntries();
+        long[] ruledOut = session.scratchCells();
+        int[] order = session.entryOrder();
+        // Partial Fisher-Yates shuffle: each entry is drawn at most once, and exits are skipped
+        for (int i = 0, fired = 0; i < order.length && fired < rays; i++) {
+          int pick = i + random.nextInt(order.length - i);
+          int entry = order[pick];
+          order[pick] = order[i];
+          order[i] = entry;
+          if (session.isUsed(entry)) {
+            continue;
+          }
+          fired++;
+          int outcome = session.fire(entry);
+          if (RaySignature.type(outcome) != EncounterType.NO_ENCOUNTER) {
+            continue;
+          }
+          // A straight ray touches no area of effect, so no cell on or next to it is an atom
+          int direction = entries.direction(entry);
+          for (int cell = entries.cell(entry);
+              cell != Board.NO_CELL;
+              cell = board.neighbor(cell, direction)) {
+            ruledOut[cell >>> 6] |= 1L << cell;
+            for (int d = 0; d < Board.DIRECTIONS; d++) {
+              int neighbor = board.neighbor(cell, d);
+              if (neighbor != Board.NO_CELL) {
+                ruledOut[neighbor >>> 6] |= 1L << neighbor;
+              }
+            }
+          }
+        }
+        guessRandomly(session, random, ruledOut);
+      };
+    }
+
+    // Guesses atomCount distinct random cells, avoiding ruled out cells while any remain.
+    private static void guessRandomly(
+        SelfPlaySession session, SplittableRandom random, long[] ruledOut) {
+      int cellCount = session.getBoard().getCellCount();
+      int attempts = 0;
+      while (session.getGuesses() < session.getAtomCount()) {
+        int cell = random.nextInt(cellCount);
+        boolean excluded = ruledOut != null && (ruledOut[cell >>> 6] & (1L << cell)) != 0;
+        // Give up on the exclusions if nearly every cell has been ruled out
+        if (!session.isGuessed(cell) && (!excluded || attempts++ > 8 * cellCount)) {
+          session.guess(cell);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package org.blackbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * The SnapshotFile class reads and writes files of GameSnapshots: the int MAGIC and int VERSION,
+ * then the snapshots back to back in the encoding described by GameSnapshot. Files are written in
+ * large buffered chunks through a FileChannel and read by memory-mapping them a window at a time,
+ * so a file of millions of games is scanned without copying it onto the heap.
+ */
+public final class SnapshotFile {
+  public static final int MAGIC = 0x42424753; // "BBGS"
+  public static final int VERSION = 1;
+  static final int HEADER_BYTES = 8;
+  // Bytes buffered per FileChannel write
+  private static final int CHUNK = 1 << 20;
+  // Largest window mapped at once; a snapshot straddling its end starts the next window
+  private static final long WINDOW = 1L << 30;
+
+  private SnapshotFile() {}
+
+  /**
+   * Writes snapshots to a file, replacing it.
+   *
+   * @param file the file
+   * @param snapshots the snapshots, in the order they are read back
+   * @throws IOException if the file can not be written
+   */
+  public static void write(Path file, Iterable<GameSnapshot> snapshots) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+      buffer.putInt(MAGIC).putInt(VERSION);
+      for (GameSnapshot snapshot : snapshots) {
+        int size = snapshot.encodedSize();
+        if (buffer.remaining() < size) {
+          drain(channel, buffer);
+          if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size);
+          }
+        }
+        snapshot.write(buffer);
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  // Writes out the bytes put in the buffer and clears it for more.
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Reads every snapshot of a file in order, memory-mapping the file.
+   *
+   * @param file the file
+   * @param action the action to run on each snapshot
+   * @return the number of snapshots read
+   * @throws IOException if the file can not be read or is not a snapshot file
+   */
+  public static long forEach(Path file, Consumer<GameSnapshot> action) throws IOException {
+    return forEach(file, action, WINDOW);
+  }
+
+  // Reads every snapshot of a file, mapping at most window bytes at once.
+  static long forEach(Path file, Consumer<GameSnapshot> action, long window) throws IOException {
+    return scan(file, buffer -> action.accept(GameSnapshot.read(buffer)), window);
+  }
+
+  /**
+   * Counts the snapshots of a file without decoding them, by skipping from one to the next.
+   *
+   * @param file the file
+   * @return the number of snapshots
+   * @throws IOException if the file can not be read or is not a snapshot file
+   */
+  public static long count(Path file) throws IOException {
+    return scan(
+        file,
+        buffer -> buffer.position(buffer.position() + GameSnapshot.encodedSize(buffer)),
+        WINDOW);
+  }
+
+  // Reads the snapshot at a buffer's position, advancing the buffer past it.
+  private interface Reader {
+    void read(ByteBuffer buffer) throws IOException;
+  }
+
+  // Maps the file window by window, handing the reader a buffer positioned at each snapshot.
+  private static long scan(Path file, Reader reader, long maxWindow) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      MappedByteBuffer header =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_BYTES));
+      checkHeader(header, file);
+      long count = 0;
+      long position = HEADER_BYTES;
+      while (position < size) {
+        long length = Math.min(size - position, maxWindow);
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        boolean last = position + length == size;
+        while (window.hasRemaining()) {
+          if (!fits(window)) {
+            if (last) {
+              throw new IOException("Truncated snapshot in " + file);
+            }
+            break; // Read it from the start of the next window
+          }
+          reader.read(window);
+          count++;
+        }
+        if (window.position() == 0) {
+          throw new IOException("Snapshot larger than the mapping window in " + file);
+        }
+        position += window.position();
+      }
+      return count;
+    }
+  }
+
+  // Returns true if the snapshot at the buffer's position lies wholly within the buffer.
+  private static boolean fits(ByteBuffer buffer) {
+    return buffer.remaining() >= GameSnapshot.FIXED_BYTES
+        && buffer.remaining() >= GameSnapshot.encodedSize(buffer);
+  }
+
+  // Reads and checks the header, leaving the buffer at the first snapshot.
+  static void checkHeader(ByteBuffer buffer, Path file) throws IOException {
+    if (buffer.remaining() < HEADER_BYTES
+        || buffer.getInt() != MAGIC
+        || buffer.getInt() != VERSION) {
+      throw new IOException("Not a snapshot file: " + file);
+    }
+  }
+}
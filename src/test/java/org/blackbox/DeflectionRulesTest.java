@@ -0,0 +1,71 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class DeflectionRulesTest {
+
+  @Test
+  void step_isAbsorbed_exactlyWhenAnAtomIsAhead() {
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      for (int mask = 0; mask < 64; mask++) {
+        boolean ahead = (mask & (1 << direction)) != 0;
+        assertEquals(ahead, DeflectionRules.step(direction, mask) == DeflectionRules.ABSORBED);
+      }
+    }
+  }
+
+  @Test
+  void step_followsTheRules_forAStraightEastboundRay() {
+    int east = 3;
+    assertEquals(east, DeflectionRules.step(east, 0));
+    assertFalse(DeflectionRules.isDeflected(DeflectionRules.step(east, 0)));
+    // Atom ahead-left (direction 4) turns the ray right, to direction 2
+    int step = DeflectionRules.step(east, 1 << 4);
+    assertTrue(DeflectionRules.isDeflected(step));
+    assertEquals(2, DeflectionRules.direction(step));
+    // Atoms ahead-left and ahead-right send it back
+    assertEquals(0, DeflectionRules.direction(DeflectionRules.step(east, (1 << 4) | (1 << 2))));
+    // Atom ahead-left with the one beside it also sends it back
+    assertEquals(0, DeflectionRules.direction(DeflectionRules.step(east, (1 << 4) | (1 << 5))));
+    // Atoms only behind the ray do not touch its path
+    assertEquals(east, DeflectionRules.step(east, 1 << 0));
+  }
+
+  @Test
+  void step_isTheSameUnderRotation() {
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      for (int mask = 0; mask < 64; mask++) {
+        int step = DeflectionRules.step(direction, mask);
+        for (int k = 1; k < Board.DIRECTIONS; k++) {
+          int rotatedMask = ((mask << k) | (mask >>> (Board.DIRECTIONS - k))) & 63;
+          int rotated = DeflectionRules.step(Board.rotate(direction, k), rotatedMask);
+          if (step == DeflectionRules.ABSORBED) {
+            assertEquals(DeflectionRules.ABSORBED, rotated);
+          } else {
+            assertEquals(
+                Board.rotate(DeflectionRules.direction(step), k),
+                DeflectionRules.direction(rotated));
+            assertEquals(DeflectionRules.isDeflected(step), DeflectionRules.isDeflected(rotated));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void step_isReversible_whenTheRayCameFromAnEmptyCell() {
+    for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+      for (int mask = 0; mask < 64; mask++) {
+        int step = DeflectionRules.step(direction, mask);
+        if (step == DeflectionRules.ABSORBED || (mask & (1 << Board.reverse(direction))) != 0) {
+          continue;
+        }
+        int back = DeflectionRules.step(Board.reverse(DeflectionRules.direction(step)), mask);
+        assertNotEquals(DeflectionRules.ABSORBED, back);
+        assertEquals(Board.reverse(direction), DeflectionRules.direction(back));
+      }
+    }
+  }
+}
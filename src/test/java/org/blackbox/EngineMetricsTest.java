@@ -0,0 +1,94 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class EngineMetricsTest {
+
+  @Test
+  void trace_countsEveryRayByType_andItsPathLength() {
+    Board board = Board.of(4);
+    EntryCatalog entries = EntryCatalog.of(board);
+    RayTracer tracer = new RayTracer(board, new int[] {3, 17, 28, 40});
+    EngineMetrics metrics = new EngineMetrics();
+    EngineMetrics.Recorder recorder = metrics.newRecorder(this);
+    long[] expected = new long[EncounterType.values().length];
+    long cells = 0;
+    for (int round = 0; round < 10; round++) {
+      for (int entry = 0; entry < entries.size(); entry++) {
+        long packed = recorder.trace(tracer, entries.cell(entry), entries.direction(entry));
+        expected[RayResult.type(packed).ordinal()]++;
+        cells += tracer.pathLength();
+      }
+    }
+
+    assertEquals(10L * entries.size(), metrics.getRays());
+    for (EncounterType type : EncounterType.values()) {
+      assertEquals(expected[type.ordinal()], metrics.encounters(type));
+    }
+    assertEquals((double) cells / metrics.getRays(), metrics.getMeanPathLength(), 1e-9);
+    // One ray in 64 is timed
+    assertEquals(10L * entries.size() / 64, metrics.count(EngineMetrics.Operation.TRACE));
+
+    metrics.reset();
+    assertEquals(0, metrics.getRays());
+    assertEquals(0, metrics.percentile(EngineMetrics.Operation.TRACE, 50));
+  }
+
+  @Test
+  void recordRay_fromManyThreads_addsNoRecorders() throws InterruptedException {
+    EngineMetrics metrics = new EngineMetrics();
+    Thread[] threads = new Thread[200];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> metrics.recordRay(EncounterType.DIRECT_HIT, 3));
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(threads.length, metrics.encounters(EncounterType.DIRECT_HIT));
+    assertEquals(0, metrics.ownedRecorders());
+  }
+
+  @Test
+  void newRecorder_keepsTheCounts_ofCollectedOwners() throws InterruptedException {
+    Board board = Board.of(2);
+    RayTracer tracer = new RayTracer(board, new int[] {0});
+    EntryCatalog entries = EntryCatalog.of(board);
+    EngineMetrics metrics = new EngineMetrics();
+    metrics.newRecorder(new Object()).trace(tracer, entries.cell(0), entries.direction(0));
+
+    for (int i = 0; i < 100 && metrics.ownedRecorders() > 0; i++) {
+      System.gc();
+      metrics.getRays(); // Drops the recorders of collected owners
+      Thread.sleep(10);
+    }
+
+    assertEquals(0, metrics.ownedRecorders());
+    assertEquals(1, metrics.getRays());
+  }
+
+  @Test
+  void bucket_keepsLatenciesWithinOneSixteenth() {
+    for (long nanos = 0; nanos < 1L << 40; nanos = nanos * 3 / 2 + 1) {
+      long value = EngineMetrics.bucketValue(EngineMetrics.bucket(nanos));
+      assertTrue(Math.abs(value - nanos) <= nanos / 16 + 1, nanos + " -> " + value);
+    }
+    assertTrue(EngineMetrics.bucket(Long.MAX_VALUE) > EngineMetrics.bucket(1L << 40));
+  }
+
+  @Test
+  void record_addsOneCallPerOperation() {
+    EngineMetrics metrics = new EngineMetrics();
+    for (int i = 0; i < 5; i++) {
+      metrics.record(EngineMetrics.Operation.SCORE, System.nanoTime(), -1);
+    }
+
+    assertEquals(5, metrics.count(EngineMetrics.Operation.SCORE));
+    assertEquals(0, metrics.count(EngineMetrics.Operation.FIRE));
+    assertEquals(-1, metrics.allocatedPerCall(EngineMetrics.Operation.SCORE));
+    assertTrue(metrics.getSnapshot().contains("SCORE"));
+  }
+}
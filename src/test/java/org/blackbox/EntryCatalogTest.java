@@ -0,0 +1,52 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class EntryCatalogTest {
+
+  @Test
+  void buttons_mapBackToTheirEntries() {
+    EntryCatalog entries = EntryCatalog.of(Board.of(4));
+    assertEquals(54, entries.size());
+    for (int entry = 0; entry < entries.size(); entry++) {
+      ButtonData button = entries.button(entry);
+      assertEquals(entry, entries.indexOf(new ButtonData(button.hex(), button.degree())));
+      assertEquals(entries.cell(entry), Board.of(4).indexOf(button.hex()));
+      assertTrue(entries.getDegreesByHex().get(button.hex()).contains(button.degree()));
+    }
+    assertEquals(-1, entries.indexOf(new ButtonData("0,0,0", 0)));
+    assertEquals(-1, entries.indexOf(new ButtonData("4,0,-4", 120)));
+    assertEquals(List.of(0, 60, 300), entries.getDegreesByHex().get("4,0,-4"));
+    assertSame(entries.button(7), new Game(4, 6).entryButton(7));
+  }
+
+  @Test
+  void perimeter_goesRoundTheBoardVisitingEveryEntryOnce() {
+    for (int radius = 1; radius <= 6; radius++) {
+      Board board = Board.of(radius);
+      EntryCatalog entries = EntryCatalog.of(board);
+      Set<Integer> seen = new HashSet<>();
+      for (int position = 0; position < entries.size(); position++) {
+        int entry = entries.perimeterEntry(position);
+        assertTrue(seen.add(entry));
+        // Each entry is on the same cell as the one before it or on the next cell round
+        int next = entries.perimeterEntry((position + 1) % entries.size());
+        int cell = entries.cell(entry);
+        int nextCell = entries.cell(next);
+        boolean adjacent = cell == nextCell;
+        for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+          adjacent |= board.neighbor(cell, direction) == nextCell;
+        }
+        assertTrue(adjacent, "Entries " + entry + " and " + next + " are not adjacent");
+      }
+      assertEquals(entries.size(), seen.size());
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameServerTest {
+  private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private GameServer server;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = new GameServer(0, 64);
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  private HttpResponse<String> send(String method, String path) throws Exception {
+    return send(server, method, path);
+  }
+
+  private HttpResponse<String> send(GameServer target, String method, String path)
+      throws Exception {
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + target.getPort() + path))
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private long createGame() throws Exception {
+    HttpResponse<String> response = send("POST", "/games?radius=4&atoms=3");
+    assertEquals(201, response.statusCode(), response.body());
+    Matcher matcher = ID.matcher(response.body());
+    assertTrue(matcher.find());
+    return Long.parseLong(matcher.group(1));
+  }
+
+  @Test
+  void fullGame_overHttp_scoresRaysAndWrongGuesses() throws Exception {
+    EntryCatalog entries = EntryCatalog.of(Board.of(4));
+    String entryHex = Board.of(4).key(entries.cell(0));
+    long id = createGame();
+    String game = "/games/" + id;
+
+    String ray =
+        send("POST", game + "/rays?hex=" + entryHex + "&degree=" + entries.degree(0)).body();
+    assertTrue(ray.contains("\"entry\":0"), ray);
+    assertEquals(409, send("POST", game + "/rays?entry=0").statusCode());
+    assertEquals(409, send("POST", game + "/end").statusCode());
+    for (String hex : new String[] {"0,0,0", "1,-1,0", "-1,1,0"}) {
+      assertEquals(200, send("POST", game + "/guesses?hex=" + hex).statusCode());
+    }
+    assertEquals(409, send("POST", game + "/guesses?hex=2,-2,0").statusCode());
+
+    String ended = send("POST", game + "/end").body();
+    Matcher hits = Pattern.compile("\"hits\":(\\d)").matcher(ended);
+    assertTrue(hits.find(), ended);
+    int wrong = 3 - Integer.parseInt(hits.group(1));
+    assertTrue(ended.contains("\"rays\":1"), ended);
+    assertTrue(ended.contains("\"score\":" + (1 + 5 * wrong)), ended);
+    assertEquals(409, send("POST", game + "/rays?entry=5").statusCode());
+  }
+
+  @Test
+  void badRequests_areAnsweredWithTheirStatus() throws Exception {
+    long id = createGame();
+
+    assertEquals(404, send("GET", "/games/999").statusCode());
+    assertEquals(400, send("POST", "/games/" + id + "/rays?entry=54").statusCode());
+    assertEquals(400, send("POST", "/games/" + id + "/guesses?hex=9,9,9").statusCode());
+    assertEquals(400, send("POST", "/games?radius=1000").statusCode());
+    assertEquals(405, send("GET", "/games").statusCode());
+    assertEquals(404, send("POST", "/gamesX").statusCode());
+    assertEquals(404, send("GET", "/gamesX/" + id).statusCode());
+    assertEquals(200, send("DELETE", "/games/" + id).statusCode());
+    assertEquals(404, send("GET", "/games/" + id).statusCode());
+  }
+
+  @Test
+  void concurrentSessions_keepTheirOwnLayouts() throws Exception {
+    Board board = Board.of(4);
+    EntryCatalog entries = EntryCatalog.of(board);
+    int games = 32;
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String[]>> results = new ArrayList<>();
+      for (int i = 0; i < games; i++) {
+        long id = server.create(4, 4);
+        String game = "/games/" + id;
+        results.add(
+            pool.submit(
+                () -> {
+                  String ray = send("POST", game + "/rays?entry=7").body();
+                  for (int cell = 0; cell < 4; cell++) {
+                    send("POST", game + "/guesses?hex=" + board.key(cell));
+                  }
+                  return new String[] {ray, send("POST", game + "/end").body()};
+                }));
+      }
+      for (Future<String[]> result : results) {
+        String[] bodies = result.get();
+        Matcher atoms = Pattern.compile("\"(-?\\d+,-?\\d+,-?\\d+)\"").matcher(bodies[1]);
+        List<Integer> cells = new ArrayList<>();
+        while (atoms.find()) {
+          cells.add(board.indexOf(atoms.group(1)));
+        }
+        RayTracer tracer =
+            new RayTracer(board, cells.stream().mapToInt(Integer::intValue).toArray());
+        long expected = tracer.trace(entries.cell(7), entries.direction(7));
+        assertEquals(4, cells.size(), bodies[1]);
+        String type = "\"type\":\"" + RayResult.type(expected) + '"';
+        assertTrue(bodies[0].contains(type), bodies[0]);
+      }
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(games, server.sessionCount());
+  }
+
+  @Test
+  void fullServer_refusesNewGames_untilOneIsDeleted() throws Exception {
+    long id = 0;
+    for (int i = server.sessionCount(); i < 64; i++) {
+      id = server.create(4, 4);
+    }
+
+    assertEquals(503, send("POST", "/games").statusCode());
+    assertEquals(200, send("DELETE", "/games/" + id).statusCode());
+    assertEquals(404, send("POST", "/games/" + id + "/rays?entry=0").statusCode());
+    assertEquals(201, send("POST", "/games").statusCode());
+    assertEquals(503, send("POST", "/games").statusCode());
+  }
+
+  @Test
+  void server_listensOnTheLoopbackAddress_byDefault() {
+    assertTrue(server.getAddress().isLoopbackAddress());
+  }
+
+  @Test
+  void concurrentCreates_neverExceedTheMaximum() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> statuses = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        statuses.add(pool.submit(() -> send("POST", "/games").statusCode()));
+      }
+      int created = 0;
+      for (Future<Integer> status : statuses) {
+        created += status.get() == 201 ? 1 : 0;
+      }
+      assertEquals(64, created);
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(64, server.sessionCount());
+  }
+
+  @Test
+  void journaledGames_replayToTheSameScore(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("server.bbjl");
+    String ended;
+    long id;
+    long deleted;
+    try (ActionJournal journal = ActionJournal.open(file, Duration.ofMillis(5))) {
+      GameServer journaled = new GameServer(0, 8, journal);
+      journaled.start();
+      try {
+        id = journaled.create(4, 2);
+        deleted = journaled.create(4, 2);
+        send(journaled, "POST", "/games/" + deleted + "/rays?entry=3");
+        assertEquals(200, send(journaled, "DELETE", "/games/" + deleted).statusCode());
+        String game = "/games/" + id;
+        send(journaled, "POST", game + "/rays?entry=3");
+        send(journaled, "POST", game + "/rays?entry=20");
+        send(journaled, "POST", game + "/guesses?hex=0,0,0");
+        send(journaled, "POST", game + "/guesses?hex=1,-1,0");
+        ended = send(journaled, "POST", game + "/end").body();
+      } finally {
+        journaled.stop(0);
+      }
+    }
+
+    Map<Long, JournalReplayer.Replay> replays = JournalReplayer.replay(file);
+    JournalReplayer.Replay replay = replays.get(id);
+
+    assertFalse(replays.containsKey(deleted));
+
+    assertTrue(replay.getDivergences().isEmpty(), replay.getDivergences().toString());
+    assertTrue(ended.contains("\"score\":" + replay.getGame().getScore()), ended);
+  }
+
+  @Test
+  void session_tracesLikeADedicatedTracer() {
+    Board board = Board.of(4);
+    EntryCatalog entries = EntryCatalog.of(board);
+    GameSession session = GameSession.random(board, 5, new SplittableRandom(7));
+    RayTracer shared = new RayTracer(board, new int[] {1, 2});
+
+    long packed = session.fire(3, shared);
+    for (int guess = 0; guess < 5; guess++) {
+      session.toggleGuess(guess);
+    }
+    session.end();
+    RayTracer dedicated = new RayTracer(board, session.getAtoms());
+
+    assertEquals(dedicated.trace(entries.cell(3), entries.direction(3)), packed);
+  }
+}
@@ -0,0 +1,64 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+class GameSessionTest {
+
+  @Test
+  void footprint_onTheStandardBoard_isUnder128Bytes() {
+    Board board = Board.of(Game.DEFAULT_RADIUS);
+    GameSession session =
+        GameSession.random(board, Game.DEFAULT_ATOM_COUNT, new SplittableRandom(1));
+    session.fire(0, new RayTracer(board, new int[0]));
+    session.toggleGuess(30);
+
+    GraphLayout layout = GraphLayout.parseInstance(session);
+
+    assertTrue(layout.totalSize() < 128, layout.toFootprint());
+    assertEquals(2, layout.totalCount(), layout.toFootprint());
+  }
+
+  @Test
+  void random_placesTheRequestedNumberOfDistinctAtoms() {
+    Board board = Board.of(4);
+    SplittableRandom random = new SplittableRandom(42);
+    int[] seen = new int[board.getCellCount()];
+    for (int game = 0; game < 2000; game++) {
+      GameSession session = GameSession.random(board, 6, random);
+      for (int cell = 0; cell < 6; cell++) {
+        session.toggleGuess(cell);
+      }
+      session.end();
+      int[] atoms = session.getAtoms();
+      assertEquals(6, atoms.length);
+      for (int i = 0; i < atoms.length; i++) {
+        assertTrue(i == 0 || atoms[i] > atoms[i - 1]);
+        seen[atoms[i]]++;
+      }
+    }
+    // 12000 atoms over 61 cells: every cell should be drawn roughly 197 times
+    for (int count : seen) {
+      assertTrue(count > 120 && count < 280, "Cell drawn " + count + " times");
+    }
+  }
+
+  @Test
+  void guesses_areLimitedToTheAtomCount_andCountTowardsTheScore() {
+    GameSession session = new GameSession(Board.of(4), new int[] {0, 30, 60});
+
+    assertTrue(session.toggleGuess(0));
+    assertTrue(session.toggleGuess(1));
+    assertFalse(session.toggleGuess(1));
+    assertTrue(session.toggleGuess(2));
+    assertTrue(session.toggleGuess(30));
+    assertThrows(IllegalStateException.class, () -> session.toggleGuess(59));
+
+    assertEquals(5, session.end());
+    assertEquals(2, session.hits());
+    assertArrayEquals(new int[] {0, 30, 60}, session.getAtoms());
+  }
+}
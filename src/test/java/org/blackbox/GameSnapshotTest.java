@@ -0,0 +1,117 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameSnapshotTest {
+
+  // Records the cells marked by a game, in order.
+  private static final class MarkRecorder implements GameView {
+    final List<String> marks = new ArrayList<>();
+
+    @Override
+    public void cellMarked(int cell, CellMark mark) {
+      marks.add(cell + ":" + mark);
+    }
+  }
+
+  private static Game playedGame(GameView view) {
+    Game game = new Game(HexGrid.of(Board.of(4)), view, 4, 6);
+    game.atomSelection();
+    for (int entry = 0; entry < 54; entry += 5) {
+      game.handleButtonClick(game.entryButton(entry));
+      game.raysShot++;
+    }
+    game.scoreTracker(game.getAtomLocations().subList(0, 4));
+    return game;
+  }
+
+  @Test
+  void restore_fromASavedFile_resumesTheGameWithoutTracing(@TempDir Path dir) throws IOException {
+    MarkRecorder played = new MarkRecorder();
+    Game game = playedGame(played);
+    Path file = dir.resolve("game.bbgs");
+    game.snapshot(List.of("0,0,0")).save(file);
+
+    MarkRecorder resumed = new MarkRecorder();
+    Game restored = new Game(HexGrid.of(Board.of(4)), resumed, 4, 6);
+    GameSnapshot snapshot = GameSnapshot.load(file);
+    restored.restore(snapshot);
+
+    assertEquals(game.snapshot(List.of("0,0,0")), snapshot);
+    assertEquals(game.getObservations(), restored.getObservations());
+    assertEquals(game.getAtomLocations(), restored.getAtomLocations());
+    assertEquals(played.marks, resumed.marks);
+    assertEquals(game.getScore(), restored.getScore());
+    assertEquals(11, restored.raysShot);
+    assertArrayEquals(new int[] {30}, snapshot.guesses());
+    assertEquals(snapshot, restored.snapshot(List.of("0,0,0")));
+  }
+
+  @Test
+  void forEach_readsEverySnapshot_acrossMappingWindows(@TempDir Path dir) throws IOException {
+    List<GameSnapshot> snapshots = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      snapshots.add(playedGame(GameView.HEADLESS).snapshot(List.of()));
+    }
+    Path file = dir.resolve("games.bbgs");
+    SnapshotFile.write(file, snapshots);
+
+    List<GameSnapshot> read = new ArrayList<>();
+    long count = SnapshotFile.forEach(file, read::add, 1000);
+
+    assertEquals(200, count);
+    assertEquals(snapshots, read);
+    assertEquals(200, SnapshotFile.count(file));
+  }
+
+  @Test
+  void read_decodesCellsAbove32767_onTheLargestBoard() throws IOException {
+    GameSnapshot snapshot =
+        new GameSnapshot(
+            GameSnapshot.MAX_RADIUS,
+            new int[] {40_000, 65_000},
+            List.of(new GameSnapshot.Ray(1_700, 50_000, 7L)),
+            new int[] {60_000},
+            1,
+            1,
+            0,
+            5,
+            EncounterType.DEFLECTION);
+    ByteBuffer buffer = ByteBuffer.allocate(snapshot.encodedSize());
+    snapshot.write(buffer);
+    buffer.flip();
+
+    assertEquals(snapshot.encodedSize(), GameSnapshot.encodedSize(buffer));
+    assertEquals(snapshot, GameSnapshot.read(buffer));
+    assertTrue(Board.of(GameSnapshot.MAX_RADIUS).getCellCount() <= 1 << 16);
+  }
+
+  @Test
+  void read_rejectsAnUnknownEncounterType() {
+    GameSnapshot snapshot = playedGame(GameView.HEADLESS).snapshot(List.of());
+    ByteBuffer buffer = ByteBuffer.allocate(snapshot.encodedSize());
+    snapshot.write(buffer);
+    buffer.put(1, (byte) -1);
+    buffer.flip();
+
+    assertThrows(IOException.class, () -> GameSnapshot.read(buffer));
+  }
+
+  @Test
+  void load_rejectsFilesThatAreNotSnapshots(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("other.bin");
+    Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+    assertThrows(IOException.class, () -> GameSnapshot.load(file));
+    assertThrows(IOException.class, () -> SnapshotFile.count(file));
+  }
+}
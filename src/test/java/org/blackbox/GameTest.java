@@ -45,14 +45,16 @@ public class GameTest {
     @Test
     public void atomReveal_doesNothing_whenNoAtomsAreSelected() {
         testGame.atomReveal();
-        verify(mockHexManager, times(0)).alterHexagon(anyInt(), anyInt(), anyInt(), any());
+        verify(mockGUI, times(0)).atomRevealed(anyInt());
     }
 
     @Test
     void storeEntryPoints_storesEntryPointsForAllHexagons() {
-        when(mockHexManager.getAllHexagonLocations()).thenReturn(new HashSet<>(Arrays.asList("4,0,0", "1,-4,0", "1,0,-1", "0,4,-1", "-1,1,0", "-1,0,1", "0,-1,1")));
+        when(mockHexManager.getAllHexagonLocations()).thenReturn(new HashSet<>(Arrays.asList("4,0,-4", "1,-4,3", "1,0,-1", "0,4,-4", "-1,1,0", "-1,0,1", "0,-1,1")));
         testGame.storeEntryPoints();
         assertEquals(3, testGame.getEntryPointsMap().size());
+        assertEquals(List.of(0, 60, 300), testGame.getEntryPoints("4,0,-4"));
+        assertEquals(List.of(0, 60, 120), testGame.getEntryPoints("0,4,-4"));
     }
 
     @Test
@@ -66,7 +68,7 @@ public class GameTest {
         when(mockHexManager.getAllHexagonLocations()).thenReturn(new HashSet<>(Arrays.asList("0,0,0", "1,-1,0", "1,0,-1", "0,1,-1", "-1,1,0", "-1,0,1", "0,-1,1")));
         testGame.atomSelection();
         testGame.atomReveal();
-        verify(mockHexManager, times(6)).alterHexagon(anyInt(), anyInt(), anyInt(), any());
+        verify(mockGUI, times(6)).atomRevealed(anyInt());
     }
 
     @Test
@@ -78,6 +80,37 @@ public class GameTest {
         assertEquals(6, atomNeighbors.size());
         assertTrue(atomNeighbors.values().stream().allMatch(neighbors -> neighbors.size() == 6));
     }
+    @Test
+    void atomSelection_buildsAtomField_forSelectedAtoms() {
+        when(mockHexManager.getAllHexagonLocations()).thenReturn(new HashSet<>(Arrays.asList("0,0,0", "1,-1,0", "1,0,-1", "0,1,-1", "-1,1,0", "-1,0,1", "0,-1,1")));
+        testGame.atomSelection();
+        assertEquals(6, testGame.getAtomField().getAtomCount());
+        assertTrue(testGame.isInMultipleNeighbors("0,0,0"));
+        assertFalse(testGame.isInMultipleNeighbors("4,-4,0"));
+    }
+
+    @Test
+    void atomSelection_selectsConfiguredNumberOfAtoms_onLargerBoard() {
+        Game largeGame = new Game(mockHexManager, mockGUI, 10, 3);
+        when(mockHexManager.getAllHexagonLocations()).thenReturn(new HashSet<>(Arrays.asList("10,-10,0", "-10,0,10", "5,5,-10", "0,0,0")));
+        largeGame.atomSelection();
+        assertEquals(3, largeGame.getAtomLocations().size());
+        assertEquals(3, largeGame.getAtomField().getAtomCount());
+    }
+
+    @Test
+    void constructor_throwsException_whenAtomCountDoesNotFitBoard() {
+        assertThrows(IllegalArgumentException.class, () -> new Game(mockHexManager, mockGUI, 1, 8));
+        assertThrows(IllegalArgumentException.class, () -> new Game(mockHexManager, mockGUI, 4, 0));
+    }
+
+    @Test
+    void proportionalAtomCount_keepsStandardDensity() {
+        assertEquals(6, Game.proportionalAtomCount(4));
+        assertEquals(33, Game.proportionalAtomCount(10));
+        assertEquals(120601, Board.of(200).getCellCount());
+    }
+
     @Test
     void scoreTracker_updatesScore_whenGameEnds() {
         when(mockGUI.getOrangeHexButtons()).thenReturn(new HashMap<>(Map.of("0,0,0", 0, "1,-1,0", 60, "1,0,-1", 120, "0,1,-1", 180, "-1,1,0", 240, "-1,0,1", 300)));
@@ -88,4 +121,27 @@ public class GameTest {
         assertEquals(15, testGame.getScore());
     }
 
-}
\ No newline at end of file
+    @Test
+    void headlessGame_firesRaysAndScores_withoutAView() {
+        Game headless = new Game(4, 2);
+        headless.atomSelection();
+        assertEquals(61, headless.getAtomField().getBoard().getCellCount());
+        String atom = headless.getAtomLocations().get(0);
+        RayResult result = headless.handleButtonClick(new ButtonData("-4,0,4", 180));
+        assertEquals(1, headless.getObservations().size());
+        assertEquals(result.type(), headless.lastEncounterType);
+        headless.raysShot = 1;
+        headless.scoreTracker(List.of(atom, "9,9,-18"));
+        assertEquals(6, headless.getScore());
+    }
+
+    @Test
+    void handleButtonClick_reportsTheRayAndItsMarks_toTheView() {
+        GameView view = Mockito.mock(GameView.class);
+        Game game = new Game(HexGrid.of(Board.of(4)), view, 4, 1);
+        game.atomSelection();
+        RayResult result = game.handleButtonClick(new ButtonData("-4,0,4", 180));
+        verify(view).rayFired(result);
+        verify(view, atLeastOnce()).cellMarked(eq(result.entryCell()), any(CellMark.class));
+    }
+}
@@ -0,0 +1,63 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class HexLayoutTest {
+
+  @Test
+  void cellAt_findsEveryCellAroundItsCentre() {
+    HexLayout layout = new HexLayout(Board.of(20), 12, 500, 500);
+    for (int cell = 0; cell < layout.getBoard().getCellCount(); cell++) {
+      double x = layout.cellX(cell);
+      double y = layout.cellY(cell);
+      assertEquals(cell, layout.cellAt(x, y));
+      // Just inside the flat sides and the corners of the hexagon
+      assertEquals(cell, layout.cellAt(x + 0.8 * Math.sqrt(3) / 2 * 12, y));
+      assertEquals(cell, layout.cellAt(x, y - 0.9 * 12));
+      assertEquals(-1, layout.entryAt(x, y));
+    }
+  }
+
+  @Test
+  void entryAt_findsEveryEntryAtItsMarker() {
+    HexLayout layout = new HexLayout(Board.of(4), 55, 500, 500);
+    EntryCatalog entries = EntryCatalog.of(layout.getBoard());
+    for (int entry = 0; entry < entries.size(); entry++) {
+      double x = layout.entryX(entry);
+      double y = layout.entryY(entry);
+      assertEquals(Board.NO_CELL, layout.cellAt(x, y));
+      assertEquals(entry, layout.entryAt(x, y));
+    }
+  }
+
+  @Test
+  void corners_lieOnTheHexagonAroundTheCachedCentre() {
+    HexLayout layout = new HexLayout(Board.of(3), 10, 200, 300);
+    double[] xs = new double[6];
+    double[] ys = new double[6];
+    Board board = layout.getBoard();
+    for (int cell = 0; cell < board.getCellCount(); cell++) {
+      assertEquals(layout.x(board.x(cell), board.y(cell)), layout.cellX(cell));
+      assertEquals(layout.y(board.x(cell), board.y(cell)), layout.cellY(cell));
+      layout.corners(cell, xs, ys);
+      for (int i = 0; i < 6; i++) {
+        assertEquals(10, Math.hypot(xs[i] - layout.cellX(cell), ys[i] - layout.cellY(cell)), 1e-9);
+        double insideX = 0.9 * xs[i] + 0.1 * layout.cellX(cell);
+        double insideY = 0.9 * ys[i] + 0.1 * layout.cellY(cell);
+        assertEquals(cell, layout.cellAt(insideX, insideY));
+      }
+    }
+  }
+
+  @Test
+  void pointsFarFromTheBoard_hitNothing() {
+    HexLayout layout = new HexLayout(Board.of(4), 55, 500, 500);
+    assertEquals(Board.NO_CELL, layout.cellAt(5000, -5000));
+    assertEquals(-1, layout.entryAt(5000, -5000));
+    assertEquals(-1, layout.entryAt(500, 500 - 1.5 * 55 * 7));
+    assertThrows(IllegalArgumentException.class, () -> new HexLayout(Board.of(4), 0, 0, 0));
+  }
+}
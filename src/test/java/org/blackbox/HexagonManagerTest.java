@@ -119,4 +119,44 @@ class HexagonManagerTest {
     assertEquals(1, neighbors.size());
     assertTrue(neighbors.contains("-2,3,-1"));
   }
+
+  @Test
+  void getHexagonByCellShouldMatchCoordinates() {
+    HexagonManager manager = new HexagonManager();
+    GUI.Hexagon hexagon = Mockito.mock(GUI.Hexagon.class);
+    manager.addHexagon(-1, 3, -2, hexagon);
+    int cell = manager.getBoard().indexOf(-1, 3, -2);
+    assertSame(hexagon, manager.getHexagon(cell));
+  }
+
+  @Test
+  void getNeighborCellsShouldOnlyReturnAddedHexagons() {
+    HexagonManager manager = new HexagonManager();
+    manager.addHexagon(-1, 3, -2, Mockito.mock(GUI.Hexagon.class));
+    manager.addHexagon(-2, 3, -1, Mockito.mock(GUI.Hexagon.class));
+    manager.addHexagon(0, 0, 0, Mockito.mock(GUI.Hexagon.class));
+    int[] neighbors = new int[6];
+    int count = manager.getNeighborCells(manager.getBoard().indexOf(-1, 3, -2), neighbors);
+    assertEquals(1, count);
+    assertEquals(manager.getBoard().indexOf(-2, 3, -1), neighbors[0]);
+  }
+
+  @Test
+  void isBoundaryShouldOnlyMatchOuterRing() {
+    HexagonManager manager = new HexagonManager();
+    Board board = manager.getBoard();
+    assertTrue(manager.isBoundary(board.indexOf(4, -4, 0)));
+    assertTrue(manager.isBoundary(board.indexOf(-2, 4, -2)));
+    assertFalse(manager.isBoundary(board.indexOf(0, 0, 0)));
+  }
+
+  @Test
+  void hexCoordShouldRoundTripKeys() {
+    int coord = HexCoord.parse("-4,1,3");
+    assertEquals(-4, HexCoord.x(coord));
+    assertEquals(1, HexCoord.y(coord));
+    assertEquals(3, HexCoord.z(coord));
+    assertEquals("-4,1,3", HexCoord.key(coord));
+    assertEquals(HexCoord.pack(-3, 1, 2), HexCoord.neighbor(coord, 3));
+  }
 }
@@ -0,0 +1,101 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HintAdvisorTest {
+
+  @Test
+  void advise_skipsEntriesAlreadyFiredOrSeenAsExits() {
+    Board board = Board.of(4);
+    EntryCatalog entries = EntryCatalog.of(board);
+    int[] signature = RaySignature.compute(new RayTracer(board, new int[] {3, 17, 28, 40}));
+    List<RaySolver.Observation> observations = new ArrayList<>();
+    for (int entry = 0; entry < 10; entry++) {
+      observations.add(new RaySolver.Observation(entry, signature[entry]));
+    }
+
+    HintAdvisor.Advice advice = new HintAdvisor(board, 4, 256).advise(observations);
+
+    for (HintAdvisor.Hint hint : advice.ranking()) {
+      assertTrue(hint.entry() >= 10);
+      for (RaySolver.Observation observation : observations) {
+        assertNotEquals(RaySignature.exitEntry(observation.outcome()), hint.entry());
+      }
+    }
+    assertTrue(advice.ranking().size() <= entries.size() - 10);
+    for (int i = 1; i < advice.ranking().size(); i++) {
+      assertTrue(
+          advice.ranking().get(i - 1).expectedGain() >= advice.ranking().get(i).expectedGain());
+    }
+  }
+
+  @Test
+  void advise_expectsNoGain_onceOnlyOneLayoutFits() {
+    Board board = Board.of(2);
+    int[] signature = RaySignature.compute(new RayTracer(board, new int[] {0, 9}));
+    RaySolver solver = new RaySolver(board, 2);
+    List<RaySolver.Observation> observations = new ArrayList<>();
+    for (int entry = 0; solver.solve(observations, 2).count() > 1; entry++) {
+      observations.add(new RaySolver.Observation(entry, signature[entry]));
+    }
+
+    HintAdvisor.Advice advice = new HintAdvisor(board, 2).advise(observations);
+
+    assertFalse(advice.ranking().isEmpty());
+    for (HintAdvisor.Hint hint : advice.ranking()) {
+      assertEquals(0, hint.expectedGain(), 1e-9);
+    }
+  }
+
+  @Test
+  void advise_staysExact_whenFilteringACompleteSample() {
+    Board board = Board.of(3);
+    int[] signature = RaySignature.compute(new RayTracer(board, new int[] {2, 14, 25}));
+    RaySolver solver = new RaySolver(board, 3);
+    HintAdvisor advisor = new HintAdvisor(board, 3, 256);
+    List<RaySolver.Observation> observations = new ArrayList<>();
+    HintAdvisor.Advice advice = advisor.advise(observations);
+    while (!advice.exact() || advice.layouts() > 256) {
+      int entry = advice.bestEntry();
+      observations.add(new RaySolver.Observation(entry, signature[entry]));
+      advice = advisor.advise(observations);
+    }
+
+    // Every later ranking is filtered from the complete sample, and still counts exactly
+    for (int step = 0; step < 3 && advice.bestEntry() >= 0; step++) {
+      int entry = advice.bestEntry();
+      observations.add(new RaySolver.Observation(entry, signature[entry]));
+      advice = advisor.advise(observations);
+      assertTrue(advice.exact());
+      assertEquals(solver.solve(observations, 0).count(), advice.layouts());
+    }
+  }
+
+  @Test
+  void sample_countsExactly_andKeepsAtMostTheSampleSize() {
+    Board board = Board.of(3);
+    int[] signature = RaySignature.compute(new RayTracer(board, new int[] {4, 11, 20, 30}));
+    List<RaySolver.Observation> observations =
+        List.of(
+            new RaySolver.Observation(0, signature[0]),
+            new RaySolver.Observation(7, signature[7]));
+    RaySolver solver = new RaySolver(board, 4);
+
+    RaySolver.Solution exact = solver.solve(observations, 0);
+    RaySolver.Solution sample = solver.sample(observations, 50, 42);
+
+    assertEquals(exact.count(), sample.count());
+    assertEquals(Math.min(50, exact.count()), sample.layouts().size());
+    assertEquals(50, sample.layouts().stream().map(Arrays::toString).distinct().count());
+    for (int[] layout : sample.layouts()) {
+      int[] traced = RaySignature.compute(new RayTracer(board, layout));
+      assertEquals(signature[0], traced[0]);
+      assertEquals(signature[7], traced[7]);
+    }
+  }
+}
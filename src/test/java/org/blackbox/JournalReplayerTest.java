@@ -0,0 +1,153 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalReplayerTest {
+
+  private static Game seededGame(long seed) {
+    Game game = new Game(4, 6);
+    game.setSeed(seed);
+    return game;
+  }
+
+  // Fires every third entry point, then guesses the first cells of the board.
+  private static void play(Game game) {
+    for (int entry = 0; entry < 54; entry += 3) {
+      game.handleButtonClick(game.entryButton(entry));
+      game.raysShot++;
+    }
+    Board board = game.getBoard();
+    game.guessToggled(board.key(0), true);
+    game.guessToggled(board.key(1), true);
+    game.guessToggled(board.key(0), false);
+    game.scoreTracker(List.of(board.key(1)));
+  }
+
+  @Test
+  void setSeed_dealsTheSameLayouts() {
+    Game first = seededGame(42);
+    Game second = seededGame(42);
+    for (int layout = 0; layout < 3; layout++) {
+      first.atomSelection();
+      second.atomSelection();
+      assertEquals(first.getAtomLocations(), second.getAtomLocations());
+      assertEquals(first.getLayoutSeed(), second.getLayoutSeed());
+    }
+  }
+
+  @Test
+  void replay_rebuildsInterleavedGames_bitExactly(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("actions.bbjl");
+    Game first = seededGame(1);
+    Game second = seededGame(2);
+    try (ActionJournal journal = ActionJournal.open(file, Duration.ofMillis(5))) {
+      first.setJournal(journal, 1);
+      second.setJournal(journal, 2);
+      first.atomSelection();
+      second.atomSelection();
+      play(first);
+      play(second);
+      journal.awaitDurable(journal.size() + 1);
+    }
+
+    Map<Long, JournalReplayer.Replay> replays = JournalReplayer.replay(file);
+
+    assertEquals(2, replays.size());
+    for (Game game : List.of(first, second)) {
+      JournalReplayer.Replay replay = replays.get(game == first ? 1L : 2L);
+      assertTrue(replay.getDivergences().isEmpty(), replay.getDivergences().toString());
+      assertTrue(replay.isEnded());
+      assertEquals(game.getLayoutSeed(), replay.getLayoutSeed());
+      assertEquals(
+          game.snapshot(List.of(game.getBoard().key(1))),
+          replay.getGame().snapshot(replay.getGuesses()));
+    }
+  }
+
+  @Test
+  void replay_reportsOutcomesThatDoNotMatch(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("actions.bbjl");
+    Game game = seededGame(3);
+    try (ActionJournal journal = ActionJournal.open(file, Duration.ofSeconds(1))) {
+      game.setJournal(journal, 7);
+      game.atomSelection();
+      play(game);
+    }
+    // Move the journaled first atom, so the rays near it are traced differently
+    int atom = game.getBoard().indexOf(game.getAtomLocations().get(0));
+    rewriteRecord(file, 2, record -> record.putInt(12, atom == 30 ? 31 : 30));
+
+    JournalReplayer.Replay replay = JournalReplayer.replay(file).get(7L);
+
+    assertFalse(replay.getDivergences().isEmpty());
+  }
+
+  @Test
+  void forEach_stopsAtATornRecord_andAppendingOverwritesIt(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("actions.bbjl");
+    try (ActionJournal journal = ActionJournal.open(file, Duration.ofSeconds(1))) {
+      for (int cell = 1; cell <= 3; cell++) {
+        journal.append(1, ActionJournal.Action.GUESS, cell, 1, 0);
+      }
+    }
+    // A crash wrote the start of the last record but not its end
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(16), 3L * ActionJournal.RECORD_BYTES + 16);
+    }
+
+    assertEquals(2, ActionJournal.forEach(file, entry -> {}));
+    try (ActionJournal journal = ActionJournal.open(file, Duration.ofSeconds(1))) {
+      assertEquals(2, journal.size());
+      journal.append(1, ActionJournal.Action.GUESS, 4, 1, 0);
+    }
+    long[] cells = {0};
+    ActionJournal.forEach(file, entry -> cells[0] = cells[0] * 10 + entry.a());
+    assertEquals(124, cells[0]);
+  }
+
+  // Edits a record in place and fixes its checksum, as if it had been journaled that way.
+  private static void rewriteRecord(Path file, long record, Consumer<ByteBuffer> edit)
+      throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer bytes = ByteBuffer.allocate(ActionJournal.RECORD_BYTES);
+      channel.read(bytes, record * ActionJournal.RECORD_BYTES);
+      edit.accept(bytes);
+      CRC32C crc = new CRC32C();
+      crc.update(bytes.array(), 0, ActionJournal.CHECKED_BYTES);
+      bytes.putInt(ActionJournal.CHECKED_BYTES, (int) crc.getValue());
+      channel.write(bytes.flip(), record * ActionJournal.RECORD_BYTES);
+    }
+  }
+
+  @Test
+  void open_continuesAfterTheLastRecord(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("actions.bbjl");
+    try (ActionJournal journal = ActionJournal.open(file, Duration.ofSeconds(1))) {
+      journal.append(1, ActionJournal.Action.GUESS, 5, 1, 0);
+    }
+    try (ActionJournal journal = ActionJournal.open(file, Duration.ofSeconds(1))) {
+      assertEquals(1, journal.size());
+      journal.append(1, ActionJournal.Action.GUESS, 6, 1, 0);
+    }
+
+    long[] cells = {0};
+    long count = ActionJournal.forEach(file, entry -> cells[0] = cells[0] * 10 + entry.a());
+
+    assertEquals(2, count);
+    assertEquals(56, cells[0]);
+  }
+}
@@ -0,0 +1,75 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class LayoutSamplerTest {
+  private final Board board = Board.of(4);
+
+  @Test
+  void draw_placesDistinctAtomsUniformly() {
+    LayoutSampler sampler = new LayoutSampler(board, 6);
+    SplittableRandom random = new SplittableRandom(1);
+    int[] counts = new int[board.getCellCount()];
+    int layouts = 61_000;
+    int[] batch = new int[6 * layouts];
+    sampler.drawBatch(random, batch, layouts);
+    for (int offset = 0; offset < batch.length; offset += 6) {
+      int[] layout = Arrays.copyOfRange(batch, offset, offset + 6);
+      assertEquals(6, Arrays.stream(layout).distinct().count());
+      for (int cell : layout) {
+        counts[cell]++;
+      }
+    }
+    // Each cell holds an atom in 6 of 61 layouts, 6000 times here, give or take five sigma
+    for (int count : counts) {
+      assertTrue(Math.abs(count - 6000) < 375, "Cell count " + count);
+    }
+  }
+
+  @Test
+  void draw_dependsOnlyOnTheRandomNumbers() {
+    LayoutSampler sampler = new LayoutSampler(board, 6);
+    int[] first = sampler.draw(new SplittableRandom(7));
+    sampler.draw(new SplittableRandom(8));
+    assertArrayEquals(first, sampler.draw(new SplittableRandom(7)));
+    assertArrayEquals(first, new LayoutSampler(board, 6).draw(new SplittableRandom(7)));
+    assertNotEquals(Arrays.toString(first), Arrays.toString(sampler.draw(new SplittableRandom(8))));
+  }
+
+  @Test
+  void draw_keepsToTheConstraints() {
+    int[] forbidden = {board.indexOf(0, 0), board.indexOf(1, 0), board.indexOf(0, 1)};
+    LayoutSampler sampler = new LayoutSampler(board, 6, 2, forbidden);
+    SplittableRandom random = new SplittableRandom(3);
+    for (int i = 0; i < 10_000; i++) {
+      int[] layout = sampler.draw(random);
+      for (int a = 0; a < layout.length; a++) {
+        int atom = layout[a];
+        assertTrue(Arrays.stream(forbidden).noneMatch(cell -> cell == atom));
+        for (int b = a + 1; b < layout.length; b++) {
+          int distance =
+              Math.max(
+                  Math.abs(board.x(layout[a]) - board.x(layout[b])),
+                  Math.max(
+                      Math.abs(board.y(layout[a]) - board.y(layout[b])),
+                      Math.abs(board.z(layout[a]) - board.z(layout[b]))));
+          assertTrue(distance >= 2);
+        }
+      }
+    }
+    // No two cells of the smallest board are three steps apart
+    LayoutSampler crowded = new LayoutSampler(Board.of(1), 2, 3, new int[0]);
+    assertThrows(IllegalStateException.class, () -> crowded.draw(random));
+    int[] most = {0, 1, 2};
+    assertThrows(
+        IllegalArgumentException.class, () -> new LayoutSampler(Board.of(1), 5, 1, most));
+  }
+}
@@ -0,0 +1,57 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class MonteCarloSimulatorTest {
+
+  @Test
+  void run_playsEveryGame_andBlindScoresAreWholeMisses() {
+    MonteCarloSimulator simulator =
+        new MonteCarloSimulator(Board.of(4), 6, SelfPlaySession.Strategy.blind());
+    MonteCarloSimulator.Report report = simulator.run(10_001, 3, 7);
+
+    assertEquals(10_001, report.games());
+    assertEquals(10_001, Arrays.stream(report.histogram()).sum());
+    assertEquals(10_001, simulator.getProgress());
+    for (int score = 0; score < report.histogram().length; score++) {
+      if (report.histogram()[score] != 0) {
+        assertEquals(0, score % 5, "blind games fire no rays");
+        assertTrue(score <= 30);
+      }
+    }
+  }
+
+  @Test
+  void run_isReproducible_forSameSeedAndThreads() {
+    MonteCarloSimulator simulator =
+        new MonteCarloSimulator(Board.of(4), 6, SelfPlaySession.Strategy.elimination(8));
+    long[] first = simulator.run(2_000, 4, 42).histogram();
+    long[] second = simulator.run(2_000, 4, 42).histogram();
+    assertArrayEquals(first, second);
+  }
+
+  @Test
+  void session_scoresLikeScoreTracker() {
+    SelfPlaySession session = new SelfPlaySession(Board.of(4), 6);
+    session.newGame(new SplittableRandom(3));
+    int exit = RaySignature.exitEntry(session.fire(0));
+    int second = exit == 1 ? 2 : 1;
+    session.fire(second);
+    assertThrows(IllegalStateException.class, () -> session.fire(0));
+    if (exit >= 0) {
+      assertThrows(IllegalStateException.class, () -> session.fire(exit));
+    }
+    for (int cell = 0; session.getGuesses() < 6; cell++) {
+      session.guess(cell);
+    }
+    session.guess(0); // A repeated guess is ignored
+
+    assertEquals(2, session.getRaysShot());
+    assertEquals(6, session.getGuesses());
+    assertEquals(2 + 5 * (6 - session.getHits()), session.score());
+  }
+}
@@ -0,0 +1,71 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class PuzzleGeneratorTest {
+
+  @Test
+  void incrementalSignature_matchesFullTrace_afterRandomMoves() {
+    Board board = Board.of(4);
+    SplittableRandom random = new SplittableRandom(5);
+    IncrementalSignature signature =
+        new IncrementalSignature(board, new int[] {0, 9, 22, 30, 41, 60});
+    int entries = EntryCatalog.of(board).size();
+    for (int move = 0; move < 200; move++) {
+      AtomField field = signature.getField();
+      int from = field.atomCell(random.nextInt(field.getAtomCount()));
+      int to;
+      do {
+        to = random.nextInt(board.getCellCount());
+      } while (field.isAtom(to));
+      signature.move(from, to);
+
+      int[] atoms = new int[field.getAtomCount()];
+      for (int i = 0; i < atoms.length; i++) {
+        atoms[i] = field.atomCell(i);
+      }
+      assertArrayEquals(
+          RaySignature.compute(new RayTracer(board, atoms)), signature.copySignature());
+    }
+    // Only the rays near each move are traced again
+    assertTrue(signature.getRetraced() < 200L * entries / 2);
+  }
+
+  @Test
+  void generate_producesLayoutsWithAUniqueSignature() {
+    Board board = Board.of(4);
+    PuzzleGenerator generator = new PuzzleGenerator(board, 6);
+    SplittableRandom random = new SplittableRandom(11);
+    RaySolver solver = new RaySolver(board, 6);
+    for (int i = 0; i < 5; i++) {
+      PuzzleGenerator.Puzzle puzzle = generator.generate(random);
+      assertArrayEquals(
+          RaySignature.compute(new RayTracer(board, puzzle.atoms())), puzzle.signature());
+
+      List<RaySolver.Observation> observations = new ArrayList<>();
+      for (int entry = 0; entry < puzzle.signature().length; entry++) {
+        observations.add(new RaySolver.Observation(entry, puzzle.signature()[entry]));
+      }
+      RaySolver.Solution solution = solver.solve(observations, 2);
+      assertTrue(solution.isUnique());
+      assertArrayEquals(puzzle.atoms(), solution.layouts().get(0));
+    }
+  }
+
+  @Test
+  void buildPool_isReproducible_forSameSeed() {
+    Board board = Board.of(3);
+    List<PuzzleGenerator.Puzzle> first = PuzzleGenerator.buildPool(board, 4, 10, 2, 99);
+    List<PuzzleGenerator.Puzzle> second = PuzzleGenerator.buildPool(board, 4, 10, 2, 99);
+    assertEquals(10, first.size());
+    for (int i = 0; i < first.size(); i++) {
+      assertArrayEquals(first.get(i).atoms(), second.get(i).atoms());
+      assertEquals(first.get(i).rating(), second.get(i).rating());
+    }
+  }
+}
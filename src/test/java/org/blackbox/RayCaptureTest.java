@@ -0,0 +1,94 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RayCaptureTest {
+
+  @Test
+  void events_keepOnlyTheMostRecentRays_oldestFirst() {
+    RayCapture capture = new RayCapture(3);
+    for (int cell = 0; cell < 5; cell++) {
+      capture.record(cell, cell % 6, cell * 100L);
+    }
+
+    List<RayCapture.RayEvent> events = capture.events();
+
+    assertEquals(3, events.size());
+    assertEquals(2, events.get(0).entryCell());
+    assertEquals(4, events.get(2).entryCell());
+    assertEquals(4, events.get(2).entryDirection());
+    assertEquals(400L, events.get(2).result());
+  }
+
+  @Test
+  void dump_roundTripsAndReplaysAgainstTheLayout(@TempDir Path dir) throws IOException {
+    Board board = Board.of(4);
+    int[] atoms = {3, 17, 28, 40};
+    RayTracer tracer = new RayTracer(board, atoms);
+    EntryCatalog entries = EntryCatalog.of(board);
+    RayCapture capture = new RayCapture(16);
+    capture.setLayout(4, atoms);
+    for (int entry = 0; entry < 10; entry++) {
+      int cell = entries.cell(entry);
+      int direction = entries.direction(entry);
+      capture.record(cell, direction, tracer.trace(cell, direction));
+    }
+    Path file = dir.resolve("rays.bin");
+
+    capture.dump(file);
+    RayCapture.Dump dump = RayCapture.read(file);
+    List<RayCapture.RayEvent> events = dump.rays();
+
+    assertEquals(4, dump.radius());
+    assertArrayEquals(atoms, dump.atoms());
+    assertEquals(capture.events(), events);
+    // The dump alone is enough to replay its rays
+    RayTracer replayed = dump.tracer();
+    for (RayCapture.RayEvent event : events) {
+      assertTrue(event.replay(replayed));
+    }
+    // An atom on the entry cell absorbs the ray at once, which the original layout did not
+    RayCapture.RayEvent first = events.get(0);
+    assertFalse(first.replay(new RayTracer(board, new int[] {first.entryCell()})));
+  }
+
+  @Test
+  void setLayout_dropsTheRaysOfTheOldLayout_only() {
+    RayCapture capture = new RayCapture(4);
+    capture.setLayout(2, new int[] {1, 5});
+    capture.record(0, 0, 0L);
+
+    capture.setLayout(2, new int[] {1, 5});
+    assertEquals(1, capture.size());
+
+    capture.setLayout(2, new int[] {1, 6});
+    assertEquals(0, capture.size());
+    assertArrayEquals(new int[] {1, 6}, capture.getAtoms());
+  }
+
+  @Test
+  void log_printsNothing_belowTheLevel() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    EventLog.Level level = EventLog.getLevel();
+    try {
+      EventLog.setOutput(new PrintStream(bytes, true));
+      EventLog.setLevel("info");
+      EventLog.log(EventLog.Level.DEBUG, "hidden");
+      EventLog.log(EventLog.Level.INFO, "shown");
+      assertFalse(EventLog.isEnabled(EventLog.Level.TRACE));
+    } finally {
+      EventLog.setOutput(System.out);
+      EventLog.setLevel(level);
+    }
+    assertEquals("shown", bytes.toString().trim());
+    assertThrows(IllegalArgumentException.class, () -> EventLog.setLevel("loud"));
+  }
+}
@@ -0,0 +1,44 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RaySignatureTest {
+
+  @Test
+  void compute_matchesIndividualRays_forRandomLayouts() {
+    Board board = Board.of(5);
+    EntryCatalog entries = EntryCatalog.of(board);
+    Random random = new Random(61);
+    int[] signature = new int[entries.size()];
+    for (int layout = 0; layout < 100; layout++) {
+      int[] atoms = random.ints(0, board.getCellCount()).distinct().limit(8).toArray();
+      RayTracer tracer = new RayTracer(board, atoms);
+      RaySignature.compute(tracer, signature);
+      for (int entry = 0; entry < entries.size(); entry++) {
+        RayResult result = tracer.traceResult(entries.cell(entry), entries.direction(entry));
+        assertEquals(result.type(), RaySignature.type(signature[entry]));
+        int expectedExit =
+            result.isAbsorbed() ? -1 : entries.exitEntry(result.exitCell(), result.exitDirection());
+        assertEquals(expectedExit, RaySignature.exitEntry(signature[entry]));
+      }
+    }
+  }
+
+  @Test
+  void encode_roundTripsTypeAndExit() {
+    int outcome = RaySignature.encode(EncounterType.DOUBLE_HIT, 41);
+    assertEquals(EncounterType.DOUBLE_HIT, RaySignature.type(outcome));
+    assertEquals(41, RaySignature.exitEntry(outcome));
+    assertEquals(-1, RaySignature.exitEntry(RaySignature.encode(EncounterType.DIRECT_HIT, -1)));
+  }
+
+  @Test
+  void entryCatalog_countsEveryEdgeEntry() {
+    // Six corners with three entries each and the rest of the ring with two
+    assertEquals(54, EntryCatalog.of(Board.of(4)).size());
+    assertSame(EntryCatalog.of(Board.of(4)), EntryCatalog.of(Board.of(4)));
+  }
+}
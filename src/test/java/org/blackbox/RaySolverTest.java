@@ -0,0 +1,94 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RaySolverTest {
+
+  @Test
+  void solve_countsEveryLayout_withoutObservations() {
+    RaySolver.Solution solution = new RaySolver(Board.of(3), 3).solve(List.of(), 0);
+    assertEquals(37L * 36 * 35 / 6, solution.count());
+    // Every cell appears in the same share of layouts
+    assertEquals(36L * 35 / 2, solution.cellCounts()[0]);
+  }
+
+  @Test
+  void solve_matchesBruteForce_forRandomObservations() {
+    Board board = Board.of(2);
+    EntryCatalog entries = EntryCatalog.of(board);
+    RaySolver solver = new RaySolver(board, 3);
+    Random random = new Random(17);
+    for (int round = 0; round < 30; round++) {
+      int[] hidden = random.ints(0, board.getCellCount()).distinct().limit(3).toArray();
+      int[] signature = RaySignature.compute(new RayTracer(board, hidden));
+      List<RaySolver.Observation> observations = new ArrayList<>();
+      for (int i = 0; i < 1 + random.nextInt(6); i++) {
+        int entry = random.nextInt(entries.size());
+        observations.add(new RaySolver.Observation(entry, signature[entry]));
+      }
+
+      RaySolver.Solution solution = solver.solve(observations, Integer.MAX_VALUE);
+
+      List<int[]> expected = bruteForce(board, 3, observations);
+      assertEquals(expected.size(), solution.count());
+      List<int[]> found = new ArrayList<>(solution.layouts());
+      found.sort(Arrays::compare);
+      for (int i = 0; i < expected.size(); i++) {
+        assertArrayEquals(expected.get(i), found.get(i));
+      }
+      int[] sortedHidden = hidden.clone();
+      Arrays.sort(sortedHidden);
+      assertTrue(solution.layouts().stream().anyMatch(l -> Arrays.equals(l, sortedHidden)));
+    }
+  }
+
+  @Test
+  void solve_findsOnlyTheHiddenLayout_whenEveryRayIsKnown() {
+    Board board = Board.of(4);
+    int[] hidden = {3, 17, 28, 40, 52, 59};
+    int[] signature = RaySignature.compute(new RayTracer(board, hidden));
+    List<RaySolver.Observation> observations = new ArrayList<>();
+    for (int entry = 0; entry < signature.length; entry++) {
+      observations.add(new RaySolver.Observation(entry, signature[entry]));
+    }
+
+    RaySolver.Solution solution = new RaySolver(board, 6).solve(observations, 10);
+
+    assertTrue(solution.count() >= 1);
+    for (int cell : hidden) {
+      assertTrue(solution.probability(cell) > 0);
+    }
+    for (int[] layout : solution.layouts()) {
+      assertArrayEquals(signature, RaySignature.compute(new RayTracer(board, layout)));
+    }
+  }
+
+  // Lists the consistent layouts in lexicographic order by trying every combination.
+  private static List<int[]> bruteForce(
+      Board board, int atoms, List<RaySolver.Observation> observations) {
+    List<int[]> layouts = new ArrayList<>();
+    int n = board.getCellCount();
+    for (int a = 0; a < n; a++) {
+      for (int b = a + 1; b < n; b++) {
+        for (int c = b + 1; c < n; c++) {
+          int[] layout = {a, b, c};
+          int[] signature = RaySignature.compute(new RayTracer(board, layout));
+          boolean consistent = true;
+          for (RaySolver.Observation observation : observations) {
+            consistent &= signature[observation.entry()] == observation.outcome();
+          }
+          if (consistent) {
+            layouts.add(layout);
+          }
+        }
+      }
+    }
+    return layouts;
+  }
+}
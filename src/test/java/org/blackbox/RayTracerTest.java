@@ -0,0 +1,106 @@
+package org.blackbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RayTracerTest {
+  private static final int EAST = 3; // Direction fired by the 180 degree buttons, (+1, 0, -1)
+
+  private final Board board = new Board(4);
+
+  private RayTracer tracer(String... atoms) {
+    int[] cells = new int[atoms.length];
+    for (int i = 0; i < atoms.length; i++) {
+      cells[i] = board.indexOf(atoms[i]);
+    }
+    return new RayTracer(board, cells);
+  }
+
+  @Test
+  void trace_passesStraightThrough_whenNoAtomsAreNear() {
+    RayResult result = tracer("4,-4,0").traceResult(board.indexOf("-4,0,4"), EAST);
+    assertEquals(EncounterType.NO_ENCOUNTER, result.type());
+    assertEquals(board.indexOf("4,0,-4"), result.exitCell());
+    assertEquals(EAST, result.exitDirection());
+    assertEquals(0, result.exitDegree());
+    assertEquals(9, result.pathLength());
+  }
+
+  @Test
+  void trace_isAbsorbed_whenAtomIsInPath() {
+    RayResult result = tracer("0,0,0").traceResult(board.indexOf("-4,0,4"), EAST);
+    assertEquals(EncounterType.DIRECT_HIT, result.type());
+    assertTrue(result.isAbsorbed());
+    assertEquals(board.indexOf("-1,0,1"), result.pathCell(result.pathLength() - 1));
+  }
+
+  @Test
+  void trace_isAbsorbed_whenAtomIsOnEntryCell() {
+    RayResult result = tracer("-4,0,4").traceResult(board.indexOf("-4,0,4"), EAST);
+    assertEquals(EncounterType.DIRECT_HIT, result.type());
+    assertEquals(1, result.pathLength());
+  }
+
+  @Test
+  void trace_deflectsAwayFromAtom_whenAtomIsAheadToOneSide() {
+    RayResult result = tracer("-1,1,0").traceResult(board.indexOf("-4,0,4"), EAST);
+    assertEquals(EncounterType.DEFLECTION, result.type());
+    assertEquals(1, result.deflections());
+    assertEquals(board.indexOf("3,-4,1"), result.exitCell());
+    assertEquals(8, result.pathLength());
+  }
+
+  @Test
+  void trace_reflectsAtEntry_whenAtomsFlankEntryCell() {
+    RayResult result = tracer("-4,1,3", "-3,-1,4").traceResult(board.indexOf("-4,0,4"), EAST);
+    assertEquals(EncounterType.REFLECTION, result.type());
+    assertEquals(board.indexOf("-4,0,4"), result.exitCell());
+    assertEquals(180, result.exitDegree());
+    assertEquals(1, result.pathLength());
+  }
+
+  @Test
+  void trace_isReversible_forEveryEntryPointOfRandomLayouts() {
+    Random random = new Random(20050);
+    for (int layout = 0; layout < 200; layout++) {
+      int[] atoms = random.ints(0, board.getCellCount()).distinct().limit(6).toArray();
+      RayTracer tracer = new RayTracer(board, atoms);
+      for (int cell = 0; cell < board.getCellCount(); cell++) {
+        for (int direction = 0; direction < Board.DIRECTIONS; direction++) {
+          if (board.neighbor(cell, Board.reverse(direction)) != Board.NO_CELL) {
+            continue; // Not an entry point
+          }
+          long forward = tracer.trace(cell, direction);
+          int exitCell = RayResult.exitCell(forward);
+          if (exitCell == Board.NO_CELL) {
+            continue;
+          }
+          long backward = tracer.trace(exitCell, Board.reverse(RayResult.exitDirection(forward)));
+          assertEquals(cell, RayResult.exitCell(backward));
+          assertEquals(Board.reverse(direction), RayResult.exitDirection(backward));
+          assertEquals(RayResult.deflections(forward), RayResult.deflections(backward));
+        }
+      }
+    }
+  }
+
+  @Test
+  void trace_throws_whenRayExceedsMaxSteps() {
+    RayTracer tracer = new RayTracer(new AtomField(board, new int[0]), 4);
+    assertEquals(4, tracer.getMaxSteps());
+    assertThrows(IllegalStateException.class, () -> tracer.trace(board.indexOf("-4,0,4"), EAST));
+    assertEquals(board.getCellCount() * 6, new RayTracer(board, new int[0]).getMaxSteps());
+  }
+
+  @Test
+  void atomField_rejectsCellsOffTheBoard() {
+    AtomField field = new AtomField(board, new int[] {0});
+    assertThrows(IllegalArgumentException.class, () -> field.add(Board.NO_CELL));
+    assertThrows(
+        IllegalArgumentException.class, () -> field.place(new int[] {1, board.getCellCount()}, 2));
+    assertTrue(field.isAtom(0)); // A rejected layout leaves the old one in place
+    assertThrows(IllegalArgumentException.class, () -> new AtomField(board, new int[] {-1}));
+  }
+}